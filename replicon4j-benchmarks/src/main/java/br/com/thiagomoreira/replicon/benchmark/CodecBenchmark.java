@@ -0,0 +1,96 @@
+/**
+ * Copyright (C) 2014 Thiago Moreira (tmoreira2020@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package br.com.thiagomoreira.replicon.benchmark;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import br.com.thiagomoreira.replicon.codec.JacksonCodec;
+import br.com.thiagomoreira.replicon.model.ProjectAllocation;
+import br.com.thiagomoreira.replicon.model.TimeOffAllocation;
+import br.com.thiagomoreira.replicon.stub.SyntheticData;
+
+/**
+ * Compares the JSON and Smile codecs on synthetic allocations and time-off, the
+ * encoded sizes are checked by <code>JacksonCodecTest</code>.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CodecBenchmark {
+
+	@Param({"10", "1000"})
+	public int size;
+
+	@Param({"json", "smile"})
+	public String codec;
+
+	protected JacksonCodec jacksonCodec;
+	protected ProjectAllocation[] projectAllocations;
+	protected TimeOffAllocation[] timeOff;
+	protected byte[] encodedProjectAllocations;
+	protected byte[] encodedTimeOff;
+
+	@Setup
+	public void setUp() throws IOException {
+		SyntheticData data = new SyntheticData("company", 42);
+
+		jacksonCodec = codec.equals("smile")
+				? JacksonCodec.smile()
+				: JacksonCodec.json();
+		projectAllocations = data.projectAllocations(size, 1,
+				Math.max(1, size / 10));
+		timeOff = data.timeOff(size, 1);
+		encodedProjectAllocations = jacksonCodec.encode(projectAllocations);
+		encodedTimeOff = jacksonCodec.encode(timeOff);
+	}
+
+	@Benchmark
+	public Object encodeProjectAllocations() throws IOException {
+		return jacksonCodec.encode(projectAllocations);
+	}
+
+	@Benchmark
+	public Object decodeProjectAllocations() throws IOException {
+		return jacksonCodec.decode(encodedProjectAllocations,
+				ProjectAllocation[].class);
+	}
+
+	@Benchmark
+	public Object encodeTimeOff() throws IOException {
+		return jacksonCodec.encode(timeOff);
+	}
+
+	@Benchmark
+	public Object decodeTimeOff() throws IOException {
+		return jacksonCodec.decode(encodedTimeOff, TimeOffAllocation[].class);
+	}
+}
@@ -0,0 +1,80 @@
+/**
+ * Copyright (C) 2014 Thiago Moreira (tmoreira2020@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package br.com.thiagomoreira.replicon.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import br.com.thiagomoreira.replicon.model.Date;
+import br.com.thiagomoreira.replicon.util.DateUtil;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class DateUtilBenchmark {
+
+	protected Date modelDate;
+	protected java.util.Date javaDate;
+
+	@Setup
+	public void setUp() {
+		modelDate = new Date();
+
+		modelDate.setDay(28);
+		modelDate.setMonth(2);
+		modelDate.setYear(2014);
+
+		javaDate = new java.util.Date(1393545600000L);
+	}
+
+	@Benchmark
+	public java.util.Date toJavaDate() {
+		return DateUtil.translateDate(modelDate);
+	}
+
+	@Benchmark
+	public java.util.Date toJavaEndDate() {
+		return DateUtil.translateDate(modelDate, true);
+	}
+
+	@Benchmark
+	public Date toModelDate() {
+		return DateUtil.translateDate(javaDate);
+	}
+
+	@Benchmark
+	public long toEpochDay() {
+		return DateUtil.toEpochDay(modelDate);
+	}
+
+	@Benchmark
+	public Date fromEpochDay() {
+		return DateUtil.fromEpochDay(16129);
+	}
+}
@@ -0,0 +1,136 @@
+/**
+ * Copyright (C) 2014 Thiago Moreira (tmoreira2020@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package br.com.thiagomoreira.replicon.benchmark;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import br.com.thiagomoreira.replicon.model.Project;
+import br.com.thiagomoreira.replicon.model.Response;
+import br.com.thiagomoreira.replicon.model.TimeOffAllocation;
+import br.com.thiagomoreira.replicon.model.User;
+import br.com.thiagomoreira.replicon.model.operations.GetResourceAllocationSummaryResponse;
+import br.com.thiagomoreira.replicon.stub.SyntheticData;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DeserializationBenchmark {
+
+	@Param({"10", "1000", "10000"})
+	public int size;
+
+	protected ObjectMapper objectMapper = new ObjectMapper();
+
+	protected JavaType projectType;
+	protected JavaType userType;
+	protected JavaType usersType;
+	protected JavaType allocationSummaryType;
+	protected JavaType timeOffType;
+
+	protected byte[] projectFixture;
+	protected byte[] userFixture;
+	protected byte[] usersBySupervisorFixture;
+	protected byte[] syntheticUsers;
+	protected byte[] syntheticProjectAllocations;
+	protected byte[] syntheticTimeOff;
+
+	@Setup
+	public void setUp() throws IOException {
+		projectType = objectMapper.getTypeFactory().constructType(
+				new TypeReference<Response<Project>>() {
+				});
+		userType = objectMapper.getTypeFactory().constructType(
+				new TypeReference<Response<User>>() {
+				});
+		usersType = objectMapper.getTypeFactory().constructType(
+				new TypeReference<Response<User[]>>() {
+				});
+		allocationSummaryType = objectMapper
+				.getTypeFactory()
+				.constructType(
+						new TypeReference<Response<GetResourceAllocationSummaryResponse>>() {
+						});
+		timeOffType = objectMapper.getTypeFactory().constructType(
+				new TypeReference<Response<TimeOffAllocation[]>>() {
+				});
+
+		projectFixture = Fixtures.load("getProjectResponse.json");
+		userFixture = Fixtures.load("getUser2Response.json");
+		usersBySupervisorFixture = Fixtures
+				.load("getUsersBySupervisorResponse.json");
+
+		SyntheticData data = new SyntheticData("company", 42);
+
+		syntheticUsers = objectMapper.writeValueAsBytes(SyntheticData
+				.response(data.users(size)));
+		syntheticProjectAllocations = objectMapper
+				.writeValueAsBytes(SyntheticData.response(data
+						.allocationSummary(size, 1, size / 10)));
+		syntheticTimeOff = objectMapper.writeValueAsBytes(SyntheticData
+				.response(data.timeOff(size, 1)));
+	}
+
+	@Benchmark
+	public Object projectFixture() throws IOException {
+		return objectMapper.readValue(projectFixture, projectType);
+	}
+
+	@Benchmark
+	public Object userFixture() throws IOException {
+		return objectMapper.readValue(userFixture, userType);
+	}
+
+	@Benchmark
+	public Object usersBySupervisorFixture() throws IOException {
+		return objectMapper.readValue(usersBySupervisorFixture, usersType);
+	}
+
+	@Benchmark
+	public Object syntheticUsers() throws IOException {
+		return objectMapper.readValue(syntheticUsers, usersType);
+	}
+
+	@Benchmark
+	public Object syntheticProjectAllocations() throws IOException {
+		return objectMapper.readValue(syntheticProjectAllocations,
+				allocationSummaryType);
+	}
+
+	@Benchmark
+	public Object syntheticTimeOff() throws IOException {
+		return objectMapper.readValue(syntheticTimeOff, timeOffType);
+	}
+}
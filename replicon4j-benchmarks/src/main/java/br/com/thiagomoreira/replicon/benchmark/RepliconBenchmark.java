@@ -0,0 +1,127 @@
+/**
+ * Copyright (C) 2014 Thiago Moreira (tmoreira2020@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package br.com.thiagomoreira.replicon.benchmark;
+
+import java.io.IOException;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import br.com.thiagomoreira.replicon.Replicon;
+import br.com.thiagomoreira.replicon.RepliconRuntime;
+import br.com.thiagomoreira.replicon.stub.RepliconStubServer;
+import br.com.thiagomoreira.replicon.stub.StubConfiguration;
+import br.com.thiagomoreira.replicon.transport.ByteArrayPool;
+
+/**
+ * Measures whole {@link Replicon} calls (request serialization, HTTP over
+ * loopback and response mapping) against a {@link RepliconStubServer}, with and
+ * without pooled response buffers.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Dsun.net.httpserver.nodelay=true")
+@State(Scope.Benchmark)
+public class RepliconBenchmark {
+
+	protected static final String PROJECT_URI = "urn:replicon-tenant:company:project:001";
+	protected static final String USER_URI = "urn:replicon-tenant:company:user:1";
+
+	@Param({"10", "1000"})
+	public int size;
+
+	@Param({"false", "true"})
+	public boolean pooled;
+
+	protected RepliconStubServer server;
+	protected Replicon replicon;
+	protected Date startDate = new Date(1388534400000L);
+	protected Date endDate = new Date(1419984000000L);
+
+	@Setup
+	public void setUp() throws IOException {
+		StubConfiguration configuration = new StubConfiguration();
+
+		configuration.setUsers(size);
+		configuration.setProjectAllocationsPerResource(size);
+		configuration.setTimeOffPerUser(size);
+
+		server = new RepliconStubServer(configuration);
+		server.respond("GetProjectDetails",
+				Fixtures.load("getProjectResponse.json"));
+		server.respond("GetUser2", Fixtures.load("getUser2Response.json"));
+		server.respond("GetDirectReportsForUser",
+				Fixtures.load("getUsersBySupervisorResponse.json"));
+		server.start();
+
+		RepliconRuntime runtime = new RepliconRuntime();
+
+		if (pooled) {
+			runtime.setByteArrayPool(new ByteArrayPool());
+		}
+
+		replicon = server.newReplicon(runtime);
+	}
+
+	@TearDown
+	public void tearDown() {
+		server.stop();
+	}
+
+	@Benchmark
+	public Object getProject() throws IOException {
+		return replicon.getProject(PROJECT_URI);
+	}
+
+	@Benchmark
+	public Object getUserByLoginName() throws IOException {
+		return replicon.getUserByLoginName("thiago.ferreira");
+	}
+
+	@Benchmark
+	public Object getUsersBySupervisor() throws IOException {
+		return replicon.getUsersBySupervisor(USER_URI);
+	}
+
+	@Benchmark
+	public Object getUsers() {
+		return replicon.getUsers();
+	}
+
+	@Benchmark
+	public Object getProjectAllocations() throws IOException {
+		return replicon.getProjectAllocations(startDate, endDate, USER_URI);
+	}
+
+	@Benchmark
+	public Object getTimeOff() throws IOException {
+		return replicon.getTimeOff(USER_URI, startDate, endDate);
+	}
+}
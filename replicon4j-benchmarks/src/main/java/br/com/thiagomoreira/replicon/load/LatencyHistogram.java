@@ -0,0 +1,100 @@
+/**
+ * Copyright (C) 2014 Thiago Moreira (tmoreira2020@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package br.com.thiagomoreira.replicon.load;
+
+/**
+ * Log-linear histogram of latencies in microseconds with ~3% precision.
+ * Instances are not thread-safe, each driver thread records into its own one
+ * and they are merged for the report.
+ */
+public class LatencyHistogram {
+
+	protected static final int SUB_BUCKETS = 32;
+	protected static final int LINEAR_LIMIT = SUB_BUCKETS * 2;
+
+	protected final long[] counts = new long[LINEAR_LIMIT + 58 * SUB_BUCKETS];
+	protected long totalCount;
+	protected long max;
+
+	public void record(long nanos) {
+		long micros = Math.max(0, nanos / 1000);
+
+		counts[index(micros)]++;
+		totalCount++;
+		max = Math.max(max, micros);
+	}
+
+	public void merge(LatencyHistogram other) {
+		for (int i = 0; i < counts.length; i++) {
+			counts[i] += other.counts[i];
+		}
+
+		totalCount += other.totalCount;
+		max = Math.max(max, other.max);
+	}
+
+	public long getTotalCount() {
+		return totalCount;
+	}
+
+	public long getMaxMicros() {
+		return max;
+	}
+
+	/**
+	 * @return the upper bound in microseconds of the bucket holding the given
+	 *         percentile (0-100)
+	 */
+	public long getPercentileMicros(double percentile) {
+		if (totalCount == 0) {
+			return 0;
+		}
+
+		long rank = (long) Math.ceil(totalCount * percentile / 100.0);
+		long seen = 0;
+
+		for (int i = 0; i < counts.length; i++) {
+			seen += counts[i];
+			if (seen >= Math.max(1, rank)) {
+				return Math.min(max, upperBound(i));
+			}
+		}
+
+		return max;
+	}
+
+	protected static int index(long micros) {
+		if (micros < LINEAR_LIMIT) {
+			return (int) micros;
+		}
+
+		int exponent = 63 - Long.numberOfLeadingZeros(micros) - 5;
+		int subBucket = (int) (micros >>> exponent) - SUB_BUCKETS;
+
+		return LINEAR_LIMIT + (exponent - 1) * SUB_BUCKETS + subBucket;
+	}
+
+	protected static long upperBound(int index) {
+		if (index < LINEAR_LIMIT) {
+			return index;
+		}
+
+		int exponent = (index - LINEAR_LIMIT) / SUB_BUCKETS + 1;
+		long subBucket = (index - LINEAR_LIMIT) % SUB_BUCKETS + SUB_BUCKETS;
+
+		return ((subBucket + 1) << exponent) - 1;
+	}
+}
@@ -0,0 +1,382 @@
+/**
+ * Copyright (C) 2014 Thiago Moreira (tmoreira2020@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package br.com.thiagomoreira.replicon.load;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import br.com.thiagomoreira.replicon.Replicon;
+import br.com.thiagomoreira.replicon.stub.LatencyDistribution;
+import br.com.thiagomoreira.replicon.stub.RepliconStubServer;
+import br.com.thiagomoreira.replicon.stub.StubConfiguration;
+
+/**
+ * Closed-loop load generator: a fixed number of threads call {@link Replicon}
+ * back to back with a weighted operation mix and record per-operation latency
+ * histograms, which are merged into the throughput and percentile report.
+ */
+public class LoadDriver {
+
+	public enum Operation {
+		GET_USER_BY_LOGIN_NAME(20), GET_USERS_BY_SUPERVISOR(5), GET_RESOURCE(20), GET_PROJECT(
+				20), GET_TASK(10), GET_PROJECT_ALLOCATIONS(10), GET_TASK_ALLOCATIONS(
+				5), GET_TIME_OFF(10), GET_USERS(0);
+
+		protected final int weight;
+
+		Operation(int weight) {
+			this.weight = weight;
+		}
+	}
+
+	protected final Replicon replicon;
+	protected final StubConfiguration tenant;
+	protected final Map<Operation, Integer> weights = new EnumMap<Operation, Integer>(
+			Operation.class);
+	protected int concurrency = 32;
+	protected long warmupMillis = TimeUnit.SECONDS.toMillis(5);
+	protected long durationMillis = TimeUnit.SECONDS.toMillis(30);
+	protected Date startDate = new Date(1388534400000L);
+	protected Date endDate = new Date(1419984000000L);
+
+	public LoadDriver(Replicon replicon, StubConfiguration tenant) {
+		this.replicon = replicon;
+		this.tenant = tenant;
+
+		for (Operation operation : Operation.values()) {
+			weights.put(operation, operation.weight);
+		}
+	}
+
+	public void setWeight(Operation operation, int weight) {
+		weights.put(operation, weight);
+	}
+
+	public void setConcurrency(int concurrency) {
+		this.concurrency = concurrency;
+	}
+
+	public void setWarmup(long warmup, TimeUnit unit) {
+		this.warmupMillis = unit.toMillis(warmup);
+	}
+
+	public void setDuration(long duration, TimeUnit unit) {
+		this.durationMillis = unit.toMillis(duration);
+	}
+
+	public LoadReport run() throws InterruptedException {
+		final Operation[] mix = mix();
+		final long measureStart = System.nanoTime()
+				+ TimeUnit.MILLISECONDS.toNanos(warmupMillis);
+		final long end = measureStart
+				+ TimeUnit.MILLISECONDS.toNanos(durationMillis);
+		ExecutorService executor = Executors.newFixedThreadPool(concurrency);
+		List<Future<LoadReport>> futures = new ArrayList<Future<LoadReport>>();
+
+		for (int i = 0; i < concurrency; i++) {
+			futures.add(executor.submit(new Callable<LoadReport>() {
+				@Override
+				public LoadReport call() {
+					LoadReport report = new LoadReport();
+					Random random = ThreadLocalRandom.current();
+					long now;
+
+					while ((now = System.nanoTime()) < end) {
+						Operation operation = mix[random.nextInt(mix.length)];
+						Throwable failure = null;
+
+						try {
+							invoke(operation, random);
+						} catch (Exception e) {
+							failure = e;
+						}
+
+						long finished = System.nanoTime();
+
+						if (now >= measureStart) {
+							report.record(operation, finished - now, failure);
+						}
+					}
+
+					return report;
+				}
+			}));
+		}
+
+		executor.shutdown();
+
+		LoadReport report = new LoadReport();
+
+		for (Future<LoadReport> future : futures) {
+			try {
+				report.merge(future.get());
+			} catch (ExecutionException e) {
+				throw new IllegalStateException(e.getCause());
+			}
+		}
+
+		report.setElapsedNanos(TimeUnit.MILLISECONDS.toNanos(durationMillis));
+
+		return report;
+	}
+
+	protected Operation[] mix() {
+		List<Operation> mix = new ArrayList<Operation>();
+
+		for (Map.Entry<Operation, Integer> entry : weights.entrySet()) {
+			for (int i = 0; i < entry.getValue(); i++) {
+				mix.add(entry.getKey());
+			}
+		}
+
+		if (mix.isEmpty()) {
+			throw new IllegalStateException("All operation weights are zero");
+		}
+
+		return mix.toArray(new Operation[mix.size()]);
+	}
+
+	protected void invoke(Operation operation, Random random)
+			throws IOException {
+		int userId = random.nextInt(tenant.getUsers());
+		String userUri = uri("user", userId);
+
+		switch (operation) {
+			case GET_USER_BY_LOGIN_NAME :
+				replicon.getUserByLoginName("user." + userId);
+				break;
+			case GET_USERS_BY_SUPERVISOR :
+				replicon.getUsersBySupervisor(userUri);
+				break;
+			case GET_RESOURCE :
+				replicon.getResource(userUri);
+				break;
+			case GET_PROJECT :
+				replicon.getProject(uri("project",
+						random.nextInt(tenant.getProjects())));
+				break;
+			case GET_TASK :
+				replicon.getTask(uri("task", random.nextInt(10000)));
+				break;
+			case GET_PROJECT_ALLOCATIONS :
+				replicon.getProjectAllocations(startDate, endDate, userUri);
+				break;
+			case GET_TASK_ALLOCATIONS :
+				replicon.getTaskAllocations(
+						uri("project", random.nextInt(tenant.getProjects())),
+						userUri);
+				break;
+			case GET_TIME_OFF :
+				replicon.getTimeOff(userUri, startDate, endDate);
+				break;
+			case GET_USERS :
+				replicon.getUsers();
+				break;
+		}
+	}
+
+	protected String uri(String type, int id) {
+		return "urn:replicon-tenant:" + tenant.getCompany() + ":" + type + ":"
+				+ id;
+	}
+
+	/**
+	 * Starts a {@link RepliconStubServer} and runs the driver against it.
+	 * Arguments are <code>key=value</code> pairs: users, concurrency, warmup
+	 * and seconds, latencyMs (log-normal median), errorRate and throttleRate.
+	 */
+	public static void main(String[] args) throws Exception {
+		// read once, when the stub's server first starts
+		System.setProperty("sun.net.httpserver.nodelay", "true");
+
+		Map<String, String> options = new HashMap<String, String>();
+
+		for (String arg : args) {
+			int index = arg.indexOf('=');
+
+			if (index > 0) {
+				options.put(arg.substring(0, index), arg.substring(index + 1));
+			}
+		}
+
+		StubConfiguration configuration = new StubConfiguration();
+		long latencyMillis = Long.parseLong(option(options, "latencyMs", "0"));
+
+		configuration.setUsers(Integer
+				.parseInt(option(options, "users", "1000")));
+		configuration.setErrorRate(Double.parseDouble(option(options,
+				"errorRate", "0")));
+		configuration.setThrottleRate(Double.parseDouble(option(options,
+				"throttleRate", "0")));
+		if (latencyMillis > 0) {
+			configuration.setLatency(LatencyDistribution.logNormal(
+					latencyMillis, TimeUnit.MILLISECONDS, 0.5));
+		}
+
+		RepliconStubServer server = new RepliconStubServer(configuration);
+
+		server.start();
+
+		try {
+			LoadDriver driver = new LoadDriver(server.newReplicon(),
+					configuration);
+
+			driver.setConcurrency(Integer.parseInt(option(options,
+					"concurrency", "32")));
+			driver.setWarmup(Long.parseLong(option(options, "warmup", "5")),
+					TimeUnit.SECONDS);
+			driver.setDuration(
+					Long.parseLong(option(options, "seconds", "30")),
+					TimeUnit.SECONDS);
+
+			driver.run().print(System.out);
+		} finally {
+			server.stop();
+		}
+	}
+
+	protected static String option(Map<String, String> options, String key,
+			String defaultValue) {
+		String value = options.get(key);
+
+		return value == null ? defaultValue : value;
+	}
+
+	public static class LoadReport {
+
+		protected final Map<Operation, LatencyHistogram> histograms = new EnumMap<Operation, LatencyHistogram>(
+				Operation.class);
+		protected final Map<String, Long> failures = new TreeMap<String, Long>();
+		protected long elapsedNanos;
+
+		public void record(Operation operation, long nanos, Throwable failure) {
+			LatencyHistogram histogram = histograms.get(operation);
+
+			if (histogram == null) {
+				histogram = new LatencyHistogram();
+				histograms.put(operation, histogram);
+			}
+
+			histogram.record(nanos);
+
+			if (failure != null) {
+				String key = failure.getClass().getSimpleName() + ": "
+						+ failure.getMessage();
+				Long count = failures.get(key);
+
+				failures.put(key, count == null ? 1 : count + 1);
+			}
+		}
+
+		public void merge(LoadReport other) {
+			for (Map.Entry<Operation, LatencyHistogram> entry : other.histograms
+					.entrySet()) {
+				LatencyHistogram histogram = histograms.get(entry.getKey());
+
+				if (histogram == null) {
+					histogram = new LatencyHistogram();
+					histograms.put(entry.getKey(), histogram);
+				}
+
+				histogram.merge(entry.getValue());
+			}
+
+			for (Map.Entry<String, Long> entry : other.failures.entrySet()) {
+				Long count = failures.get(entry.getKey());
+
+				failures.put(entry.getKey(), count == null
+						? entry.getValue()
+						: count + entry.getValue());
+			}
+		}
+
+		public void setElapsedNanos(long elapsedNanos) {
+			this.elapsedNanos = elapsedNanos;
+		}
+
+		public LatencyHistogram getTotal() {
+			LatencyHistogram total = new LatencyHistogram();
+
+			for (LatencyHistogram histogram : histograms.values()) {
+				total.merge(histogram);
+			}
+
+			return total;
+		}
+
+		public LatencyHistogram getHistogram(Operation operation) {
+			return histograms.get(operation);
+		}
+
+		public double getThroughput() {
+			return getTotal().getTotalCount() * 1e9 / elapsedNanos;
+		}
+
+		public long getFailureCount() {
+			long count = 0;
+
+			for (Long value : failures.values()) {
+				count += value;
+			}
+
+			return count;
+		}
+
+		public void print(PrintStream out) {
+			out.printf("%-26s %10s %10s %8s %8s %8s %8s %8s%n", "operation",
+					"calls", "ops/s", "p50 us", "p90 us", "p99 us", "p99.9 us",
+					"max us");
+
+			for (Map.Entry<Operation, LatencyHistogram> entry : histograms
+					.entrySet()) {
+				print(out, entry.getKey().name(), entry.getValue());
+			}
+
+			print(out, "TOTAL", getTotal());
+
+			out.printf("failures: %d%n", getFailureCount());
+			for (Map.Entry<String, Long> entry : failures.entrySet()) {
+				out.printf("  %8d %s%n", entry.getValue(), entry.getKey());
+			}
+		}
+
+		protected void print(PrintStream out, String name,
+				LatencyHistogram histogram) {
+			out.printf("%-26s %10d %10.1f %8d %8d %8d %8d %8d%n", name,
+					histogram.getTotalCount(), histogram.getTotalCount() * 1e9
+							/ elapsedNanos, histogram.getPercentileMicros(50),
+					histogram.getPercentileMicros(90),
+					histogram.getPercentileMicros(99),
+					histogram.getPercentileMicros(99.9),
+					histogram.getMaxMicros());
+		}
+	}
+}
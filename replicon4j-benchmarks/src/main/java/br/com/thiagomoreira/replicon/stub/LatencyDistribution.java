@@ -0,0 +1,70 @@
+/**
+ * Copyright (C) 2014 Thiago Moreira (tmoreira2020@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package br.com.thiagomoreira.replicon.stub;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Source of artificial service times for the {@link RepliconStubServer}.
+ */
+public abstract class LatencyDistribution {
+
+	public abstract long nextNanos(Random random);
+
+	public static LatencyDistribution none() {
+		return fixed(0, TimeUnit.MILLISECONDS);
+	}
+
+	public static LatencyDistribution fixed(long latency, TimeUnit unit) {
+		final long nanos = unit.toNanos(latency);
+
+		return new LatencyDistribution() {
+			@Override
+			public long nextNanos(Random random) {
+				return nanos;
+			}
+		};
+	}
+
+	public static LatencyDistribution uniform(long min, long max, TimeUnit unit) {
+		final long minNanos = unit.toNanos(min);
+		final long rangeNanos = unit.toNanos(max) - minNanos;
+
+		return new LatencyDistribution() {
+			@Override
+			public long nextNanos(Random random) {
+				return minNanos + (long) (random.nextDouble() * rangeNanos);
+			}
+		};
+	}
+
+	/**
+	 * Long tailed distribution typical of SaaS APIs: most calls are close to
+	 * the median, a few are several times slower.
+	 */
+	public static LatencyDistribution logNormal(long median, TimeUnit unit,
+			final double sigma) {
+		final double mu = Math.log(unit.toNanos(median));
+
+		return new LatencyDistribution() {
+			@Override
+			public long nextNanos(Random random) {
+				return (long) Math.exp(mu + sigma * random.nextGaussian());
+			}
+		};
+	}
+}
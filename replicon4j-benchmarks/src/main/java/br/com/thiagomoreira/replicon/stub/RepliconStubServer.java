@@ -0,0 +1,251 @@
+/**
+ * Copyright (C) 2014 Thiago Moreira (tmoreira2020@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package br.com.thiagomoreira.replicon.stub;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import br.com.thiagomoreira.replicon.Replicon;
+import br.com.thiagomoreira.replicon.RepliconRuntime;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Embeddable HTTP server implementing the Replicon endpoints used by
+ * {@link Replicon} on top of a {@link SyntheticTenant}, plus the discovery
+ * endpoint (see {@link #getDiscoveryUrl()}). Latency, errors and throttling are
+ * injected according to the {@link StubConfiguration}; delayed responses are
+ * completed from a scheduler so slow calls don't pin server threads.
+ * 
+ * Run the JVM with <code>-Dsun.net.httpserver.nodelay=true</code>, without
+ * TCP_NODELAY small responses stall on delayed ACKs.
+ */
+public class RepliconStubServer implements HttpHandler {
+
+	protected static final byte[] ERROR_BODY = "{\"error\":{\"reason\":\"Injected failure\"}}"
+			.getBytes(StandardCharsets.UTF_8);
+	protected static final byte[] NOT_FOUND_BODY = "{\"error\":{\"reason\":\"Not found\"}}"
+			.getBytes(StandardCharsets.UTF_8);
+	protected static final byte[] THROTTLED_BODY = "{\"error\":{\"reason\":\"Too many requests\"}}"
+			.getBytes(StandardCharsets.UTF_8);
+
+	protected final StubConfiguration configuration;
+	protected final SyntheticTenant tenant;
+	protected final ObjectMapper objectMapper = new ObjectMapper();
+	protected final Map<String, byte[]> responses = new ConcurrentHashMap<String, byte[]>();
+	protected final ConcurrentHashMap<String, AtomicLong> requestCounts = new ConcurrentHashMap<String, AtomicLong>();
+	protected final AtomicLong errorCount = new AtomicLong();
+	protected final AtomicLong throttleCount = new AtomicLong();
+	protected HttpServer server;
+	protected ExecutorService executor;
+	protected ScheduledExecutorService scheduler;
+
+	public RepliconStubServer() {
+		this(new StubConfiguration());
+	}
+
+	public RepliconStubServer(StubConfiguration configuration) {
+		this.configuration = configuration;
+		this.tenant = new SyntheticTenant(configuration);
+	}
+
+	/**
+	 * Answers every call of the given operation with a fixed body instead of
+	 * the synthetic tenant data.
+	 */
+	public void respond(String operation, byte[] body) {
+		responses.put(operation, body);
+	}
+
+	public void start() throws IOException {
+		server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 1024);
+		executor = Executors.newFixedThreadPool(configuration.getThreads());
+		scheduler = Executors.newScheduledThreadPool(Math.max(1, Runtime
+				.getRuntime().availableProcessors()));
+
+		server.createContext("/", this);
+		server.setExecutor(executor);
+		server.start();
+	}
+
+	public void stop() {
+		server.stop(0);
+		scheduler.shutdownNow();
+		executor.shutdownNow();
+	}
+
+	public String getBaseServiceUrl() {
+		return "http://127.0.0.1:" + server.getAddress().getPort() + "/"
+				+ configuration.getCompany() + "/services";
+	}
+
+	public String getDiscoveryUrl() {
+		return "http://127.0.0.1:" + server.getAddress().getPort()
+				+ "/DiscoveryService1.svc/GetTenantEndpointDetails";
+	}
+
+	public Replicon newReplicon() {
+		return newReplicon(new RepliconRuntime());
+	}
+
+	/**
+	 * Attaches a client of the stub tenant to the given runtime, pinning the
+	 * tenant to this server.
+	 */
+	public Replicon newReplicon(RepliconRuntime runtime) {
+		runtime.setBaseServiceUrl(configuration.getCompany(),
+				getBaseServiceUrl());
+
+		return runtime.attach(configuration.getCompany(), "username",
+				"password");
+	}
+
+	public SyntheticTenant getTenant() {
+		return tenant;
+	}
+
+	public long getRequestCount(String operation) {
+		AtomicLong count = requestCounts.get(operation);
+
+		return count == null ? 0 : count.get();
+	}
+
+	public long getErrorCount() {
+		return errorCount.get();
+	}
+
+	public long getThrottleCount() {
+		return throttleCount.get();
+	}
+
+	@Override
+	public void handle(final HttpExchange exchange) throws IOException {
+		byte[] request = read(exchange.getRequestBody());
+		String path = exchange.getRequestURI().getPath();
+		String operation = path.substring(path.lastIndexOf('/') + 1);
+
+		count(operation);
+
+		Random random = ThreadLocalRandom.current();
+		final int status;
+		final byte[] body;
+
+		if (random.nextDouble() < configuration.getThrottleRate()) {
+			throttleCount.incrementAndGet();
+			status = 429;
+			body = THROTTLED_BODY;
+		} else if (random.nextDouble() < configuration.getErrorRate()) {
+			errorCount.incrementAndGet();
+			status = 500;
+			body = ERROR_BODY;
+		} else {
+			byte[] response = responses.get(operation);
+
+			if (response == null
+					&& "GetTenantEndpointDetails".equals(operation)) {
+				response = ("{\"d\":{\"applicationRootUrl\":\"http://127.0.0.1:"
+						+ server.getAddress().getPort()
+						+ "/"
+						+ configuration.getCompany() + "/\"}}")
+						.getBytes(StandardCharsets.UTF_8);
+			} else if (response == null) {
+				JsonNode requestNode = request.length == 0 ? objectMapper
+						.createObjectNode() : objectMapper.readTree(request);
+
+				response = tenant.handle(operation, requestNode);
+			}
+
+			status = response == null ? 404 : 200;
+			body = response == null ? NOT_FOUND_BODY : response;
+		}
+
+		long delay = configuration.getLatency().nextNanos(random);
+
+		if (delay <= 0) {
+			send(exchange, status, body);
+		} else {
+			scheduler.schedule(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						send(exchange, status, body);
+					} catch (IOException e) {
+						exchange.close();
+					}
+				}
+			}, delay, TimeUnit.NANOSECONDS);
+		}
+	}
+
+	protected void count(String operation) {
+		AtomicLong count = requestCounts.get(operation);
+
+		if (count == null) {
+			AtomicLong newCount = new AtomicLong();
+
+			count = requestCounts.putIfAbsent(operation, newCount);
+			if (count == null) {
+				count = newCount;
+			}
+		}
+
+		count.incrementAndGet();
+	}
+
+	protected void send(HttpExchange exchange, int status, byte[] body)
+			throws IOException {
+		exchange.getResponseHeaders().set("Content-Type",
+				"application/json; charset=utf-8");
+		if (status == 429) {
+			exchange.getResponseHeaders().set("Retry-After", "1");
+		}
+		exchange.sendResponseHeaders(status, body.length);
+
+		OutputStream responseBody = exchange.getResponseBody();
+
+		responseBody.write(body);
+		responseBody.close();
+	}
+
+	protected byte[] read(InputStream inputStream) throws IOException {
+		ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+		byte[] buffer = new byte[4096];
+		int read;
+
+		while ((read = inputStream.read(buffer)) != -1) {
+			outputStream.write(buffer, 0, read);
+		}
+
+		return outputStream.toByteArray();
+	}
+}
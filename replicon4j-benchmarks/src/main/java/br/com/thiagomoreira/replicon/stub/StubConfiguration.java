@@ -0,0 +1,42 @@
+/**
+ * Copyright (C) 2014 Thiago Moreira (tmoreira2020@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package br.com.thiagomoreira.replicon.stub;
+
+import lombok.Data;
+
+@Data
+public class StubConfiguration {
+
+	protected String company = "company";
+	protected long seed = 42;
+
+	// tenant size
+	protected int users = 1000;
+	protected int directReports = 8;
+	protected int departments = 20;
+	protected int clients = 50;
+	protected int projects = 200;
+	protected int projectAllocationsPerResource = 10;
+	protected int taskAllocationsPerProject = 5;
+	protected int timeOffPerUser = 4;
+
+	// fault injection
+	protected LatencyDistribution latency = LatencyDistribution.none();
+	protected double errorRate;
+	protected double throttleRate;
+	protected int threads = 200;
+
+}
@@ -0,0 +1,340 @@
+/**
+ * Copyright (C) 2014 Thiago Moreira (tmoreira2020@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package br.com.thiagomoreira.replicon.stub;
+
+import java.time.LocalDate;
+import java.util.Random;
+
+import br.com.thiagomoreira.replicon.model.Client;
+import br.com.thiagomoreira.replicon.model.Date;
+import br.com.thiagomoreira.replicon.model.DateDetails;
+import br.com.thiagomoreira.replicon.model.DateRange;
+import br.com.thiagomoreira.replicon.model.Department;
+import br.com.thiagomoreira.replicon.model.Duration;
+import br.com.thiagomoreira.replicon.model.ListCell;
+import br.com.thiagomoreira.replicon.model.ListData;
+import br.com.thiagomoreira.replicon.model.ListRow;
+import br.com.thiagomoreira.replicon.model.Project;
+import br.com.thiagomoreira.replicon.model.ProjectAllocation;
+import br.com.thiagomoreira.replicon.model.Resource;
+import br.com.thiagomoreira.replicon.model.Response;
+import br.com.thiagomoreira.replicon.model.Status;
+import br.com.thiagomoreira.replicon.model.Task;
+import br.com.thiagomoreira.replicon.model.TaskAllocation;
+import br.com.thiagomoreira.replicon.model.TimeOffAllocation;
+import br.com.thiagomoreira.replicon.model.User;
+import br.com.thiagomoreira.replicon.model.UserListColumn;
+import br.com.thiagomoreira.replicon.model.operations.GetResourceAllocationSummaryResponse;
+import br.com.thiagomoreira.replicon.model.operations.GetResourceTaskAllocationDetailsResponse;
+
+/**
+ * Deterministic generator of model objects shaped like the ones Replicon
+ * returns, used to scale the bundled fixtures up to realistic tenant sizes.
+ */
+public class SyntheticData {
+
+	protected static final LocalDate BASE_DATE = LocalDate.of(2014, 1, 1);
+	protected static final String[] STATUSES = {Status.TENTATIVE,
+			Status.INPROGRESS, Status.COMPLETED, Status.DEFERRED};
+
+	protected final String company;
+	protected final Random random;
+
+	public SyntheticData(String company, long seed) {
+		this.company = company;
+		this.random = new Random(seed);
+	}
+
+	public String uri(String type, int id) {
+		return "urn:replicon-tenant:" + company + ":" + type + ":" + id;
+	}
+
+	public User user(int id) {
+		User user = new User();
+
+		user.setLoginName("user." + id);
+		user.setUri(uri("user", id));
+
+		return user;
+	}
+
+	public User[] users(int count) {
+		User[] users = new User[count];
+
+		for (int i = 0; i < count; i++) {
+			users[i] = user(i);
+		}
+
+		return users;
+	}
+
+	/**
+	 * @return the rows of users <code>first</code> to
+	 *         <code>first + count - 1</code> of a <code>UserListService1</code>
+	 *         listing, with the cells of the given columns
+	 */
+	public ListData userList(int first, int count, String[] columnUris,
+			int departments, int directReports) {
+
+		ListRow[] rows = new ListRow[Math.max(0, count)];
+
+		for (int i = 0; i < rows.length; i++) {
+			int id = first + i;
+			ListCell[] cells = new ListCell[columnUris.length];
+
+			for (int j = 0; j < cells.length; j++) {
+				cells[j] = userCell(id, columnUris[j], departments,
+						directReports);
+			}
+
+			rows[i] = new ListRow();
+			rows[i].setCells(cells);
+		}
+
+		ListData data = new ListData();
+
+		data.setRows(rows);
+
+		return data;
+	}
+
+	protected ListCell userCell(int id, String columnUri, int departments,
+			int directReports) {
+
+		ListCell cell = new ListCell();
+
+		if (UserListColumn.USER.equals(columnUri)) {
+			cell.setTextValue("Lastname " + id + ", Firstname");
+			cell.setUri(uri("user", id));
+		} else if (UserListColumn.LOGIN_NAME.equals(columnUri)) {
+			cell.setTextValue("user." + id);
+		} else if (UserListColumn.FIRST_NAME.equals(columnUri)) {
+			cell.setTextValue("Firstname");
+		} else if (UserListColumn.LAST_NAME.equals(columnUri)) {
+			cell.setTextValue("Lastname " + id);
+		} else if (UserListColumn.EMAIL_ADDRESS.equals(columnUri)) {
+			cell.setTextValue("user." + id + "@" + company + ".com");
+		} else if (UserListColumn.EMPLOYEE_ID.equals(columnUri)) {
+			cell.setTextValue(String.valueOf(100000 + id));
+		} else if (UserListColumn.DEPARTMENT.equals(columnUri)) {
+			int departmentId = id % Math.max(1, departments);
+
+			cell.setTextValue("Department " + departmentId);
+			cell.setUri(uri("department", departmentId));
+		} else if (UserListColumn.SUPERVISOR.equals(columnUri) && id > 0) {
+			int supervisorId = (id - 1) / Math.max(1, directReports);
+
+			cell.setTextValue("Lastname " + supervisorId + ", Firstname");
+			cell.setUri(uri("user", supervisorId));
+		} else if (UserListColumn.ENABLED.equals(columnUri)) {
+			cell.setBoolValue(Boolean.TRUE);
+		}
+
+		return cell;
+	}
+
+	public Resource resource(int id, int departments) {
+		Department department = new Department();
+		int departmentId = id % Math.max(1, departments);
+
+		department.setDisplayText("Department " + departmentId);
+		department.setName("Department " + departmentId);
+		department.setUri(uri("department", departmentId));
+
+		Resource resource = new Resource();
+
+		resource.setDepartment(department);
+		resource.setDisplayText("Lastname " + id + ", Firstname");
+		resource.setEmail("user." + id + "@" + company + ".com");
+		resource.setSlug("user-" + id);
+		resource.setUser(user(id));
+		resource.setUri(uri("user", id));
+
+		return resource;
+	}
+
+	public Project project(int id, int clients) {
+		Client client = new Client();
+		int clientId = id % Math.max(1, clients);
+
+		client.setDisplayText("Client " + clientId);
+		client.setName("Client " + clientId);
+		client.setUri(uri("client", clientId));
+
+		Status status = new Status();
+		String statusName = STATUSES[id % STATUSES.length];
+
+		status.setDisplayText(statusName);
+		status.setName(statusName);
+		status.setUri("urn:replicon:project-status:"
+				+ statusName.toLowerCase().replace(' ', '-'));
+
+		Project project = new Project();
+
+		project.setClient(client);
+		project.setDisplayText("Project " + id);
+		project.setName("Project " + id);
+		project.setStatus(status);
+		project.setUri(uri("project", id));
+
+		return project;
+	}
+
+	public Task task(int id) {
+		Task task = new Task();
+
+		task.setDisplayText("Task " + id);
+		task.setName("Task " + id);
+		task.setUri(uri("task", id));
+		task.setTimeEntryDateRange(dateRange(random.nextInt(365), 30));
+
+		return task;
+	}
+
+	public ProjectAllocation[] projectAllocations(int count, int resourceId,
+			int projects) {
+		ProjectAllocation[] allocations = new ProjectAllocation[count];
+
+		for (int i = 0; i < count; i++) {
+			ProjectAllocation allocation = new ProjectAllocation();
+			int days = 1 + random.nextInt(20);
+
+			allocation.setAllocatedDaysCount(days);
+			allocation.setAllocationDateRange(dateRange(random.nextInt(365),
+					days));
+			allocation.setProject(project(
+					random.nextInt(Math.max(1, projects)), 10));
+			allocation.setResource(resource(resourceId, 10));
+			allocation.setTotalProjectsDuration(duration(days * 8));
+
+			allocations[i] = allocation;
+		}
+
+		return allocations;
+	}
+
+	public TaskAllocation[] taskAllocations(int count) {
+		TaskAllocation[] allocations = new TaskAllocation[count];
+
+		for (int i = 0; i < count; i++) {
+			TaskAllocation allocation = new TaskAllocation();
+
+			allocation.setAllocationDateRange(dateRange(random.nextInt(365),
+					1 + random.nextInt(10)));
+			allocation.setTask(task(i));
+
+			allocations[i] = allocation;
+		}
+
+		return allocations;
+	}
+
+	public TimeOffAllocation[] timeOff(int count, int ownerId) {
+		TimeOffAllocation[] allocations = new TimeOffAllocation[count];
+
+		for (int i = 0; i < count; i++) {
+			TimeOffAllocation allocation = new TimeOffAllocation();
+			int start = random.nextInt(365);
+			int days = 1 + random.nextInt(5);
+
+			allocation.setApprovalStatus(status("Approved"));
+			allocation.setStartDateDetails(dateDetails(start));
+			allocation.setEndDateDetails(dateDetails(start + days - 1));
+			allocation.setOwner(user(ownerId));
+			allocation.setTimeOffStatus(status("Booked"));
+			allocation.setTotalDuration(duration(days * 8));
+			allocation.setUri(uri("time-off", ownerId * 1000 + i));
+
+			allocations[i] = allocation;
+		}
+
+		return allocations;
+	}
+
+	public GetResourceAllocationSummaryResponse allocationSummary(int count,
+			int resourceId, int projects) {
+		GetResourceAllocationSummaryResponse summary = new GetResourceAllocationSummaryResponse();
+
+		summary.setAllocationSummaryDateRange(dateRange(0, 365));
+		summary.setProjectsAllocatedTo(projectAllocations(count, resourceId,
+				projects));
+
+		return summary;
+	}
+
+	public GetResourceTaskAllocationDetailsResponse taskAllocationDetails(
+			int count) {
+		GetResourceTaskAllocationDetailsResponse details = new GetResourceTaskAllocationDetailsResponse();
+
+		details.setEntries(taskAllocations(count));
+
+		return details;
+	}
+
+	public static <T> Response<T> response(T d) {
+		Response<T> response = new Response<T>();
+
+		response.setD(d);
+
+		return response;
+	}
+
+	protected Date date(int dayOffset) {
+		LocalDate localDate = BASE_DATE.plusDays(dayOffset);
+		Date date = new Date();
+
+		date.setDay(localDate.getDayOfMonth());
+		date.setMonth(localDate.getMonthValue());
+		date.setYear(localDate.getYear());
+
+		return date;
+	}
+
+	protected DateDetails dateDetails(int dayOffset) {
+		DateDetails details = new DateDetails();
+
+		details.setDate(date(dayOffset));
+
+		return details;
+	}
+
+	protected DateRange dateRange(int dayOffset, int days) {
+		DateRange dateRange = new DateRange();
+
+		dateRange.setStartDate(date(dayOffset));
+		dateRange.setEndDate(date(dayOffset + days - 1));
+
+		return dateRange;
+	}
+
+	protected Duration duration(int hours) {
+		Duration duration = new Duration();
+
+		duration.setHours(hours);
+
+		return duration;
+	}
+
+	protected Status status(String name) {
+		Status status = new Status();
+
+		status.setDisplayText(name);
+		status.setName(name);
+		status.setUri("urn:replicon:status:" + name.toLowerCase());
+
+		return status;
+	}
+}
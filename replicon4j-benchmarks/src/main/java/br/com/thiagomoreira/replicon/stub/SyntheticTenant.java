@@ -0,0 +1,180 @@
+/**
+ * Copyright (C) 2014 Thiago Moreira (tmoreira2020@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package br.com.thiagomoreira.replicon.stub;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import br.com.thiagomoreira.replicon.model.User;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Tenant whose entities are derived from their ids, so any amount of users,
+ * resources and allocations can be served without storing them upfront.
+ * Serialized responses are memoized per operation and entity.
+ */
+public class SyntheticTenant {
+
+	protected final StubConfiguration configuration;
+	protected final ObjectMapper objectMapper = new ObjectMapper();
+	protected final Map<String, byte[]> bodies = new ConcurrentHashMap<String, byte[]>();
+
+	public SyntheticTenant(StubConfiguration configuration) {
+		this.configuration = configuration;
+	}
+
+	public StubConfiguration getConfiguration() {
+		return configuration;
+	}
+
+	/**
+	 * @return the response body or <code>null</code> when the operation is
+	 *         unknown or the requested entity does not exist
+	 */
+	public byte[] handle(String operation, JsonNode request) throws IOException {
+		if ("GetAllUsers".equals(operation)) {
+			return body(operation, 0);
+		} else if ("GetData".equals(operation)) {
+			return userList(request);
+		}
+
+		int id;
+
+		if ("GetUser2".equals(operation)) {
+			String loginName = request.path("loginName").asText();
+
+			id = parseId(loginName.substring(loginName.lastIndexOf('.') + 1));
+		} else if ("GetDirectReportsForUser".equals(operation)
+				|| "GetTimeOffDetailsForUserAndDateRange".equals(operation)) {
+			id = parseUriId(request.path("userUri").asText());
+		} else if ("GetResourceDetails".equals(operation)
+				|| "GetResourceAllocationSummary".equals(operation)
+				|| "GetResourceTaskAllocationDetails".equals(operation)) {
+			id = parseUriId(request.path("resourceUri").asText());
+		} else if ("GetProjectDetails".equals(operation)) {
+			id = parseUriId(request.path("projectUri").asText());
+			if (id >= configuration.getProjects()) {
+				return null;
+			}
+		} else if ("GetTaskDetails".equals(operation)) {
+			id = parseUriId(request.path("taskUri").asText());
+		} else {
+			return null;
+		}
+
+		if (id < 0 || id >= configuration.getUsers()
+				&& !"GetTaskDetails".equals(operation)
+				&& !"GetProjectDetails".equals(operation)) {
+			return null;
+		}
+
+		return body(operation, id);
+	}
+
+	protected byte[] body(String operation, int id) throws IOException {
+		String key = operation + ':' + id;
+		byte[] body = bodies.get(key);
+
+		if (body == null) {
+			body = objectMapper.writeValueAsBytes(SyntheticData
+					.response(generate(operation, id)));
+			bodies.put(key, body);
+		}
+
+		return body;
+	}
+
+	protected Object generate(String operation, int id) {
+		SyntheticData data = new SyntheticData(configuration.getCompany(),
+				configuration.getSeed() * 31 + id);
+
+		if ("GetAllUsers".equals(operation)) {
+			return data.users(configuration.getUsers());
+		} else if ("GetUser2".equals(operation)) {
+			return data.user(id);
+		} else if ("GetDirectReportsForUser".equals(operation)) {
+			return directReports(data, id);
+		} else if ("GetTimeOffDetailsForUserAndDateRange".equals(operation)) {
+			return data.timeOff(configuration.getTimeOffPerUser(), id);
+		} else if ("GetResourceDetails".equals(operation)) {
+			return data.resource(id, configuration.getDepartments());
+		} else if ("GetResourceAllocationSummary".equals(operation)) {
+			return data.allocationSummary(
+					configuration.getProjectAllocationsPerResource(), id,
+					configuration.getProjects());
+		} else if ("GetResourceTaskAllocationDetails".equals(operation)) {
+			return data.taskAllocationDetails(configuration
+					.getTaskAllocationsPerProject());
+		} else if ("GetProjectDetails".equals(operation)) {
+			return data.project(id, configuration.getClients());
+		} else {
+			return data.task(id);
+		}
+	}
+
+	protected byte[] userList(JsonNode request) throws IOException {
+		int page = request.path("page").asInt();
+		int pageSize = request.path("pagesize").asInt();
+		JsonNode columns = request.path("columnUris");
+		String[] columnUris = new String[columns.size()];
+
+		for (int i = 0; i < columnUris.length; i++) {
+			columnUris[i] = columns.get(i).asText();
+		}
+
+		if (page < 1 || pageSize < 1) {
+			return null;
+		}
+
+		int first = (page - 1) * pageSize;
+		int count = Math.min(pageSize, configuration.getUsers() - first);
+		SyntheticData data = new SyntheticData(configuration.getCompany(),
+				configuration.getSeed());
+
+		return objectMapper.writeValueAsBytes(SyntheticData.response(data
+				.userList(first, count, columnUris,
+						configuration.getDepartments(),
+						configuration.getDirectReports())));
+	}
+
+	protected User[] directReports(SyntheticData data, int id) {
+		int first = id * configuration.getDirectReports() + 1;
+		int last = Math.min(first + configuration.getDirectReports(),
+				configuration.getUsers());
+		User[] users = new User[Math.max(0, last - first)];
+
+		for (int i = 0; i < users.length; i++) {
+			users[i] = data.user(first + i);
+		}
+
+		return users;
+	}
+
+	protected int parseUriId(String uri) {
+		return parseId(uri.substring(uri.lastIndexOf(':') + 1));
+	}
+
+	protected int parseId(String value) {
+		try {
+			return Integer.parseInt(value);
+		} catch (NumberFormatException e) {
+			return -1;
+		}
+	}
+}
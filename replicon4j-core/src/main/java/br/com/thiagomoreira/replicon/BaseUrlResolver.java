@@ -0,0 +1,29 @@
+/**
+ * Copyright (C) 2014 Thiago Moreira (tmoreira2020@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package br.com.thiagomoreira.replicon;
+
+import java.io.IOException;
+
+/**
+ * Finds the services root URL of a company, e.g.
+ * <code>https://na2.replicon.com/company/services</code>. Results are cached
+ * per company by the {@link RepliconRuntime}.
+ */
+public interface BaseUrlResolver {
+
+	String resolve(String company) throws IOException;
+
+}
@@ -0,0 +1,80 @@
+/**
+ * Copyright (C) 2014 Thiago Moreira (tmoreira2020@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package br.com.thiagomoreira.replicon;
+
+import java.io.IOException;
+
+import br.com.thiagomoreira.replicon.model.Response;
+import br.com.thiagomoreira.replicon.model.TenantEndpointDetails;
+import br.com.thiagomoreira.replicon.model.TenantTarget;
+import br.com.thiagomoreira.replicon.model.operations.GetTenantEndpointDetailsRequest;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+
+/**
+ * Asks Replicon's global discovery service which datacenter hosts the company,
+ * so each tenant is called in its own region.
+ */
+public class DiscoveryBaseUrlResolver implements BaseUrlResolver {
+
+	public static final String DEFAULT_DISCOVERY_URL = "https://global.replicon.com/DiscoveryService1.svc/GetTenantEndpointDetails";
+
+	protected final RepliconRuntime runtime;
+	protected final String discoveryUrl;
+
+	public DiscoveryBaseUrlResolver(RepliconRuntime runtime) {
+		this(runtime, DEFAULT_DISCOVERY_URL);
+	}
+
+	public DiscoveryBaseUrlResolver(RepliconRuntime runtime, String discoveryUrl) {
+		this.runtime = runtime;
+		this.discoveryUrl = discoveryUrl;
+	}
+
+	@Override
+	public String resolve(String company) throws IOException {
+		TenantTarget tenant = new TenantTarget();
+
+		tenant.setCompanyKey(company);
+
+		GetTenantEndpointDetailsRequest request = new GetTenantEndpointDetailsRequest();
+
+		request.setTenant(tenant);
+
+		TenantEndpointDetails details;
+
+		try {
+			details = runtime.post(discoveryUrl, null, request,
+					new TypeReference<Response<TenantEndpointDetails>>() {
+					});
+		} catch (RepliconException e) {
+			throw new IOException("Unable to discover the endpoint of "
+					+ company, e);
+		}
+
+		if (details == null || details.getApplicationRootUrl() == null) {
+			throw new IOException("Unknown company " + company);
+		}
+
+		String applicationRootUrl = details.getApplicationRootUrl();
+
+		if (!applicationRootUrl.endsWith("/")) {
+			applicationRootUrl += "/";
+		}
+
+		return applicationRootUrl + "services";
+	}
+}
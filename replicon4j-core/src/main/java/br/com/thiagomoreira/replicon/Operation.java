@@ -0,0 +1,215 @@
+/**
+ * Copyright (C) 2014 Thiago Moreira (tmoreira2020@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package br.com.thiagomoreira.replicon;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import br.com.thiagomoreira.replicon.model.ListData;
+import br.com.thiagomoreira.replicon.model.Project;
+import br.com.thiagomoreira.replicon.model.Resource;
+import br.com.thiagomoreira.replicon.model.Response;
+import br.com.thiagomoreira.replicon.model.Target;
+import br.com.thiagomoreira.replicon.model.Task;
+import br.com.thiagomoreira.replicon.model.TimeOffAllocation;
+import br.com.thiagomoreira.replicon.model.User;
+import br.com.thiagomoreira.replicon.model.operations.BulkPutTimeEntryRequest;
+import br.com.thiagomoreira.replicon.model.operations.CreateAccessTokenRequest;
+import br.com.thiagomoreira.replicon.model.operations.CreateAccessTokenResponse;
+import br.com.thiagomoreira.replicon.model.operations.GetDirectReportsForUserRequest;
+import br.com.thiagomoreira.replicon.model.operations.GetProjectDetailsRequest;
+import br.com.thiagomoreira.replicon.model.operations.GetResourceAllocationSummaryRequest;
+import br.com.thiagomoreira.replicon.model.operations.GetResourceAllocationSummaryResponse;
+import br.com.thiagomoreira.replicon.model.operations.GetResourceDetailsRequest;
+import br.com.thiagomoreira.replicon.model.operations.GetResourceTaskAllocationDetailsRequest;
+import br.com.thiagomoreira.replicon.model.operations.GetResourceTaskAllocationDetailsResponse;
+import br.com.thiagomoreira.replicon.model.operations.GetTaskDetailsRequest;
+import br.com.thiagomoreira.replicon.model.operations.GetTimeOffDetailsForUserAndDateRangeRequest;
+import br.com.thiagomoreira.replicon.model.operations.GetTimesheetForDate2Request;
+import br.com.thiagomoreira.replicon.model.operations.GetTimesheetForDate2Response;
+import br.com.thiagomoreira.replicon.model.operations.GetUser2Request;
+import br.com.thiagomoreira.replicon.model.operations.GetUserListDataRequest;
+import br.com.thiagomoreira.replicon.model.operations.PutTimeEntryRequest;
+import br.com.thiagomoreira.replicon.model.operations.SubmitTimesheetRequest;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+
+/**
+ * A Replicon service operation: its path below the services URL and the types
+ * it's called and answered with.
+ */
+public class Operation<T> {
+
+	public static final Operation<CreateAccessTokenResponse> CREATE_ACCESS_TOKEN = new Operation<CreateAccessTokenResponse>(
+			"/AuthenticationService1.svc/CreateAccessToken",
+			CreateAccessTokenRequest.class,
+			new TypeReference<Response<CreateAccessTokenResponse>>() {
+			});
+
+	public static final Operation<Project> GET_PROJECT_DETAILS = new Operation<Project>(
+			"/ProjectService1.svc/GetProjectDetails",
+			GetProjectDetailsRequest.class,
+			new TypeReference<Response<Project>>() {
+			});
+
+	public static final Operation<GetResourceAllocationSummaryResponse> GET_RESOURCE_ALLOCATION_SUMMARY = new Operation<GetResourceAllocationSummaryResponse>(
+			"/ResourceService1.svc/GetResourceAllocationSummary",
+			GetResourceAllocationSummaryRequest.class,
+			new TypeReference<Response<GetResourceAllocationSummaryResponse>>() {
+			});
+
+	public static final Operation<Resource> GET_RESOURCE_DETAILS = new Operation<Resource>(
+			"/ResourceService1.svc/GetResourceDetails",
+			GetResourceDetailsRequest.class,
+			new TypeReference<Response<Resource>>() {
+			});
+
+	public static final Operation<GetResourceTaskAllocationDetailsResponse> GET_RESOURCE_TASK_ALLOCATION_DETAILS = new Operation<GetResourceTaskAllocationDetailsResponse>(
+			"/ResourceService1.svc/GetResourceTaskAllocationDetails",
+			GetResourceTaskAllocationDetailsRequest.class,
+			new TypeReference<Response<GetResourceTaskAllocationDetailsResponse>>() {
+			});
+
+	public static final Operation<Task> GET_TASK_DETAILS = new Operation<Task>(
+			"/TaskService1.svc/GetTaskDetails", GetTaskDetailsRequest.class,
+			new TypeReference<Response<Task>>() {
+			});
+
+	public static final Operation<TimeOffAllocation[]> GET_TIME_OFF_DETAILS_FOR_USER_AND_DATE_RANGE = new Operation<TimeOffAllocation[]>(
+			"/TimeOffService1.svc/GetTimeOffDetailsForUserAndDateRange",
+			GetTimeOffDetailsForUserAndDateRangeRequest.class,
+			new TypeReference<Response<TimeOffAllocation[]>>() {
+			});
+
+	public static final Operation<User[]> GET_ALL_USERS = new Operation<User[]>(
+			"/UserService1.svc/GetAllUsers", null,
+			new TypeReference<Response<User[]>>() {
+			}, Priority.BULK);
+
+	public static final Operation<User[]> GET_DIRECT_REPORTS_FOR_USER = new Operation<User[]>(
+			"/UserService1.svc/GetDirectReportsForUser",
+			GetDirectReportsForUserRequest.class,
+			new TypeReference<Response<User[]>>() {
+			});
+
+	public static final Operation<User> GET_USER2 = new Operation<User>(
+			"/UserService1.svc/GetUser2", GetUser2Request.class,
+			new TypeReference<Response<User>>() {
+			});
+
+	public static final Operation<ListData> GET_USER_LIST_DATA = new Operation<ListData>(
+			"/UserListService1.svc/GetData", GetUserListDataRequest.class,
+			new TypeReference<Response<ListData>>() {
+			}, Priority.BULK);
+
+	public static final Operation<Target> PUT_TIME_ENTRY = new Operation<Target>(
+			"/TimeEntryService2.svc/PutTimeEntry", PutTimeEntryRequest.class,
+			new TypeReference<Response<Target>>() {
+			});
+
+	public static final Operation<Target[]> BULK_PUT_TIME_ENTRY = new Operation<Target[]>(
+			"/TimeEntryService2.svc/BulkPutTimeEntry",
+			BulkPutTimeEntryRequest.class,
+			new TypeReference<Response<Target[]>>() {
+			}, Priority.BULK);
+
+	public static final Operation<GetTimesheetForDate2Response> GET_TIMESHEET_FOR_DATE2 = new Operation<GetTimesheetForDate2Response>(
+			"/TimesheetService1.svc/GetTimesheetForDate2",
+			GetTimesheetForDate2Request.class,
+			new TypeReference<Response<GetTimesheetForDate2Response>>() {
+			});
+
+	public static final Operation<Object> SUBMIT_TIMESHEET = new Operation<Object>(
+			"/TimesheetService1.svc/Submit", SubmitTimesheetRequest.class,
+			new TypeReference<Response<Object>>() {
+			});
+
+	protected static final List<Operation<?>> OPERATIONS = Collections
+			.unmodifiableList(Arrays.<Operation<?>> asList(CREATE_ACCESS_TOKEN,
+					GET_PROJECT_DETAILS, GET_RESOURCE_ALLOCATION_SUMMARY,
+					GET_RESOURCE_DETAILS, GET_RESOURCE_TASK_ALLOCATION_DETAILS,
+					GET_TASK_DETAILS,
+					GET_TIME_OFF_DETAILS_FOR_USER_AND_DATE_RANGE,
+					GET_ALL_USERS, GET_DIRECT_REPORTS_FOR_USER, GET_USER2,
+					GET_USER_LIST_DATA, PUT_TIME_ENTRY, BULK_PUT_TIME_ENTRY,
+					GET_TIMESHEET_FOR_DATE2, SUBMIT_TIMESHEET));
+
+	protected final String path;
+	protected final String name;
+	protected final Class<?> requestType;
+	protected final TypeReference<Response<T>> responseType;
+	protected final Priority priority;
+
+	public Operation(String path, Class<?> requestType,
+			TypeReference<Response<T>> responseType) {
+
+		this(path, requestType, responseType, Priority.INTERACTIVE);
+	}
+
+	public Operation(String path, Class<?> requestType,
+			TypeReference<Response<T>> responseType, Priority priority) {
+
+		this.path = path;
+		this.name = path.substring(path.lastIndexOf('/') + 1);
+		this.requestType = requestType;
+		this.responseType = responseType;
+		this.priority = priority;
+	}
+
+	/**
+	 * @return the operations called by {@link Replicon}
+	 */
+	public static List<Operation<?>> values() {
+		return OPERATIONS;
+	}
+
+	public String getPath() {
+		return path;
+	}
+
+	/**
+	 * @return the last segment of the path, e.g. <code>GetUser2</code>
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * @return the type of the request body, <code>null</code> if the operation
+	 *         takes no parameters
+	 */
+	public Class<?> getRequestType() {
+		return requestType;
+	}
+
+	public TypeReference<Response<T>> getResponseType() {
+		return responseType;
+	}
+
+	/**
+	 * @return the lane of the calls of the operation, unless the calling thread
+	 *         overrides it, see {@link Priority}
+	 */
+	public Priority getPriority() {
+		return priority;
+	}
+
+	@Override
+	public String toString() {
+		return path;
+	}
+}
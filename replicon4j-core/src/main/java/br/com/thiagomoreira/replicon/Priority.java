@@ -0,0 +1,138 @@
+/**
+ * Copyright (C) 2014 Thiago Moreira (tmoreira2020@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package br.com.thiagomoreira.replicon;
+
+import java.util.concurrent.Callable;
+
+/**
+ * Lane of a call in the {@link PriorityLanes} of a runtime. Each
+ * {@link Operation} has a default priority, which the current thread can
+ * override for the calls it makes:
+ * 
+ * <pre>
+ * Priority previous = Priority.override(Priority.BULK);
+ * 
+ * try {
+ * 	// export
+ * } finally {
+ * 	Priority.override(previous);
+ * }
+ * </pre>
+ * 
+ * Calls made by the runtime's workers on behalf of the thread, such as the
+ * pages of a user list or the calls of a
+ * {@link br.com.thiagomoreira.replicon.util.TaskScope}, carry its override, see
+ * {@link #propagate(Callable)}.
+ */
+public enum Priority {
+
+	/**
+	 * Latency-sensitive lookups, served first.
+	 */
+	INTERACTIVE,
+
+	/**
+	 * Throughput-oriented work such as exports and imports, never given the
+	 * permits reserved for interactive calls.
+	 */
+	BULK;
+
+	protected static final ThreadLocal<Priority> OVERRIDE = new ThreadLocal<Priority>();
+
+	/**
+	 * Sets the priority of the calls made by the current thread,
+	 * <code>null</code> restores the defaults of the operations.
+	 * 
+	 * @return the previous override, to restore afterwards
+	 */
+	public static Priority override(Priority priority) {
+		Priority previous = OVERRIDE.get();
+
+		if (priority == null) {
+			OVERRIDE.remove();
+		} else {
+			OVERRIDE.set(priority);
+		}
+
+		return previous;
+	}
+
+	/**
+	 * @return the override of the current thread, or else the given default
+	 */
+	public static Priority resolve(Priority defaultPriority) {
+		Priority priority = OVERRIDE.get();
+
+		return priority == null ? defaultPriority : priority;
+	}
+
+	/**
+	 * @return the override of the current thread, <code>null</code> if none
+	 */
+	public static Priority current() {
+		return OVERRIDE.get();
+	}
+
+	/**
+	 * @return the callable, running with the override of the current thread on
+	 *         whichever thread calls it
+	 */
+	public static <T> Callable<T> propagate(final Callable<T> callable) {
+		final Priority priority = OVERRIDE.get();
+
+		if (priority == null) {
+			return callable;
+		}
+
+		return new Callable<T>() {
+			@Override
+			public T call() throws Exception {
+				Priority previous = override(priority);
+
+				try {
+					return callable.call();
+				} finally {
+					override(previous);
+				}
+			}
+		};
+	}
+
+	/**
+	 * @return the runnable, running with the override of the current thread on
+	 *         whichever thread runs it
+	 */
+	public static Runnable propagate(final Runnable runnable) {
+		final Priority priority = OVERRIDE.get();
+
+		if (priority == null) {
+			return runnable;
+		}
+
+		return new Runnable() {
+			@Override
+			public void run() {
+				Priority previous = override(priority);
+
+				try {
+					runnable.run();
+				} finally {
+					override(previous);
+				}
+			}
+		};
+	}
+}
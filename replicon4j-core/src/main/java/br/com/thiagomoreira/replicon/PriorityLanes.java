@@ -0,0 +1,225 @@
+/**
+ * Copyright (C) 2014 Thiago Moreira (tmoreira2020@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package br.com.thiagomoreira.replicon;
+
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.locks.LockSupport;
+
+import br.com.thiagomoreira.replicon.metrics.LaneMetrics;
+
+/**
+ * Shares a budget of concurrent calls, usually the size of the connection pool,
+ * between the {@link Priority} lanes: a call runs right away while permits are
+ * free, otherwise it queues in its lane.
+ * 
+ * Bulk calls never hold more than <code>permits - reserved</code> permits, so
+ * interactive calls always find headroom. When a permit frees up and several
+ * lanes are waiting, lanes are served by weighted fair (stride) scheduling:
+ * with the default weights, 4 interactive calls for each bulk one.
+ */
+public class PriorityLanes {
+
+	protected static final long STRIDE = 1 << 20;
+
+	protected final int permits;
+	protected final int reserved;
+	protected final Map<Priority, Lane> lanes = new EnumMap<Priority, Lane>(
+			Priority.class);
+	protected int active;
+	protected long virtualTime;
+
+	public PriorityLanes() {
+		this(8, 2);
+	}
+
+	/**
+	 * @param permits
+	 *            calls running at the same time, across lanes
+	 * @param reserved
+	 *            permits bulk calls can't use
+	 */
+	public PriorityLanes(int permits, int reserved) {
+		if (permits < 1 || reserved < 0 || reserved >= permits) {
+			throw new IllegalArgumentException(
+					"permits must be positive and reserved below permits");
+		}
+
+		this.permits = permits;
+		this.reserved = reserved;
+
+		lanes.put(Priority.INTERACTIVE, new Lane(permits, 4));
+		lanes.put(Priority.BULK, new Lane(permits - reserved, 1));
+	}
+
+	/**
+	 * Sets the share of the permits a lane gets while several are waiting.
+	 */
+	public synchronized void setWeight(Priority priority, int weight) {
+		if (weight < 1) {
+			throw new IllegalArgumentException("weight must be positive");
+		}
+
+		lanes.get(priority).weight = weight;
+	}
+
+	/**
+	 * Takes a permit in the lane, waiting for one if none is free or the lane
+	 * has calls queued already.
+	 */
+	public void acquire(Priority priority) throws InterruptedIOException {
+		Lane lane = lanes.get(priority);
+		Waiter waiter;
+
+		synchronized (this) {
+			if (lane.waiters.isEmpty() && canStart(lane)) {
+				start(lane);
+				lane.metrics.started(0);
+
+				return;
+			}
+
+			if (lane.waiters.isEmpty()) {
+				// a lane that was idle gets no credit for the time it idled
+				lane.pass = Math.max(lane.pass, virtualTime);
+			}
+
+			waiter = new Waiter(Thread.currentThread());
+			lane.waiters.add(waiter);
+			lane.metrics.enqueued();
+		}
+
+		long queuedAt = System.nanoTime();
+
+		while (!waiter.granted) {
+			LockSupport.park(this);
+
+			if (Thread.interrupted()) {
+				synchronized (this) {
+					if (!waiter.granted) {
+						lane.waiters.remove(waiter);
+						lane.metrics.dequeued();
+
+						throw new InterruptedIOException(
+								"Interrupted waiting for a permit");
+					}
+				}
+
+				// granted meanwhile, keep the permit and the interrupt
+				Thread.currentThread().interrupt();
+			}
+		}
+
+		lane.metrics.started(Math.max(1, System.nanoTime() - queuedAt));
+	}
+
+	/**
+	 * Returns a permit taken with {@link #acquire(Priority)} and hands it to
+	 * the next waiting call.
+	 */
+	public void release(Priority priority) {
+		Lane lane = lanes.get(priority);
+
+		lane.metrics.finished();
+
+		synchronized (this) {
+			active--;
+			lane.active--;
+
+			dispatch();
+		}
+	}
+
+	public LaneMetrics getMetrics(Priority priority) {
+		return lanes.get(priority).metrics;
+	}
+
+	public int getPermits() {
+		return permits;
+	}
+
+	public int getReserved() {
+		return reserved;
+	}
+
+	protected boolean canStart(Lane lane) {
+		return active < permits && lane.active < lane.limit;
+	}
+
+	protected void start(Lane lane) {
+		active++;
+		lane.active++;
+	}
+
+	/**
+	 * Grants free permits to the waiting lane with the lowest pass, advancing
+	 * its pass by its stride.
+	 */
+	protected void dispatch() {
+		while (active < permits) {
+			Lane next = null;
+
+			for (Lane lane : lanes.values()) {
+				if (!lane.waiters.isEmpty() && canStart(lane)
+						&& (next == null || lane.pass < next.pass)) {
+
+					next = lane;
+				}
+			}
+
+			if (next == null) {
+				return;
+			}
+
+			virtualTime = next.pass;
+			next.pass += STRIDE / next.weight;
+
+			Waiter waiter = next.waiters.poll();
+
+			next.metrics.dequeued();
+			start(next);
+			waiter.granted = true;
+			LockSupport.unpark(waiter.thread);
+		}
+	}
+
+	protected static class Lane {
+
+		protected final int limit;
+		protected final ArrayDeque<Waiter> waiters = new ArrayDeque<Waiter>();
+		protected final LaneMetrics metrics = new LaneMetrics();
+		protected int weight;
+		protected int active;
+		protected long pass;
+
+		protected Lane(int limit, int weight) {
+			this.limit = limit;
+			this.weight = weight;
+		}
+	}
+
+	protected static class Waiter {
+
+		protected final Thread thread;
+		protected volatile boolean granted;
+
+		protected Waiter(Thread thread) {
+			this.thread = thread;
+		}
+	}
+}
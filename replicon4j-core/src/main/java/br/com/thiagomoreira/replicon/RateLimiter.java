@@ -0,0 +1,135 @@
+/**
+ * Copyright (C) 2014 Thiago Moreira (tmoreira2020@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package br.com.thiagomoreira.replicon;
+
+import java.io.InterruptedIOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Token bucket shared by every call of a runtime: <code>permitsPerSecond</code>
+ * tokens are added each second, up to <code>burst</code> of them, and each call
+ * takes one.
+ * 
+ * Background work should not queue behind readers for the budget, it takes a
+ * permit with {@link #tryPrepay()} when one is spare and the next
+ * {@link #acquire()} of the same thread consumes it instead of a new one.
+ */
+public class RateLimiter {
+
+	protected final double permitsPerNano;
+	protected final double burst;
+	protected final ThreadLocal<Boolean> prepaid = new ThreadLocal<Boolean>();
+	protected double permits;
+	protected long refilledAt = System.nanoTime();
+
+	public RateLimiter(double permitsPerSecond, int burst) {
+		if (permitsPerSecond <= 0 || burst < 1) {
+			throw new IllegalArgumentException(
+					"permitsPerSecond and burst must be positive");
+		}
+
+		this.permitsPerNano = permitsPerSecond / TimeUnit.SECONDS.toNanos(1);
+		this.burst = burst;
+		this.permits = burst;
+	}
+
+	/**
+	 * Takes a permit, waiting for one to be available.
+	 */
+	public void acquire() throws InterruptedIOException {
+		if (prepaid.get() != null) {
+			prepaid.remove();
+
+			return;
+		}
+
+		long wait;
+
+		while ((wait = reserve()) > 0) {
+			LockSupport.parkNanos(this, wait);
+
+			if (Thread.interrupted()) {
+				throw new InterruptedIOException(
+						"Interrupted waiting for a permit");
+			}
+		}
+	}
+
+	/**
+	 * Takes a permit only if one is available right now.
+	 */
+	public synchronized boolean tryAcquire() {
+		refill();
+
+		if (permits < 1) {
+			return false;
+		}
+
+		permits--;
+
+		return true;
+	}
+
+	/**
+	 * Takes a spare permit, if any, on behalf of the next {@link #acquire()} of
+	 * the current thread. Pair it with {@link #clearPrepayment()} in a finally
+	 * block.
+	 */
+	public boolean tryPrepay() {
+		if (!tryAcquire()) {
+			return false;
+		}
+
+		prepaid.set(Boolean.TRUE);
+
+		return true;
+	}
+
+	public void clearPrepayment() {
+		prepaid.remove();
+	}
+
+	public synchronized double getAvailablePermits() {
+		refill();
+
+		return permits;
+	}
+
+	/**
+	 * @return 0 when a permit was taken, otherwise the nanos until one is
+	 *         available
+	 */
+	protected synchronized long reserve() {
+		refill();
+
+		if (permits >= 1) {
+			permits--;
+
+			return 0;
+		}
+
+		return Math.max(1, (long) ((1 - permits) / permitsPerNano));
+	}
+
+	protected void refill() {
+		long now = System.nanoTime();
+
+		permits = Math
+				.min(burst, permits + (now - refilledAt) * permitsPerNano);
+		refilledAt = now;
+	}
+}
@@ -0,0 +1,601 @@
+/**
+ * Copyright (C) 2014 Thiago Moreira (tmoreira2020@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package br.com.thiagomoreira.replicon;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
+
+import br.com.thiagomoreira.replicon.auth.AccessToken;
+import br.com.thiagomoreira.replicon.auth.Authentication;
+import br.com.thiagomoreira.replicon.auth.BasicAuthentication;
+import br.com.thiagomoreira.replicon.events.ChangeTracker;
+import br.com.thiagomoreira.replicon.loader.ReferenceLoader;
+import br.com.thiagomoreira.replicon.metrics.RepliconMetrics;
+import br.com.thiagomoreira.replicon.metrics.ResourceSampler;
+import br.com.thiagomoreira.replicon.model.DateRange;
+import br.com.thiagomoreira.replicon.model.Duration;
+import br.com.thiagomoreira.replicon.model.ListData;
+import br.com.thiagomoreira.replicon.model.ListRow;
+import br.com.thiagomoreira.replicon.model.Project;
+import br.com.thiagomoreira.replicon.model.ProjectAllocation;
+import br.com.thiagomoreira.replicon.model.Resource;
+import br.com.thiagomoreira.replicon.model.Response;
+import br.com.thiagomoreira.replicon.model.Target;
+import br.com.thiagomoreira.replicon.model.Task;
+import br.com.thiagomoreira.replicon.model.TaskAllocation;
+import br.com.thiagomoreira.replicon.model.TimeEntry;
+import br.com.thiagomoreira.replicon.model.TimeOffAllocation;
+import br.com.thiagomoreira.replicon.model.Timesheet;
+import br.com.thiagomoreira.replicon.model.User;
+import br.com.thiagomoreira.replicon.model.UserListColumn;
+import br.com.thiagomoreira.replicon.model.operations.BulkPutTimeEntryRequest;
+import br.com.thiagomoreira.replicon.model.operations.CreateAccessTokenRequest;
+import br.com.thiagomoreira.replicon.model.operations.CreateAccessTokenResponse;
+import br.com.thiagomoreira.replicon.model.operations.GetDirectReportsForUserRequest;
+import br.com.thiagomoreira.replicon.model.operations.GetProjectDetailsRequest;
+import br.com.thiagomoreira.replicon.model.operations.GetResourceAllocationSummaryRequest;
+import br.com.thiagomoreira.replicon.model.operations.GetResourceAllocationSummaryResponse;
+import br.com.thiagomoreira.replicon.model.operations.GetResourceDetailsRequest;
+import br.com.thiagomoreira.replicon.model.operations.GetResourceTaskAllocationDetailsRequest;
+import br.com.thiagomoreira.replicon.model.operations.GetResourceTaskAllocationDetailsResponse;
+import br.com.thiagomoreira.replicon.model.operations.GetTaskDetailsRequest;
+import br.com.thiagomoreira.replicon.model.operations.GetTimeOffDetailsForUserAndDateRangeRequest;
+import br.com.thiagomoreira.replicon.model.operations.GetTimesheetForDate2Request;
+import br.com.thiagomoreira.replicon.model.operations.GetUser2Request;
+import br.com.thiagomoreira.replicon.model.operations.GetUserListDataRequest;
+import br.com.thiagomoreira.replicon.model.operations.PutTimeEntryRequest;
+import br.com.thiagomoreira.replicon.model.operations.SubmitTimesheetRequest;
+import br.com.thiagomoreira.replicon.paging.PageFetcher;
+import br.com.thiagomoreira.replicon.paging.PagedIterator;
+import br.com.thiagomoreira.replicon.util.DateUtil;
+import br.com.thiagomoreira.replicon.util.TaskScope;
+import br.com.thiagomoreira.replicon.view.ResourceView;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+public class Replicon {
+
+	protected RepliconRuntime runtime;
+	protected ObjectMapper objectMapper;
+	protected String company;
+	protected Authentication authentication;
+	protected volatile ReferenceLoader referenceLoader;
+
+	public Replicon(final String company, final String username,
+			final String password) {
+
+		this(company, new BasicAuthentication(company, username, password));
+	}
+
+	/**
+	 * Creates a standalone client with its own {@link RepliconRuntime}, calling
+	 * the <code>na2</code> datacenter. Applications serving several companies
+	 * should share a runtime and use
+	 * {@link RepliconRuntime#attach(String, Authentication)} instead.
+	 */
+	public Replicon(String company, Authentication authentication) {
+
+		this(standaloneRuntime(), company, authentication);
+	}
+
+	public Replicon(RepliconRuntime runtime, String company,
+			Authentication authentication) {
+
+		this.runtime = runtime;
+		this.company = company.toLowerCase();
+		this.authentication = authentication;
+		this.objectMapper = runtime.getObjectMapper();
+	}
+
+	public RepliconRuntime getRuntime() {
+		return runtime;
+	}
+
+	public String getCompany() {
+		return company;
+	}
+
+	/**
+	 * @return the loader resolving partial references of this client in
+	 *         batches, created on first use
+	 */
+	public ReferenceLoader getReferenceLoader() {
+		ReferenceLoader referenceLoader = this.referenceLoader;
+
+		if (referenceLoader == null) {
+			synchronized (this) {
+				referenceLoader = this.referenceLoader;
+				if (referenceLoader == null) {
+					referenceLoader = new ReferenceLoader(this);
+					this.referenceLoader = referenceLoader;
+				}
+			}
+		}
+
+		return referenceLoader;
+	}
+
+	/**
+	 * Warms up with the default {@link WarmUp} settings.
+	 */
+	public void warmUp() throws IOException {
+		warmUp(new WarmUp());
+	}
+
+	/**
+	 * Pays the first-call costs up front: resolves the services URL of the
+	 * company, opens pooled connections to it (including the TLS handshakes)
+	 * and builds the readers and writers of every {@link Operation}, parsing
+	 * the bundled response fixtures. Meant to be called once at startup, before
+	 * the application reports itself ready; returns when done.
+	 */
+	public void warmUp(WarmUp warmUp) throws IOException {
+		runtime.warmUpCodecs(warmUp.getIterations());
+
+		if (warmUp.getConnections() > 0) {
+			runtime.getTransport().preconnect(getBaseServiceUrl(),
+					warmUp.getConnections());
+		}
+	}
+
+	/**
+	 * Creates an access token for the authenticated user, to be used with
+	 * {@link br.com.thiagomoreira.replicon.auth.TokenAuthentication}.
+	 */
+	public AccessToken createAccessToken(Duration lifetime, String description)
+			throws IOException {
+
+		CreateAccessTokenRequest request = new CreateAccessTokenRequest();
+
+		request.setDescription(description);
+		request.setLifetime(lifetime);
+
+		long now = System.currentTimeMillis();
+		CreateAccessTokenResponse response = execute(
+				Operation.CREATE_ACCESS_TOKEN, request);
+
+		return new AccessToken(response.getToken(),
+				now
+						+ (lifetime.getHours() * 3600L + lifetime.getMinutes()
+								* 60L + lifetime.getSeconds()) * 1000L);
+	}
+
+	public Project getProject(String projectUri) throws IOException {
+
+		GetProjectDetailsRequest request = new GetProjectDetailsRequest();
+
+		request.setProjectUri(projectUri);
+
+		return execute(Operation.GET_PROJECT_DETAILS, request);
+	}
+
+	public ProjectAllocation[] getProjectAllocations(Date startDate,
+			Date endDate, String resourceUri) throws IOException {
+
+		GetResourceAllocationSummaryRequest request = new GetResourceAllocationSummaryRequest();
+
+		DateRange dateRange = new DateRange();
+
+		dateRange.setStartDate(DateUtil.translateDate(startDate));
+		dateRange.setEndDate(DateUtil.translateDate(endDate));
+
+		request.setResourceUri(resourceUri);
+		request.setDateRange(dateRange);
+
+		GetResourceAllocationSummaryResponse response = execute(
+				Operation.GET_RESOURCE_ALLOCATION_SUMMARY, request);
+
+		return response.getProjectsAllocatedTo();
+	}
+
+	public Resource getResource(String resourceUri) throws IOException {
+		GetResourceDetailsRequest request = new GetResourceDetailsRequest();
+
+		request.setResourceUri(resourceUri);
+
+		return execute(Operation.GET_RESOURCE_DETAILS, request);
+	}
+
+	/**
+	 * Fetches the resource, its project and task allocations and its time-off
+	 * concurrently: the task allocations of each project as soon as the project
+	 * allocations arrive and the time-off as soon as the resource does. The
+	 * first failure cancels the other calls.
+	 */
+	public ResourceView getResourceView(final String resourceUri,
+			final Date startDate, final Date endDate) throws IOException {
+
+		final Map<String, CompletableFuture<TaskAllocation[]>> taskAllocations = Collections
+				.synchronizedMap(new LinkedHashMap<String, CompletableFuture<TaskAllocation[]>>());
+		CompletableFuture<Resource> resource;
+		CompletableFuture<ProjectAllocation[]> projectAllocations;
+		final CompletableFuture<TimeOffAllocation[]> timeOff = new CompletableFuture<TimeOffAllocation[]>();
+
+		try (final TaskScope scope = new TaskScope(runtime.getExecutor())) {
+			resource = scope.fork(new Callable<Resource>() {
+				@Override
+				public Resource call() throws Exception {
+					Resource resource = getResource(resourceUri);
+					final String userUri = resource.getUser() == null
+							? resourceUri
+							: resource.getUser().getUri();
+
+					scope.fork(new Callable<TimeOffAllocation[]>() {
+						@Override
+						public TimeOffAllocation[] call() throws Exception {
+							TimeOffAllocation[] value = getTimeOff(userUri,
+									startDate, endDate);
+
+							timeOff.complete(value);
+
+							return value;
+						}
+					});
+
+					return resource;
+				}
+			});
+			projectAllocations = scope
+					.fork(new Callable<ProjectAllocation[]>() {
+						@Override
+						public ProjectAllocation[] call() throws Exception {
+							ProjectAllocation[] allocations = getProjectAllocations(
+									startDate, endDate, resourceUri);
+
+							if (allocations == null) {
+								return null;
+							}
+
+							for (ProjectAllocation allocation : allocations) {
+								if (allocation.getProject() == null) {
+									continue;
+								}
+
+								final String projectUri = allocation
+										.getProject().getUri();
+
+								if (taskAllocations.containsKey(projectUri)) {
+									continue;
+								}
+
+								taskAllocations.put(projectUri, scope
+										.fork(new Callable<TaskAllocation[]>() {
+											@Override
+											public TaskAllocation[] call()
+													throws Exception {
+												return getTaskAllocations(
+														projectUri, resourceUri);
+											}
+										}));
+							}
+
+							return allocations;
+						}
+					});
+
+			scope.join();
+		}
+
+		Map<String, List<TaskAllocation>> tasks = new LinkedHashMap<String, List<TaskAllocation>>();
+
+		for (Map.Entry<String, CompletableFuture<TaskAllocation[]>> entry : taskAllocations
+				.entrySet()) {
+
+			tasks.put(entry.getKey(), unmodifiableList(entry.getValue().join()));
+		}
+
+		return new ResourceView(resource.join(),
+				unmodifiableList(projectAllocations.join()),
+				Collections.unmodifiableMap(tasks),
+				unmodifiableList(timeOff.join()));
+	}
+
+	public Task getTask(String taskUri) throws IOException {
+		GetTaskDetailsRequest request = new GetTaskDetailsRequest();
+
+		request.setTaskUri(taskUri);
+
+		return execute(Operation.GET_TASK_DETAILS, request);
+	}
+
+	public TaskAllocation[] getTaskAllocations(String projectUri,
+			String resourceUri) throws IOException {
+		GetResourceTaskAllocationDetailsRequest request = new GetResourceTaskAllocationDetailsRequest();
+
+		request.setProjectUri(projectUri);
+		request.setResourceUri(resourceUri);
+
+		GetResourceTaskAllocationDetailsResponse response = execute(
+				Operation.GET_RESOURCE_TASK_ALLOCATION_DETAILS, request);
+
+		return response.getEntries();
+	}
+
+	public TimeOffAllocation[] getTimeOff(String userUri, Date startDate,
+			Date endDate) throws IOException {
+
+		GetTimeOffDetailsForUserAndDateRangeRequest request = new GetTimeOffDetailsForUserAndDateRangeRequest();
+
+		DateRange dateRange = new DateRange();
+
+		dateRange.setStartDate(DateUtil.translateDate(startDate));
+		dateRange.setEndDate(DateUtil.translateDate(endDate));
+
+		request.setUserUri(userUri);
+		request.setDateRange(dateRange);
+
+		return execute(Operation.GET_TIME_OFF_DETAILS_FOR_USER_AND_DATE_RANGE,
+				request);
+	}
+
+	public User getUserByLoginName(String loginName) throws IOException {
+		GetUser2Request request = new GetUser2Request();
+
+		request.setLoginName(loginName);
+
+		return execute(Operation.GET_USER2, request);
+	}
+
+	public User[] getUsers() {
+		try {
+			return execute(Operation.GET_ALL_USERS, null);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Fetches one page of the user list, with one cell per column in each row.
+	 * 
+	 * @param page
+	 *            the page number, starting at 1
+	 * @param columnUris
+	 *            the columns to fetch, see {@link UserListColumn}
+	 */
+	public ListData getUserListPage(int page, int pageSize,
+			String... columnUris) throws IOException {
+
+		GetUserListDataRequest request = new GetUserListDataRequest();
+
+		request.setPage(page);
+		request.setPagesize(pageSize);
+		request.setColumnUris(columnUris);
+
+		return execute(Operation.GET_USER_LIST_DATA, request);
+	}
+
+	/**
+	 * Lists every user through the paged <code>UserListService1</code>,
+	 * fetching only the given columns. Up to <code>parallelism</code> pages are
+	 * fetched at once on the runtime's executor while rows are streamed in
+	 * order; close the stream when stopping early. Fetch failures surface as
+	 * {@link UncheckedIOException}s.
+	 * 
+	 * @param columnUris
+	 *            the columns to fetch, see {@link UserListColumn}; cells of
+	 *            each row follow the same order
+	 */
+	public Stream<ListRow> getUserList(int pageSize, int parallelism,
+			final String... columnUris) {
+
+		return PagedIterator.stream(new PagedIterator<ListRow>(
+				new PageFetcher<ListRow>() {
+					@Override
+					public List<ListRow> fetch(int page, int pageSize)
+							throws IOException {
+
+						ListRow[] rows = getUserListPage(page, pageSize,
+								columnUris).getRows();
+
+						return rows == null
+								? Collections.<ListRow> emptyList()
+								: Arrays.asList(rows);
+					}
+				}, pageSize, parallelism, runtime.getExecutor()));
+	}
+
+	public User[] getUsersBySupervisor(String userUri) throws IOException {
+		GetDirectReportsForUserRequest request = new GetDirectReportsForUserRequest();
+
+		request.setUserUri(userUri);
+
+		return execute(Operation.GET_DIRECT_REPORTS_FOR_USER, request);
+	}
+
+	/**
+	 * Creates the entry, or updates it when it has a URI, as a new unit of
+	 * work: each call is a distinct request, which a
+	 * {@link br.com.thiagomoreira.replicon.transport.ReplayTransport} can't
+	 * replay.
+	 * 
+	 * @return the reference to the saved entry
+	 */
+	public Target putTimeEntry(TimeEntry timeEntry) throws IOException {
+		return putTimeEntry(timeEntry, UUID.randomUUID().toString());
+	}
+
+	/**
+	 * Creates the entry, or updates it when it has a URI. Retrying with the
+	 * same <code>unitOfWorkId</code> doesn't save the entry twice.
+	 * 
+	 * @return the reference to the saved entry
+	 */
+	public Target putTimeEntry(TimeEntry timeEntry, String unitOfWorkId)
+			throws IOException {
+
+		PutTimeEntryRequest request = new PutTimeEntryRequest();
+
+		request.setTimeEntry(timeEntry);
+		request.setUnitOfWorkId(unitOfWorkId);
+
+		return execute(Operation.PUT_TIME_ENTRY, request);
+	}
+
+	/**
+	 * Saves all the entries in one call, see
+	 * {@link br.com.thiagomoreira.replicon.writer.TimeEntryWriter} to import
+	 * many of them. Like {@link #putTimeEntry(TimeEntry)} each call is a new
+	 * unit of work.
+	 * 
+	 * @return the references to the saved entries, in the same order
+	 */
+	public Target[] putTimeEntries(List<TimeEntry> timeEntries)
+			throws IOException {
+
+		return putTimeEntries(timeEntries, UUID.randomUUID().toString());
+	}
+
+	/**
+	 * Saves all the entries in one call. Retrying with the same
+	 * <code>unitOfWorkId</code> doesn't save the entries twice.
+	 * 
+	 * @return the references to the saved entries, in the same order
+	 */
+	public Target[] putTimeEntries(List<TimeEntry> timeEntries,
+			String unitOfWorkId) throws IOException {
+
+		BulkPutTimeEntryRequest request = new BulkPutTimeEntryRequest();
+
+		request.setTimeEntries(timeEntries);
+		request.setUnitOfWorkId(unitOfWorkId);
+
+		return execute(Operation.BULK_PUT_TIME_ENTRY, request);
+	}
+
+	public Timesheet getTimesheet(String userUri, Date date) throws IOException {
+
+		GetTimesheetForDate2Request request = new GetTimesheetForDate2Request();
+
+		request.setUserUri(userUri);
+		request.setDate(DateUtil.translateDate(date));
+
+		return execute(Operation.GET_TIMESHEET_FOR_DATE2, request)
+				.getTimesheet();
+	}
+
+	public void submitTimesheet(String timesheetUri, String comments)
+			throws IOException {
+
+		SubmitTimesheetRequest request = new SubmitTimesheetRequest();
+
+		request.setTimesheetUri(timesheetUri);
+		request.setComments(comments);
+
+		execute(Operation.SUBMIT_TIMESHEET, request);
+	}
+
+	protected <T> T execute(Operation<T> operation, Object request)
+			throws IOException {
+
+		return execute(operation.getPath(),
+				Priority.resolve(operation.getPriority()), request,
+				operation.getResponseType());
+	}
+
+	protected <T> T execute(String operation, Object request,
+			TypeReference<Response<T>> responseType) throws IOException {
+
+		return execute(operation, Priority.resolve(Priority.INTERACTIVE),
+				request, responseType);
+	}
+
+	protected <T> T execute(String operation, Priority priority,
+			Object request, TypeReference<Response<T>> responseType)
+			throws IOException {
+
+		PriorityLanes priorityLanes = runtime.getPriorityLanes();
+
+		// calls parked in their lane hold no rate permit
+		if (priorityLanes != null) {
+			priorityLanes.acquire(priority);
+		}
+
+		RepliconMetrics metrics = runtime.getMetrics();
+		T value;
+
+		try {
+			RateLimiter rateLimiter = runtime.getRateLimiter();
+
+			if (rateLimiter != null) {
+				rateLimiter.acquire();
+			}
+
+			ResourceSampler.Sample sample = metrics.startSample();
+			long start = System.nanoTime();
+			boolean success = false;
+
+			try {
+				value = runtime.post(getBaseServiceUrl() + operation,
+						authentication.getAuthorizationHeader(), request,
+						responseType);
+
+				success = true;
+			} finally {
+				metrics.record(operation, System.nanoTime() - start, success,
+						sample);
+			}
+		} finally {
+			if (priorityLanes != null) {
+				priorityLanes.release(priority);
+			}
+		}
+
+		ChangeTracker changeTracker = runtime.getChangeTracker();
+
+		if (changeTracker != null) {
+			changeTracker.track(value);
+		}
+
+		return value;
+	}
+
+	protected static <T> List<T> unmodifiableList(T[] values) {
+		if (values == null) {
+			return Collections.emptyList();
+		}
+
+		return Collections.unmodifiableList(Arrays.asList(values));
+	}
+
+	protected String getBaseServiceUrl() throws IOException {
+		return runtime.getBaseServiceUrl(company);
+	}
+
+	protected static RepliconRuntime standaloneRuntime() {
+		return standaloneRuntime(new RepliconRuntime());
+	}
+
+	/**
+	 * Pins the given runtime to the <code>na2</code> datacenter, as done for
+	 * standalone clients.
+	 */
+	protected static RepliconRuntime standaloneRuntime(RepliconRuntime runtime) {
+		runtime.setBaseUrlResolver(new FixedBaseUrlResolver());
+
+		return runtime;
+	}
+}
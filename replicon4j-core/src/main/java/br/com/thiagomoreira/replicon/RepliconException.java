@@ -0,0 +1,51 @@
+/**
+ * Copyright (C) 2014 Thiago Moreira (tmoreira2020@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package br.com.thiagomoreira.replicon;
+
+import java.io.IOException;
+
+/**
+ * Thrown when Replicon answers a call with a non successful status.
+ */
+public class RepliconException extends IOException {
+
+	private static final long serialVersionUID = 1L;
+
+	protected final String url;
+	protected final int statusCode;
+	protected final String responseBody;
+
+	public RepliconException(String url, int statusCode, String responseBody) {
+
+		super(url + " failed with status " + statusCode);
+
+		this.url = url;
+		this.statusCode = statusCode;
+		this.responseBody = responseBody;
+	}
+
+	public String getUrl() {
+		return url;
+	}
+
+	public int getStatusCode() {
+		return statusCode;
+	}
+
+	public String getResponseBody() {
+		return responseBody;
+	}
+}
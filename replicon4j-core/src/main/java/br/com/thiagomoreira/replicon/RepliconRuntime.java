@@ -0,0 +1,426 @@
+/**
+ * Copyright (C) 2014 Thiago Moreira (tmoreira2020@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package br.com.thiagomoreira.replicon;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Type;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import br.com.thiagomoreira.replicon.auth.Authentication;
+import br.com.thiagomoreira.replicon.auth.BasicAuthentication;
+import br.com.thiagomoreira.replicon.events.ChangeTracker;
+import br.com.thiagomoreira.replicon.metrics.RepliconMetrics;
+import br.com.thiagomoreira.replicon.model.Response;
+import br.com.thiagomoreira.replicon.transport.ByteArrayPool;
+import br.com.thiagomoreira.replicon.transport.PooledBody;
+import br.com.thiagomoreira.replicon.transport.Transport;
+import br.com.thiagomoreira.replicon.transport.TransportResponse;
+import br.com.thiagomoreira.replicon.transport.UrlConnectionTransport;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+/**
+ * Heavyweight state shared by many {@link Replicon} handles: the HTTP transport
+ * and its connection pool, the JSON codec, the worker threads and the metrics.
+ * Serving several companies from one process only needs one runtime and one
+ * lightweight {@link Replicon} per company, obtained with
+ * {@link #attach(String, Authentication)}.
+ * 
+ * The services URL of each company is resolved once through the
+ * {@link BaseUrlResolver} (by default Replicon's discovery service) and cached.
+ */
+public class RepliconRuntime implements Closeable {
+
+	protected static final byte[] EMPTY_BODY = new byte[0];
+
+	protected final Transport transport;
+	protected final ObjectMapper objectMapper = new ObjectMapper();
+	protected final RepliconMetrics metrics = new RepliconMetrics();
+	protected final ConcurrentHashMap<Type, ObjectReader> readers = new ConcurrentHashMap<Type, ObjectReader>();
+	protected final ConcurrentHashMap<Class<?>, ObjectWriter> writers = new ConcurrentHashMap<Class<?>, ObjectWriter>();
+	protected final ConcurrentHashMap<String, String> baseServiceUrls = new ConcurrentHashMap<String, String>();
+	protected BaseUrlResolver baseUrlResolver;
+	protected volatile ByteArrayPool byteArrayPool;
+	protected volatile RateLimiter rateLimiter;
+	protected volatile ChangeTracker changeTracker;
+	protected volatile PriorityLanes priorityLanes;
+	protected int threads = Math.max(4, Runtime.getRuntime()
+			.availableProcessors() * 2);
+	protected volatile ExecutorService executor;
+	protected volatile ScheduledExecutorService scheduler;
+
+	public RepliconRuntime() {
+		this(new UrlConnectionTransport());
+	}
+
+	public RepliconRuntime(Transport transport) {
+		this.transport = transport;
+		// responses are closed, and drained, by the transport
+		this.objectMapper
+				.configure(JsonParser.Feature.AUTO_CLOSE_SOURCE, false);
+		this.baseUrlResolver = new DiscoveryBaseUrlResolver(this);
+	}
+
+	public Replicon attach(String company, String username, String password) {
+		return attach(company, new BasicAuthentication(company, username,
+				password));
+	}
+
+	public Replicon attach(String company, Authentication authentication) {
+		return new Replicon(this, company, authentication);
+	}
+
+	/**
+	 * @return the cached services URL of the company, resolving it on first use
+	 */
+	public String getBaseServiceUrl(String company) throws IOException {
+		String baseServiceUrl = baseServiceUrls.get(company);
+
+		if (baseServiceUrl == null) {
+			baseServiceUrl = baseUrlResolver.resolve(company);
+			baseServiceUrls.putIfAbsent(company, baseServiceUrl);
+		}
+
+		return baseServiceUrl;
+	}
+
+	/**
+	 * Overrides the services URL of a company, skipping its resolution.
+	 */
+	public void setBaseServiceUrl(String company, String baseServiceUrl) {
+		baseServiceUrls.put(company, baseServiceUrl);
+	}
+
+	public void setBaseUrlResolver(BaseUrlResolver baseUrlResolver) {
+		this.baseUrlResolver = baseUrlResolver;
+		this.baseServiceUrls.clear();
+	}
+
+	/**
+	 * Posts the request as JSON and returns the <code>d</code> member of the
+	 * response.
+	 * 
+	 * @param authorization
+	 *            the <code>Authorization</code> header, <code>null</code> for
+	 *            anonymous calls
+	 * @throws RepliconException
+	 *             if the call isn't answered with a successful status
+	 */
+	public <T> T post(String url, String authorization, Object request,
+			TypeReference<Response<T>> responseType) throws IOException {
+
+		Map<String, String> headers = new HashMap<String, String>(4);
+
+		headers.put("Content-Type", "application/json");
+		headers.put("Accept", "application/json");
+		if (authorization != null) {
+			headers.put("Authorization", authorization);
+		}
+
+		byte[] body = request == null ? EMPTY_BODY : getWriter(
+				request.getClass()).writeValueAsBytes(request);
+		TransportResponse response = transport.post(url, headers, body);
+		ObjectReader reader = getReader(responseType);
+		PooledBody pooledBody;
+
+		try {
+			if (!response.isSuccessful()) {
+				throw new RepliconException(url, response.getStatusCode(),
+						toString(response.getBody()));
+			}
+
+			if (byteArrayPool == null) {
+				Response<T> value = reader.readValue(response.getBody());
+
+				return value.getD();
+			}
+
+			pooledBody = byteArrayPool.read(response.getBody());
+		} finally {
+			response.close();
+		}
+
+		// the connection is already released while parsing
+		try {
+			Response<T> value = reader.readValue(pooledBody.getInputStream());
+
+			return value.getD();
+		} finally {
+			pooledBody.close();
+		}
+	}
+
+	/**
+	 * @return the cached reader of the type, created on first use
+	 */
+	public ObjectReader getReader(TypeReference<?> type) {
+		ObjectReader reader = readers.get(type.getType());
+
+		if (reader == null) {
+			reader = objectMapper.reader(type);
+			readers.putIfAbsent(type.getType(), reader);
+		}
+
+		return reader;
+	}
+
+	/**
+	 * @return the cached writer of the type, created on first use
+	 */
+	public ObjectWriter getWriter(Class<?> type) {
+		ObjectWriter writer = writers.get(type);
+
+		if (writer == null) {
+			writer = objectMapper.writerWithType(type);
+			writers.putIfAbsent(type, writer);
+		}
+
+		return writer;
+	}
+
+	/**
+	 * Builds the reader and writer of every {@link Operation}, serializing an
+	 * empty request and parsing the bundled response fixture of each.
+	 * 
+	 * @param iterations
+	 *            extra parses of each fixture, giving the JIT compiler a chance
+	 *            to compile the codecs
+	 */
+	public void warmUpCodecs(int iterations) throws IOException {
+		for (Operation<?> operation : Operation.values()) {
+			Class<?> requestType = operation.getRequestType();
+
+			if (requestType != null) {
+				try {
+					getWriter(requestType).writeValueAsBytes(
+							requestType.newInstance());
+				} catch (ReflectiveOperationException e) {
+					throw new IllegalStateException(e);
+				}
+			}
+
+			ObjectReader reader = getReader(operation.getResponseType());
+			InputStream inputStream = RepliconRuntime.class
+					.getResourceAsStream("warmup/" + operation.getName()
+							+ ".json");
+
+			if (inputStream == null) {
+				continue;
+			}
+
+			byte[] fixture;
+
+			try {
+				fixture = toByteArray(inputStream);
+			} finally {
+				inputStream.close();
+			}
+
+			for (int i = 0; i <= iterations; i++) {
+				reader.readValue(fixture);
+			}
+		}
+	}
+
+	public ByteArrayPool getByteArrayPool() {
+		return byteArrayPool;
+	}
+
+	/**
+	 * Reads every response body into buffers of the pool before parsing it,
+	 * instead of parsing straight from the transport's stream. This trades a
+	 * copy for no per-call garbage and connections released before parsing
+	 * starts; <code>null</code>, the default, switches it off.
+	 */
+	public void setByteArrayPool(ByteArrayPool byteArrayPool) {
+		this.byteArrayPool = byteArrayPool;
+	}
+
+	public RateLimiter getRateLimiter() {
+		return rateLimiter;
+	}
+
+	/**
+	 * Caps the calls made by every {@link Replicon} attached to this runtime;
+	 * <code>null</code>, the default, leaves them unlimited.
+	 */
+	public void setRateLimiter(RateLimiter rateLimiter) {
+		this.rateLimiter = rateLimiter;
+	}
+
+	public ChangeTracker getChangeTracker() {
+		return changeTracker;
+	}
+
+	/**
+	 * Feeds the responses of every {@link Replicon} attached to this runtime to
+	 * the tracker; <code>null</code>, the default, switches it off.
+	 */
+	public void setChangeTracker(ChangeTracker changeTracker) {
+		this.changeTracker = changeTracker;
+	}
+
+	public PriorityLanes getPriorityLanes() {
+		return priorityLanes;
+	}
+
+	/**
+	 * Limits the calls running at the same time, queueing them by
+	 * {@link Priority}; <code>null</code>, the default, lets every call run
+	 * right away.
+	 */
+	public void setPriorityLanes(PriorityLanes priorityLanes) {
+		this.priorityLanes = priorityLanes;
+	}
+
+	public Transport getTransport() {
+		return transport;
+	}
+
+	/**
+	 * @return the JSON codec; readers and writers are derived from it on first
+	 *         use, so configure it before the first call
+	 */
+	public ObjectMapper getObjectMapper() {
+		return objectMapper;
+	}
+
+	public RepliconMetrics getMetrics() {
+		return metrics;
+	}
+
+	/**
+	 * Sets the size of the shared worker pool, effective when the pool is first
+	 * used.
+	 */
+	public void setThreads(int threads) {
+		this.threads = threads;
+	}
+
+	/**
+	 * @return the shared pool of daemon worker threads, started on first use
+	 */
+	public ExecutorService getExecutor() {
+		ExecutorService executor = this.executor;
+
+		if (executor == null) {
+			synchronized (this) {
+				executor = this.executor;
+				if (executor == null) {
+					executor = Executors.newFixedThreadPool(threads,
+							new DaemonThreadFactory("replicon-worker-"));
+					this.executor = executor;
+				}
+			}
+		}
+
+		return executor;
+	}
+
+	/**
+	 * @return the shared single daemon thread used to time batches, flushes and
+	 *         refreshes; tasks run on it must be short and hand real work to
+	 *         {@link #getExecutor()}
+	 */
+	public ScheduledExecutorService getScheduler() {
+		ScheduledExecutorService scheduler = this.scheduler;
+
+		if (scheduler == null) {
+			synchronized (this) {
+				scheduler = this.scheduler;
+				if (scheduler == null) {
+					scheduler = Executors
+							.newSingleThreadScheduledExecutor(new DaemonThreadFactory(
+									"replicon-scheduler-"));
+					this.scheduler = scheduler;
+				}
+			}
+		}
+
+		return scheduler;
+	}
+
+	@Override
+	public void close() {
+		ExecutorService executor = this.executor;
+		ScheduledExecutorService scheduler = this.scheduler;
+
+		if (scheduler != null) {
+			scheduler.shutdown();
+		}
+		if (executor != null) {
+			executor.shutdown();
+		}
+	}
+
+	protected static String toString(InputStream inputStream)
+			throws IOException {
+
+		if (inputStream == null) {
+			return null;
+		}
+
+		return new String(toByteArray(inputStream), "UTF-8");
+	}
+
+	protected static byte[] toByteArray(InputStream inputStream)
+			throws IOException {
+
+		ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+		byte[] buffer = new byte[4096];
+		int read;
+
+		while ((read = inputStream.read(buffer)) != -1) {
+			outputStream.write(buffer, 0, read);
+		}
+
+		return outputStream.toByteArray();
+	}
+
+	protected static class DaemonThreadFactory implements ThreadFactory {
+
+		protected final String prefix;
+		protected final AtomicInteger count = new AtomicInteger();
+
+		protected DaemonThreadFactory(String prefix) {
+			this.prefix = prefix;
+		}
+
+		@Override
+		public Thread newThread(Runnable runnable) {
+			Thread thread = new Thread(runnable, prefix
+					+ count.incrementAndGet());
+
+			thread.setDaemon(true);
+
+			return thread;
+		}
+	}
+}
@@ -0,0 +1,40 @@
+/**
+ * Copyright (C) 2014 Thiago Moreira (tmoreira2020@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package br.com.thiagomoreira.replicon;
+
+import lombok.Data;
+
+/**
+ * What {@link Replicon#warmUp(WarmUp)} prepares before the first real call.
+ */
+@Data
+public class WarmUp {
+
+	/**
+	 * Connections opened to the company's datacenter and left in the
+	 * transport's pool. The JDK transport keeps at most
+	 * <code>http.maxConnections</code> (5 by default) idle connections per
+	 * host.
+	 */
+	protected int connections = 4;
+
+	/**
+	 * Extra parses of each bundled response fixture, so the codecs get compiled
+	 * before real traffic arrives; 0 parses each fixture once.
+	 */
+	protected int iterations;
+
+}
@@ -0,0 +1,39 @@
+/**
+ * Copyright (C) 2014 Thiago Moreira (tmoreira2020@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package br.com.thiagomoreira.replicon.auth;
+
+import java.util.Base64;
+
+/**
+ * HTTP Basic credentials in the <code>company\\username:password</code> form
+ * expected by Replicon. The header is encoded once, at construction.
+ */
+public class BasicAuthentication implements Authentication {
+
+	protected final String authorizationHeader;
+
+	public BasicAuthentication(String company, String username, String password) {
+		String authorisation = company + "\\" + username + ":" + password;
+
+		this.authorizationHeader = "Basic "
+				+ Base64.getEncoder().encodeToString(authorisation.getBytes());
+	}
+
+	@Override
+	public String getAuthorizationHeader() {
+		return authorizationHeader;
+	}
+}
@@ -0,0 +1,140 @@
+/**
+ * Copyright (C) 2014 Thiago Moreira (tmoreira2020@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package br.com.thiagomoreira.replicon.auth;
+
+import java.io.IOException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Bearer token authentication. A token is obtained once from the
+ * {@link AccessTokenProvider} and its header cached; once the token enters its
+ * refresh window a single background refresh is started while callers keep
+ * using the current, still valid, header. Callers only block when there is no
+ * token yet or the current one already expired.
+ */
+public class TokenAuthentication implements Authentication {
+
+	protected static final long DEFAULT_REFRESH_AHEAD = TimeUnit.MINUTES
+			.toMillis(5);
+
+	protected final AccessTokenProvider accessTokenProvider;
+	protected final Executor executor;
+	protected final long refreshAheadMillis;
+	protected final AtomicBoolean refreshing = new AtomicBoolean();
+	protected final Object lock = new Object();
+	protected volatile CachedHeader cachedHeader;
+
+	public TokenAuthentication(AccessTokenProvider accessTokenProvider,
+			Executor executor) {
+		this(accessTokenProvider, executor, DEFAULT_REFRESH_AHEAD,
+				TimeUnit.MILLISECONDS);
+	}
+
+	public TokenAuthentication(AccessTokenProvider accessTokenProvider,
+			Executor executor, long refreshAhead, TimeUnit unit) {
+		this.accessTokenProvider = accessTokenProvider;
+		this.executor = executor;
+		this.refreshAheadMillis = unit.toMillis(refreshAhead);
+	}
+
+	@Override
+	public String getAuthorizationHeader() throws IOException {
+		CachedHeader current = cachedHeader;
+		long now = currentTimeMillis();
+
+		if (current == null || now >= current.expiresAt) {
+			return refreshNow(current).header;
+		}
+
+		if (now >= current.refreshAt && refreshing.compareAndSet(false, true)) {
+			try {
+				executor.execute(new Runnable() {
+					@Override
+					public void run() {
+						try {
+							refresh();
+						} catch (IOException e) {
+							// keep the current token, the next caller retries
+						} finally {
+							refreshing.set(false);
+						}
+					}
+				});
+			} catch (RejectedExecutionException e) {
+				// the next caller retries
+				refreshing.set(false);
+			}
+		}
+
+		return current.header;
+	}
+
+	/**
+	 * Drops the cached token, e.g. after the server rejected it.
+	 */
+	public void invalidate() {
+		cachedHeader = null;
+	}
+
+	protected CachedHeader refreshNow(CachedHeader stale) throws IOException {
+		synchronized (lock) {
+			CachedHeader current = cachedHeader;
+
+			if (current != stale && current != null
+					&& currentTimeMillis() < current.expiresAt) {
+				return current;
+			}
+
+			return refresh();
+		}
+	}
+
+	protected CachedHeader refresh() throws IOException {
+		AccessToken accessToken = accessTokenProvider.createAccessToken();
+		CachedHeader refreshed = new CachedHeader(accessToken,
+				refreshAheadMillis, currentTimeMillis());
+
+		cachedHeader = refreshed;
+
+		return refreshed;
+	}
+
+	protected long currentTimeMillis() {
+		return System.currentTimeMillis();
+	}
+
+	protected static class CachedHeader {
+
+		protected final String header;
+		protected final long expiresAt;
+		protected final long refreshAt;
+
+		protected CachedHeader(AccessToken accessToken,
+				long refreshAheadMillis, long now) {
+			this.header = "Bearer " + accessToken.getToken();
+			this.expiresAt = accessToken.getExpiresAt();
+
+			long lifetime = expiresAt - now;
+
+			// never spend more than half of the lifetime waiting to refresh
+			this.refreshAt = expiresAt
+					- Math.min(refreshAheadMillis, Math.max(0, lifetime / 2));
+		}
+	}
+}
@@ -0,0 +1,332 @@
+/**
+ * Copyright (C) 2014 Thiago Moreira (tmoreira2020@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package br.com.thiagomoreira.replicon.cache;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import br.com.thiagomoreira.replicon.RateLimiter;
+import br.com.thiagomoreira.replicon.RepliconRuntime;
+import br.com.thiagomoreira.replicon.loader.Fetcher;
+
+/**
+ * Cache whose popular entries are fetched again in the background shortly
+ * before they expire, so readers of hot entities almost never wait for the
+ * network.
+ * 
+ * Every tick the entries read at least <code>minHits</code> times since their
+ * last load and expiring within <code>refreshAhead</code> are queued by their
+ * remaining time divided by their hits, the most urgent first, and handed to at
+ * most <code>maxConcurrency</code> workers. A refresh only runs when the
+ * runtime's {@link RateLimiter} has a spare permit, otherwise it is retried on
+ * the next tick. Entries that expire anyway, unread or not refreshed in time,
+ * are dropped and fetched again on demand.
+ */
+public class RefreshAheadCache<K, V> implements Closeable {
+
+	protected final Fetcher<K, V> fetcher;
+	protected final RepliconRuntime runtime;
+	protected final Executor executor;
+	protected final long timeToLiveNanos;
+	protected final ConcurrentHashMap<K, Entry<V>> entries = new ConcurrentHashMap<K, Entry<V>>();
+	protected final ConcurrentHashMap<K, CompletableFuture<V>> loads = new ConcurrentHashMap<K, CompletableFuture<V>>();
+	protected final AtomicInteger activeRefreshes = new AtomicInteger();
+	protected final AtomicLong hits = new AtomicLong();
+	protected final AtomicLong misses = new AtomicLong();
+	protected final AtomicLong refreshes = new AtomicLong();
+	protected final ScheduledFuture<?> tick;
+	protected volatile long refreshAheadNanos;
+	protected volatile int minHits = 2;
+	protected volatile int maxConcurrency = 4;
+
+	public RefreshAheadCache(Fetcher<K, V> fetcher, RepliconRuntime runtime,
+			long timeToLive, TimeUnit unit) {
+		this(fetcher, runtime, timeToLive, unit, 1, TimeUnit.SECONDS);
+	}
+
+	public RefreshAheadCache(Fetcher<K, V> fetcher, RepliconRuntime runtime,
+			long timeToLive, TimeUnit unit, long tickPeriod, TimeUnit tickUnit) {
+		this.fetcher = fetcher;
+		this.runtime = runtime;
+		this.executor = runtime.getExecutor();
+		this.timeToLiveNanos = unit.toNanos(timeToLive);
+		this.refreshAheadNanos = timeToLiveNanos / 5;
+		this.tick = runtime.getScheduler().scheduleWithFixedDelay(
+				new Runnable() {
+					@Override
+					public void run() {
+						try {
+							refresh();
+						} catch (RuntimeException e) {
+							// a throwing tick would cancel the ones after it
+						}
+					}
+				}, tickPeriod, tickPeriod, tickUnit);
+	}
+
+	public V get(K key) throws IOException {
+		Entry<V> entry = entries.get(key);
+
+		if (entry != null && entry.expiresAt - System.nanoTime() > 0) {
+			entry.hits.incrementAndGet();
+			hits.incrementAndGet();
+
+			return entry.value;
+		}
+
+		misses.incrementAndGet();
+
+		return load(key);
+	}
+
+	public void put(K key, V value) {
+		entries.put(key, new Entry<V>(value, System.nanoTime()
+				+ timeToLiveNanos));
+	}
+
+	public void invalidate(K key) {
+		entries.remove(key);
+	}
+
+	public void clear() {
+		entries.clear();
+	}
+
+	public int size() {
+		return entries.size();
+	}
+
+	/**
+	 * How long before expiring a popular entry is fetched again, a fifth of the
+	 * time to live by default.
+	 */
+	public void setRefreshAhead(long refreshAhead, TimeUnit unit) {
+		this.refreshAheadNanos = unit.toNanos(refreshAhead);
+	}
+
+	/**
+	 * Reads since its last load that make an entry worth refreshing, 2 by
+	 * default.
+	 */
+	public void setMinHits(int minHits) {
+		this.minHits = minHits;
+	}
+
+	public void setMaxConcurrency(int maxConcurrency) {
+		if (maxConcurrency < 1) {
+			throw new IllegalArgumentException(
+					"maxConcurrency must be positive");
+		}
+
+		this.maxConcurrency = maxConcurrency;
+	}
+
+	public long getHitCount() {
+		return hits.get();
+	}
+
+	public long getMissCount() {
+		return misses.get();
+	}
+
+	public long getRefreshCount() {
+		return refreshes.get();
+	}
+
+	@Override
+	public void close() {
+		tick.cancel(false);
+	}
+
+	/**
+	 * Fetches the key on the calling thread, concurrent misses of the same key
+	 * share the fetch.
+	 */
+	protected V load(K key) throws IOException {
+		CompletableFuture<V> future = new CompletableFuture<V>();
+		CompletableFuture<V> running = loads.putIfAbsent(key, future);
+
+		if (running != null) {
+			return join(running);
+		}
+
+		try {
+			V value = fetcher.fetch(key);
+
+			put(key, value);
+			future.complete(value);
+
+			return value;
+		} catch (Throwable t) {
+			future.completeExceptionally(t);
+
+			throw t;
+		} finally {
+			loads.remove(key, future);
+		}
+	}
+
+	protected void refresh() {
+		final long now = System.nanoTime();
+		final int minHits = this.minHits;
+		PriorityQueue<Candidate<K, V>> queue = new PriorityQueue<Candidate<K, V>>(
+				16, new Comparator<Candidate<K, V>>() {
+					@Override
+					public int compare(Candidate<K, V> a, Candidate<K, V> b) {
+						return Double.compare(a.urgency, b.urgency);
+					}
+				});
+
+		for (Map.Entry<K, Entry<V>> mapEntry : entries.entrySet()) {
+			Entry<V> entry = mapEntry.getValue();
+			long remaining = entry.expiresAt - now;
+			int entryHits = entry.hits.get();
+
+			// expired, readers load it again; refreshing it would retry a
+			// failing fetch every tick
+			if (remaining <= 0) {
+				entries.remove(mapEntry.getKey(), entry);
+			} else if (entryHits >= minHits && remaining <= refreshAheadNanos
+					&& !entry.refreshing.get()) {
+				queue.add(new Candidate<K, V>(mapEntry.getKey(), entry,
+						remaining / (double) entryHits));
+			}
+		}
+
+		Candidate<K, V> candidate;
+
+		while ((candidate = queue.poll()) != null) {
+			int active = activeRefreshes.get();
+
+			if (active >= maxConcurrency) {
+				return;
+			}
+
+			if (activeRefreshes.compareAndSet(active, active + 1)) {
+				dispatch(candidate.key, candidate.entry);
+			} else {
+				queue.add(candidate);
+			}
+		}
+	}
+
+	protected void dispatch(final K key, final Entry<V> entry) {
+		entry.refreshing.set(true);
+
+		try {
+			executor.execute(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						refresh(key, entry);
+					} finally {
+						entry.refreshing.set(false);
+						activeRefreshes.decrementAndGet();
+					}
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			entry.refreshing.set(false);
+			activeRefreshes.decrementAndGet();
+		}
+	}
+
+	protected void refresh(K key, Entry<V> entry) {
+		RateLimiter rateLimiter = runtime.getRateLimiter();
+
+		if (rateLimiter != null && !rateLimiter.tryPrepay()) {
+			return;
+		}
+
+		try {
+			V value = fetcher.fetch(key);
+
+			// an entry invalidated meanwhile stays invalidated
+			if (entries.replace(key, entry,
+					new Entry<V>(value, System.nanoTime() + timeToLiveNanos))) {
+				refreshes.incrementAndGet();
+			}
+		} catch (IOException e) {
+			// readers fetch it themselves once it expires
+		} finally {
+			if (rateLimiter != null) {
+				rateLimiter.clearPrepayment();
+			}
+		}
+	}
+
+	protected static <V> V join(CompletableFuture<V> future) throws IOException {
+
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+
+			throw new InterruptedIOException();
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+
+			if (cause instanceof IOException) {
+				throw (IOException) cause;
+			}
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+
+			throw new IOException(cause);
+		}
+	}
+
+	protected static class Entry<V> {
+
+		protected final V value;
+		protected final long expiresAt;
+		protected final AtomicInteger hits = new AtomicInteger();
+		protected final AtomicBoolean refreshing = new AtomicBoolean();
+
+		protected Entry(V value, long expiresAt) {
+			this.value = value;
+			this.expiresAt = expiresAt;
+		}
+	}
+
+	protected static class Candidate<K, V> {
+
+		protected final K key;
+		protected final Entry<V> entry;
+		protected final double urgency;
+
+		protected Candidate(K key, Entry<V> entry, double urgency) {
+			this.key = key;
+			this.entry = entry;
+			this.urgency = urgency;
+		}
+	}
+}
@@ -0,0 +1,41 @@
+/**
+ * Copyright (C) 2014 Thiago Moreira (tmoreira2020@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package br.com.thiagomoreira.replicon.capacity;
+
+import lombok.Value;
+import br.com.thiagomoreira.replicon.model.User;
+
+/**
+ * The working minutes of a user over a date range, and how many of them are
+ * taken by project allocations and time off.
+ */
+@Value
+public class Availability {
+
+	User user;
+	long capacityMinutes;
+	long allocatedMinutes;
+	long timeOffMinutes;
+
+	public long getFreeMinutes() {
+		return capacityMinutes - allocatedMinutes - timeOffMinutes;
+	}
+
+	public double getFreeHours() {
+		return getFreeMinutes() / 60.0;
+	}
+
+}
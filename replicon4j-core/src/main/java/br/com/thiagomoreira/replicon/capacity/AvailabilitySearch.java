@@ -0,0 +1,313 @@
+/**
+ * Copyright (C) 2014 Thiago Moreira (tmoreira2020@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package br.com.thiagomoreira.replicon.capacity;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import br.com.thiagomoreira.replicon.Operation;
+import br.com.thiagomoreira.replicon.Priority;
+import br.com.thiagomoreira.replicon.Replicon;
+import br.com.thiagomoreira.replicon.metrics.RepliconMetrics;
+import br.com.thiagomoreira.replicon.model.ProjectAllocation;
+import br.com.thiagomoreira.replicon.model.TimeOffAllocation;
+import br.com.thiagomoreira.replicon.model.User;
+import br.com.thiagomoreira.replicon.util.DateUtil;
+
+/**
+ * Finds users of a supervisor's reporting tree with enough free time over a
+ * date range, walking the tree breadth first and checking a few users at a
+ * time.
+ * 
+ * Each user is checked with the call that has been the fastest so far, time off
+ * or project allocations, and the other call is made only when the first one
+ * leaves enough free time; reports are fetched only when no user is left to
+ * check. The search stops, cancelling the calls still running, as soon as it
+ * has found enough users. Allocated and time off minutes are spread over the
+ * days as in {@link CapacityMatrix}.
+ */
+public class AvailabilitySearch {
+
+	protected final Replicon replicon;
+	protected final int parallelism;
+	protected final int minutesPerDay;
+
+	public AvailabilitySearch(Replicon replicon) {
+		this(replicon, 4, 8 * 60);
+	}
+
+	/**
+	 * @param parallelism
+	 *            calls made at the same time
+	 * @param minutesPerDay
+	 *            working minutes of a working day
+	 */
+	public AvailabilitySearch(Replicon replicon, int parallelism,
+			int minutesPerDay) {
+		this.replicon = replicon;
+		this.parallelism = parallelism;
+		this.minutesPerDay = minutesPerDay;
+	}
+
+	/**
+	 * @return up to <code>limit</code> users with at least
+	 *         <code>minFreeHours</code> free between the dates, inclusive, in
+	 *         the order they were found
+	 */
+	public List<Availability> search(String supervisorUri,
+			final Date startDate, final Date endDate, double minFreeHours,
+			int limit) throws IOException {
+
+		final int firstEpochDay = (int) DateUtil.toEpochDay(DateUtil
+				.translateDate(startDate));
+		final int lastEpochDay = (int) DateUtil.toEpochDay(DateUtil
+				.translateDate(endDate));
+		final long capacity = (long) CapacityMatrix.workingDays(firstEpochDay,
+				lastEpochDay) * minutesPerDay;
+		final long required = (long) Math.ceil(minFreeHours * 60);
+		final boolean timeOffFirst = isTimeOffFaster();
+
+		List<Availability> found = new ArrayList<Availability>();
+
+		if (limit <= 0 || capacity < required) {
+			return found;
+		}
+
+		CompletionService<Step> completionService = new ExecutorCompletionService<Step>(
+				replicon.getRuntime().getExecutor());
+		List<Future<Step>> running = new ArrayList<Future<Step>>();
+		Deque<User> users = new ArrayDeque<User>();
+		Deque<String> supervisors = new ArrayDeque<String>();
+		Set<String> seen = new HashSet<String>();
+
+		supervisors.add(supervisorUri);
+		seen.add(supervisorUri);
+
+		try {
+			while (found.size() < limit) {
+				while (running.size() < parallelism) {
+					if (!users.isEmpty()) {
+						final User user = users.poll();
+
+						supervisors.add(user.getUri());
+						running.add(completionService.submit(Priority
+								.propagate(new Callable<Step>() {
+									@Override
+									public Step call() throws Exception {
+										return new Step(null, check(user,
+												firstEpochDay, lastEpochDay,
+												startDate, endDate, capacity,
+												required, timeOffFirst));
+									}
+								})));
+					} else if (!supervisors.isEmpty()) {
+						final String userUri = supervisors.poll();
+
+						running.add(completionService.submit(Priority
+								.propagate(new Callable<Step>() {
+									@Override
+									public Step call() throws Exception {
+										return new Step(replicon
+												.getUsersBySupervisor(userUri),
+												null);
+									}
+								})));
+					} else {
+						break;
+					}
+				}
+
+				if (running.isEmpty()) {
+					break;
+				}
+
+				Future<Step> future = completionService.take();
+
+				running.remove(future);
+
+				Step step = get(future);
+
+				if (step.availability != null) {
+					found.add(step.availability);
+				} else if (step.reports != null) {
+					for (User user : step.reports) {
+						if (seen.add(user.getUri())) {
+							users.add(user);
+						}
+					}
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+
+			throw new InterruptedIOException();
+		} finally {
+			for (Future<Step> future : running) {
+				future.cancel(true);
+			}
+		}
+
+		return found;
+	}
+
+	/**
+	 * @return the user's availability, or <code>null</code> when it is less
+	 *         than required
+	 */
+	protected Availability check(User user, int firstEpochDay,
+			int lastEpochDay, Date startDate, Date endDate, long capacity,
+			long required, boolean timeOffFirst) throws IOException {
+
+		long first = timeOffFirst ? timeOffMinutes(user, firstEpochDay,
+				lastEpochDay, startDate, endDate) : allocatedMinutes(user,
+				firstEpochDay, lastEpochDay, startDate, endDate);
+
+		if (capacity - first < required) {
+			return null;
+		}
+
+		long second = timeOffFirst ? allocatedMinutes(user, firstEpochDay,
+				lastEpochDay, startDate, endDate) : timeOffMinutes(user,
+				firstEpochDay, lastEpochDay, startDate, endDate);
+
+		if (capacity - first - second < required) {
+			return null;
+		}
+
+		return timeOffFirst
+				? new Availability(user, capacity, second, first)
+				: new Availability(user, capacity, first, second);
+	}
+
+	protected long allocatedMinutes(User user, int firstEpochDay,
+			int lastEpochDay, Date startDate, Date endDate) throws IOException {
+
+		ProjectAllocation[] allocations = replicon.getProjectAllocations(
+				startDate, endDate, user.getUri());
+		CapacityMatrix matrix = newMatrix(user, firstEpochDay, lastEpochDay);
+
+		if (allocations != null) {
+			for (ProjectAllocation allocation : allocations) {
+				if (allocation.getAllocationDateRange() == null) {
+					continue;
+				}
+
+				long interval = DateUtil.interval(allocation
+						.getAllocationDateRange());
+
+				matrix.spread(0, DateUtil.intervalStart(interval), DateUtil
+						.intervalEnd(interval), CapacityMatrix
+						.minutes(allocation.getTotalProjectsDuration()));
+			}
+		}
+
+		return matrix.rowSum(0);
+	}
+
+	protected long timeOffMinutes(User user, int firstEpochDay,
+			int lastEpochDay, Date startDate, Date endDate) throws IOException {
+
+		TimeOffAllocation[] timeOff = replicon.getTimeOff(user.getUri(),
+				startDate, endDate);
+		CapacityMatrix matrix = newMatrix(user, firstEpochDay, lastEpochDay);
+
+		if (timeOff != null) {
+			for (TimeOffAllocation allocation : timeOff) {
+				if (allocation.getStartDateDetails() == null
+						|| allocation.getStartDateDetails().getDate() == null
+						|| allocation.getEndDateDetails() == null
+						|| allocation.getEndDateDetails().getDate() == null) {
+					continue;
+				}
+
+				matrix.spread(0, (int) DateUtil.toEpochDay(allocation
+						.getStartDateDetails().getDate()), (int) DateUtil
+						.toEpochDay(allocation.getEndDateDetails().getDate()),
+						CapacityMatrix.minutes(allocation.getTotalDuration()));
+			}
+		}
+
+		return matrix.rowSum(0);
+	}
+
+	protected CapacityMatrix newMatrix(User user, int firstEpochDay,
+			int lastEpochDay) {
+		return new CapacityMatrix(Collections.singletonList(user.getUri()),
+				firstEpochDay, lastEpochDay, false);
+	}
+
+	/**
+	 * @return whether time off has been faster to fetch than project
+	 *         allocations, or <code>true</code> before either was fetched
+	 */
+	protected boolean isTimeOffFaster() {
+		RepliconMetrics metrics = replicon.getRuntime().getMetrics();
+		double timeOff = metrics.getOperation(
+				Operation.GET_TIME_OFF_DETAILS_FOR_USER_AND_DATE_RANGE
+						.getPath()).getMeanTime(TimeUnit.NANOSECONDS);
+		double allocations = metrics.getOperation(
+				Operation.GET_RESOURCE_ALLOCATION_SUMMARY.getPath())
+				.getMeanTime(TimeUnit.NANOSECONDS);
+
+		return timeOff == 0 || allocations == 0 || timeOff <= allocations;
+	}
+
+	protected Step get(Future<Step> future) throws IOException,
+			InterruptedException {
+		try {
+			return future.get();
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+
+			if (cause instanceof IOException) {
+				throw (IOException) cause;
+			}
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+
+			throw new IOException(cause);
+		}
+	}
+
+	protected static class Step {
+
+		protected final User[] reports;
+		protected final Availability availability;
+
+		protected Step(User[] reports, Availability availability) {
+			this.reports = reports;
+			this.availability = availability;
+		}
+	}
+}
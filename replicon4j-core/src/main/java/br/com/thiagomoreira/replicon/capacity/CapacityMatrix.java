@@ -0,0 +1,386 @@
+/**
+ * Copyright (C) 2014 Thiago Moreira (tmoreira2020@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package br.com.thiagomoreira.replicon.capacity;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
+import br.com.thiagomoreira.replicon.model.Duration;
+import br.com.thiagomoreira.replicon.model.ProjectAllocation;
+import br.com.thiagomoreira.replicon.model.TimeOffAllocation;
+import br.com.thiagomoreira.replicon.util.DateUtil;
+
+/**
+ * Compact resource &times; day matrix of minutes. Each resource is a row of
+ * consecutive epoch days stored in a single primitive <code>int</code> array
+ * (or a direct buffer when built off-heap), so a year of data for thousands of
+ * resources takes a few megabytes and sums are tight loops the JIT can
+ * vectorize.
+ * 
+ * Durations are spread over the working days (Monday to Friday) of their range,
+ * or over every day when the range has none; remainders go to the first days so
+ * row totals match the source durations exactly.
+ */
+public class CapacityMatrix {
+
+	protected final String[] resources;
+	protected final Map<String, Integer> rows;
+	protected final int firstEpochDay;
+	protected final int days;
+	protected final int[] heap;
+	protected final IntBuffer direct;
+
+	public CapacityMatrix(List<String> resources, int firstEpochDay,
+			int lastEpochDay, boolean offHeap) {
+		this.resources = resources.toArray(new String[resources.size()]);
+		this.rows = new HashMap<String, Integer>(resources.size() * 2);
+		this.firstEpochDay = firstEpochDay;
+		this.days = lastEpochDay - firstEpochDay + 1;
+
+		if (days <= 0) {
+			throw new IllegalArgumentException("Empty day range");
+		}
+
+		for (int i = 0; i < this.resources.length; i++) {
+			rows.put(this.resources[i], i);
+		}
+
+		int cells = Math.multiplyExact(this.resources.length, days);
+
+		if (offHeap) {
+			this.heap = null;
+			this.direct = ByteBuffer
+					.allocateDirect(Math.multiplyExact(cells, 4))
+					.order(ByteOrder.nativeOrder()).asIntBuffer();
+		} else {
+			this.heap = new int[cells];
+			this.direct = null;
+		}
+	}
+
+	/**
+	 * Builds the allocated minutes of each resource, one row per map entry,
+	 * filling rows in parallel.
+	 */
+	public static CapacityMatrix fromProjectAllocations(
+			final Map<String, ProjectAllocation[]> allocationsByResource,
+			int firstEpochDay, int lastEpochDay, boolean offHeap) {
+		final List<String> resources = new ArrayList<String>(
+				allocationsByResource.keySet());
+		final CapacityMatrix matrix = new CapacityMatrix(resources,
+				firstEpochDay, lastEpochDay, offHeap);
+
+		IntStream.range(0, resources.size()).parallel()
+				.forEach(new IntConsumer() {
+					@Override
+					public void accept(int row) {
+						for (ProjectAllocation allocation : allocationsByResource
+								.get(resources.get(row))) {
+							if (allocation.getAllocationDateRange() == null) {
+								continue;
+							}
+
+							long interval = DateUtil.interval(allocation
+									.getAllocationDateRange());
+
+							matrix.spread(row,
+									DateUtil.intervalStart(interval), DateUtil
+											.intervalEnd(interval),
+									minutes(allocation
+											.getTotalProjectsDuration()));
+						}
+					}
+				});
+
+		return matrix;
+	}
+
+	/**
+	 * Builds the time-off minutes of each resource, one row per map entry,
+	 * filling rows in parallel.
+	 */
+	public static CapacityMatrix fromTimeOff(
+			final Map<String, TimeOffAllocation[]> timeOffByResource,
+			int firstEpochDay, int lastEpochDay, boolean offHeap) {
+		final List<String> resources = new ArrayList<String>(
+				timeOffByResource.keySet());
+		final CapacityMatrix matrix = new CapacityMatrix(resources,
+				firstEpochDay, lastEpochDay, offHeap);
+
+		IntStream.range(0, resources.size()).parallel()
+				.forEach(new IntConsumer() {
+					@Override
+					public void accept(int row) {
+						for (TimeOffAllocation allocation : timeOffByResource
+								.get(resources.get(row))) {
+							if (allocation.getStartDateDetails() == null
+									|| allocation.getStartDateDetails()
+											.getDate() == null
+									|| allocation.getEndDateDetails() == null
+									|| allocation.getEndDateDetails().getDate() == null) {
+								continue;
+							}
+
+							matrix.spread(row, (int) DateUtil
+									.toEpochDay(allocation
+											.getStartDateDetails().getDate()),
+									(int) DateUtil.toEpochDay(allocation
+											.getEndDateDetails().getDate()),
+									minutes(allocation.getTotalDuration()));
+						}
+					}
+				});
+
+		return matrix;
+	}
+
+	public static int minutes(Duration duration) {
+		if (duration == null) {
+			return 0;
+		}
+
+		return duration.getHours() * 60 + duration.getMinutes()
+				+ duration.getSeconds() / 60;
+	}
+
+	public List<String> getResources() {
+		return Collections.unmodifiableList(Arrays.asList(resources));
+	}
+
+	public int getFirstEpochDay() {
+		return firstEpochDay;
+	}
+
+	public int getLastEpochDay() {
+		return firstEpochDay + days - 1;
+	}
+
+	public int getDays() {
+		return days;
+	}
+
+	public boolean isOffHeap() {
+		return direct != null;
+	}
+
+	public int row(String resourceUri) {
+		Integer row = rows.get(resourceUri);
+
+		if (row == null) {
+			throw new IllegalArgumentException("Unknown resource: "
+					+ resourceUri);
+		}
+
+		return row;
+	}
+
+	public int get(int row, int epochDay) {
+		return get(cell(row, epochDay));
+	}
+
+	public void add(int row, int epochDay, int minutes) {
+		int cell = cell(row, epochDay);
+
+		set(cell, get(cell) + minutes);
+	}
+
+	/**
+	 * Distributes the minutes over the part of the inclusive range covered by
+	 * the matrix, see the class description for the rules.
+	 */
+	public void spread(int row, int startEpochDay, int endEpochDay, int minutes) {
+		if (minutes == 0 || endEpochDay < startEpochDay) {
+			return;
+		}
+
+		int workingDays = workingDays(startEpochDay, endEpochDay);
+		boolean weekdaysOnly = workingDays > 0;
+		int slots = weekdaysOnly ? workingDays : endEpochDay - startEpochDay
+				+ 1;
+		int share = minutes / slots;
+		int remainder = minutes % slots;
+		int from = Math.max(startEpochDay, firstEpochDay);
+		int to = Math.min(endEpochDay, getLastEpochDay());
+		int slot = weekdaysOnly ? workingDays(startEpochDay, from - 1) : from
+				- startEpochDay;
+
+		for (int epochDay = from; epochDay <= to; epochDay++) {
+			if (weekdaysOnly && !isWorkingDay(epochDay)) {
+				continue;
+			}
+
+			add(row, epochDay, slot < remainder ? share + 1 : share);
+			slot++;
+		}
+	}
+
+	public long rowSum(int row) {
+		return rowSum(row, firstEpochDay, getLastEpochDay());
+	}
+
+	/**
+	 * @return the minutes of the resource between the days, inclusive, or 0
+	 *         when the range doesn't overlap the matrix
+	 */
+	public long rowSum(int row, int fromEpochDay, int toEpochDay) {
+		int fromDay = Math.max(fromEpochDay, firstEpochDay);
+		int toDay = Math.min(toEpochDay, getLastEpochDay());
+
+		if (fromDay > toDay) {
+			// still rejects rows out of the matrix
+			cell(row, firstEpochDay);
+
+			return 0;
+		}
+
+		int from = cell(row, fromDay);
+		int to = cell(row, toDay);
+		long sum = 0;
+
+		if (heap != null) {
+			for (int i = from; i <= to; i++) {
+				sum += heap[i];
+			}
+		} else {
+			for (int i = from; i <= to; i++) {
+				sum += direct.get(i);
+			}
+		}
+
+		return sum;
+	}
+
+	/**
+	 * @return the total minutes of every resource on each day, indexed from
+	 *         <code>fromEpochDay</code>
+	 */
+	public long[] columnSums(int fromEpochDay, int toEpochDay) {
+		int from = Math.max(fromEpochDay, firstEpochDay) - firstEpochDay;
+		int to = Math.min(toEpochDay, getLastEpochDay()) - firstEpochDay;
+		long[] sums = new long[Math.max(0, to - from + 1)];
+
+		for (int row = 0; row < resources.length; row++) {
+			int offset = row * days + from;
+
+			if (heap != null) {
+				for (int i = 0; i < sums.length; i++) {
+					sums[i] += heap[offset + i];
+				}
+			} else {
+				for (int i = 0; i < sums.length; i++) {
+					sums[i] += direct.get(offset + i);
+				}
+			}
+		}
+
+		return sums;
+	}
+
+	public long total() {
+		long total = 0;
+
+		for (int row = 0; row < resources.length; row++) {
+			total += rowSum(row);
+		}
+
+		return total;
+	}
+
+	/**
+	 * @return a copy of the matrix restricted to the given inclusive range,
+	 *         which must lie within this matrix
+	 */
+	public CapacityMatrix slice(int fromEpochDay, int toEpochDay) {
+		if (fromEpochDay < firstEpochDay || toEpochDay > getLastEpochDay()) {
+			throw new IllegalArgumentException("Range outside of the matrix");
+		}
+
+		CapacityMatrix slice = new CapacityMatrix(Arrays.asList(resources),
+				fromEpochDay, toEpochDay, isOffHeap());
+		int offset = fromEpochDay - firstEpochDay;
+
+		for (int row = 0; row < resources.length; row++) {
+			int source = row * days + offset;
+			int target = row * slice.days;
+
+			if (heap != null) {
+				System.arraycopy(heap, source, slice.heap, target, slice.days);
+			} else {
+				for (int i = 0; i < slice.days; i++) {
+					slice.direct.put(target + i, direct.get(source + i));
+				}
+			}
+		}
+
+		return slice;
+	}
+
+	public static boolean isWorkingDay(int epochDay) {
+		// 1970-01-01 was a Thursday, Monday is 0
+		int dayOfWeek = Math.floorMod(epochDay + 3, 7);
+
+		return dayOfWeek < 5;
+	}
+
+	public static int workingDays(int startEpochDay, int endEpochDay) {
+		if (endEpochDay < startEpochDay) {
+			return 0;
+		}
+
+		int total = endEpochDay - startEpochDay + 1;
+		int count = total / 7 * 5;
+
+		for (int epochDay = startEpochDay + total / 7 * 7; epochDay <= endEpochDay; epochDay++) {
+			if (isWorkingDay(epochDay)) {
+				count++;
+			}
+		}
+
+		return count;
+	}
+
+	protected int cell(int row, int epochDay) {
+		int day = epochDay - firstEpochDay;
+
+		if (row < 0 || row >= resources.length || day < 0 || day >= days) {
+			throw new IndexOutOfBoundsException("Cell out of the matrix: "
+					+ row + ", " + epochDay);
+		}
+
+		return row * days + day;
+	}
+
+	protected int get(int cell) {
+		return heap != null ? heap[cell] : direct.get(cell);
+	}
+
+	protected void set(int cell, int minutes) {
+		if (heap != null) {
+			heap[cell] = minutes;
+		} else {
+			direct.put(cell, minutes);
+		}
+	}
+}
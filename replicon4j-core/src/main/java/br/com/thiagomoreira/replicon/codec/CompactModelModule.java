@@ -0,0 +1,160 @@
+/**
+ * Copyright (C) 2014 Thiago Moreira (tmoreira2020@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package br.com.thiagomoreira.replicon.codec;
+
+import java.io.IOException;
+
+import br.com.thiagomoreira.replicon.model.Date;
+import br.com.thiagomoreira.replicon.model.Duration;
+import br.com.thiagomoreira.replicon.util.DateUtil;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.Version;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+/**
+ * Writes a {@link Date} as its epoch day and a {@link Duration} as its total
+ * seconds, a single number instead of an object with three properties. Dates
+ * that aren't valid calendar dates are kept as objects, so they survive the
+ * round trip; durations come back normalized, with fewer than 60 minutes and
+ * seconds.
+ */
+public class CompactModelModule extends SimpleModule {
+
+	private static final long serialVersionUID = 1L;
+
+	public CompactModelModule() {
+		super("CompactModelModule", Version.unknownVersion());
+
+		addSerializer(Date.class, new DateSerializer());
+		addDeserializer(Date.class, new DateDeserializer());
+		addSerializer(Duration.class, new DurationSerializer());
+		addDeserializer(Duration.class, new DurationDeserializer());
+	}
+
+	protected static class DateSerializer extends StdSerializer<Date> {
+
+		protected DateSerializer() {
+			super(Date.class);
+		}
+
+		@Override
+		public void serialize(Date date, JsonGenerator generator,
+				SerializerProvider provider) throws IOException {
+
+			long epochDay = DateUtil.toEpochDay(date);
+
+			if (date.equals(DateUtil.fromEpochDay(epochDay))) {
+				generator.writeNumber(epochDay);
+			} else {
+				generator.writeStartObject();
+				generator.writeNumberField("day", date.getDay());
+				generator.writeNumberField("month", date.getMonth());
+				generator.writeNumberField("year", date.getYear());
+				generator.writeEndObject();
+			}
+		}
+	}
+
+	protected static class DateDeserializer extends StdDeserializer<Date> {
+
+		private static final long serialVersionUID = 1L;
+
+		protected DateDeserializer() {
+			super(Date.class);
+		}
+
+		@Override
+		public Date deserialize(JsonParser parser,
+				DeserializationContext context) throws IOException {
+
+			if (parser.getCurrentToken() == JsonToken.VALUE_NUMBER_INT) {
+				return DateUtil.fromEpochDay(parser.getLongValue());
+			}
+
+			Date date = new Date();
+			JsonToken token;
+
+			while ((token = parser.nextToken()) == JsonToken.FIELD_NAME) {
+				String name = parser.getCurrentName();
+
+				parser.nextToken();
+
+				if (name.equals("day")) {
+					date.setDay(parser.getIntValue());
+				} else if (name.equals("month")) {
+					date.setMonth(parser.getIntValue());
+				} else if (name.equals("year")) {
+					date.setYear(parser.getIntValue());
+				} else {
+					parser.skipChildren();
+				}
+			}
+
+			if (token != JsonToken.END_OBJECT) {
+				throw context.mappingException(Date.class, token);
+			}
+
+			return date;
+		}
+	}
+
+	protected static class DurationSerializer extends StdSerializer<Duration> {
+
+		protected DurationSerializer() {
+			super(Duration.class);
+		}
+
+		@Override
+		public void serialize(Duration duration, JsonGenerator generator,
+				SerializerProvider provider) throws IOException {
+
+			generator.writeNumber(duration.getHours() * 3600L
+					+ duration.getMinutes() * 60L + duration.getSeconds());
+		}
+	}
+
+	protected static class DurationDeserializer
+			extends
+				StdDeserializer<Duration> {
+
+		private static final long serialVersionUID = 1L;
+
+		protected DurationDeserializer() {
+			super(Duration.class);
+		}
+
+		@Override
+		public Duration deserialize(JsonParser parser,
+				DeserializationContext context) throws IOException {
+
+			long seconds = parser.getLongValue();
+			Duration duration = new Duration();
+
+			duration.setHours((int) (seconds / 3600));
+			duration.setMinutes((int) (seconds % 3600 / 60));
+			duration.setSeconds((int) (seconds % 60));
+
+			return duration;
+		}
+	}
+}
@@ -0,0 +1,131 @@
+/**
+ * Copyright (C) 2014 Thiago Moreira (tmoreira2020@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package br.com.thiagomoreira.replicon.codec;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileGenerator;
+
+/**
+ * {@link Codec} backed by an {@link ObjectMapper}, caching the reader and
+ * writer of each type.
+ * 
+ * {@link #smile()} is the compact one: binary Smile, repeated property names
+ * and short strings such as URIs written once and referenced afterwards, and
+ * dates and durations written as single varints by the
+ * {@link CompactModelModule}. {@link #json()} writes the same JSON as the
+ * services.
+ */
+public class JacksonCodec implements Codec {
+
+	protected final ObjectMapper objectMapper;
+	protected final ConcurrentHashMap<Class<?>, ObjectReader> readers = new ConcurrentHashMap<Class<?>, ObjectReader>();
+	protected final ConcurrentHashMap<Class<?>, ObjectWriter> writers = new ConcurrentHashMap<Class<?>, ObjectWriter>();
+
+	public JacksonCodec(ObjectMapper objectMapper) {
+		this.objectMapper = objectMapper;
+	}
+
+	public static JacksonCodec json() {
+		return new JacksonCodec(leaveStreamsOpen(new ObjectMapper()));
+	}
+
+	public static JacksonCodec smile() {
+		SmileFactory smileFactory = new SmileFactory();
+
+		smileFactory.configure(SmileGenerator.Feature.CHECK_SHARED_NAMES, true);
+		smileFactory.configure(
+				SmileGenerator.Feature.CHECK_SHARED_STRING_VALUES, true);
+
+		ObjectMapper objectMapper = new ObjectMapper(smileFactory);
+
+		objectMapper.registerModule(new CompactModelModule());
+		objectMapper.setSerializationInclusion(JsonInclude.Include.NON_NULL);
+
+		return new JacksonCodec(leaveStreamsOpen(objectMapper));
+	}
+
+	@Override
+	public byte[] encode(Object value) throws IOException {
+		return getWriter(value.getClass()).writeValueAsBytes(value);
+	}
+
+	@Override
+	public void encode(Object value, OutputStream outputStream)
+			throws IOException {
+
+		getWriter(value.getClass()).writeValue(outputStream, value);
+	}
+
+	@Override
+	public <T> T decode(byte[] data, Class<T> type) throws IOException {
+		return getReader(type).readValue(data);
+	}
+
+	@Override
+	public <T> T decode(InputStream inputStream, Class<T> type)
+			throws IOException {
+
+		return getReader(type).readValue(inputStream);
+	}
+
+	public ObjectMapper getObjectMapper() {
+		return objectMapper;
+	}
+
+	/**
+	 * The streams passed to {@link #encode(Object, OutputStream)} and
+	 * {@link #decode(InputStream, Class)} belong to the caller.
+	 */
+	protected static ObjectMapper leaveStreamsOpen(ObjectMapper objectMapper) {
+		objectMapper.configure(JsonParser.Feature.AUTO_CLOSE_SOURCE, false);
+		objectMapper.configure(JsonGenerator.Feature.AUTO_CLOSE_TARGET, false);
+
+		return objectMapper;
+	}
+
+	protected ObjectReader getReader(Class<?> type) {
+		ObjectReader reader = readers.get(type);
+
+		if (reader == null) {
+			reader = objectMapper.reader(type);
+			readers.putIfAbsent(type, reader);
+		}
+
+		return reader;
+	}
+
+	protected ObjectWriter getWriter(Class<?> type) {
+		ObjectWriter writer = writers.get(type);
+
+		if (writer == null) {
+			writer = objectMapper.writerWithType(type);
+			writers.putIfAbsent(type, writer);
+		}
+
+		return writer;
+	}
+}
@@ -0,0 +1,328 @@
+/**
+ * Copyright (C) 2014 Thiago Moreira (tmoreira2020@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package br.com.thiagomoreira.replicon.directory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
+
+import br.com.thiagomoreira.replicon.Replicon;
+import br.com.thiagomoreira.replicon.model.ListCell;
+import br.com.thiagomoreira.replicon.model.ListRow;
+import br.com.thiagomoreira.replicon.model.User;
+import br.com.thiagomoreira.replicon.model.UserListColumn;
+
+/**
+ * In-memory index of a company's users by login name (case-insensitive), by URI
+ * and by supervisor.
+ * 
+ * Readers use an immutable snapshot and never lock; {@link #refresh()} and
+ * {@link #refreshDirectReports(String)} build an updated copy, keeping the
+ * unchanged users, and swap it in. Login names missing from the snapshot are
+ * resolved with <code>GetUser2</code> and remembered until the next refresh.
+ */
+public class UserDirectory {
+
+	protected static final String[] COLUMNS = {UserListColumn.USER,
+			UserListColumn.LOGIN_NAME, UserListColumn.SUPERVISOR};
+
+	protected final Replicon replicon;
+	protected final int pageSize;
+	protected final int parallelism;
+	protected final AtomicReference<Snapshot> snapshot = new AtomicReference<Snapshot>(
+			new Snapshot(Collections.<String, User> emptyMap(),
+					Collections.<String, String> emptyMap(),
+					Collections.<String, User[]> emptyMap()));
+	protected final ConcurrentHashMap<String, User> resolved = new ConcurrentHashMap<String, User>();
+
+	public UserDirectory(Replicon replicon) {
+		this(replicon, 500, 4);
+	}
+
+	/**
+	 * @param pageSize
+	 *            users per page of the user list fetched by {@link #refresh()}
+	 * @param parallelism
+	 *            pages fetched at the same time
+	 */
+	public UserDirectory(Replicon replicon, int pageSize, int parallelism) {
+		this.replicon = replicon;
+		this.pageSize = pageSize;
+		this.parallelism = parallelism;
+	}
+
+	/**
+	 * @return the user, from the index or else from <code>GetUser2</code>
+	 */
+	public User getUserByLoginName(String loginName) throws IOException {
+		String key = key(loginName);
+		User user = snapshot.get().byLoginName.get(key);
+
+		if (user == null) {
+			user = resolved.get(key);
+		}
+
+		if (user == null) {
+			user = replicon.getUserByLoginName(loginName);
+
+			if (user != null) {
+				resolved.put(key, user);
+			}
+		}
+
+		return user;
+	}
+
+	/**
+	 * @return the indexed user, <code>null</code> if unknown
+	 */
+	public User getUser(String userUri) {
+		return snapshot.get().byUri.get(userUri);
+	}
+
+	/**
+	 * @return the indexed direct reports of the supervisor, in list order
+	 */
+	public List<User> getDirectReports(String supervisorUri) {
+		List<User> reports = snapshot.get().reports.get(supervisorUri);
+
+		return reports == null ? Collections.<User> emptyList() : reports;
+	}
+
+	/**
+	 * @return the URI of the user's supervisor, <code>null</code> if unknown or
+	 *         none
+	 */
+	public String getSupervisorUri(String userUri) {
+		return snapshot.get().supervisors.get(userUri);
+	}
+
+	public int size() {
+		return snapshot.get().byUri.size();
+	}
+
+	/**
+	 * Reloads every user with their supervisor from the user list.
+	 * 
+	 * @return the number of users added, changed or removed
+	 */
+	public int refresh() throws IOException {
+		Snapshot current = snapshot.get();
+		Map<String, User> users = new LinkedHashMap<String, User>(
+				current.byUri.size() * 2);
+		Map<String, String> supervisors = new HashMap<String, String>(
+				current.supervisors.size() * 2);
+		int changes = 0;
+
+		try (Stream<ListRow> rows = replicon.getUserList(pageSize, parallelism,
+				COLUMNS)) {
+
+			Iterator<ListRow> iterator = rows.iterator();
+
+			while (iterator.hasNext()) {
+				ListRow row = iterator.next();
+				String uri = row.getCell(0).getUri();
+				String supervisorUri = uriOf(row.getCell(2));
+				User user = user(current, uri, row.getCell(1).getTextValue());
+
+				if (user != current.byUri.get(uri)
+						|| !Objects.equals(supervisorUri,
+								current.supervisors.get(uri))) {
+					changes++;
+				}
+
+				users.put(uri, user);
+				if (supervisorUri != null) {
+					supervisors.put(uri, supervisorUri);
+				}
+			}
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+
+		for (String uri : current.byUri.keySet()) {
+			if (!users.containsKey(uri)) {
+				changes++;
+			}
+		}
+
+		while (true) {
+			Snapshot latest = snapshot.get();
+			Map<String, User> latestUsers = users;
+			Map<String, String> latestSupervisors = supervisors;
+
+			// direct reports refreshed while the list was loading are newer
+			for (Map.Entry<String, User[]> entry : latest.refreshedReports
+					.entrySet()) {
+
+				if (current.refreshedReports.get(entry.getKey()) != entry
+						.getValue()) {
+
+					if (latestUsers == users) {
+						latestUsers = new LinkedHashMap<String, User>(users);
+						latestSupervisors = new HashMap<String, String>(
+								supervisors);
+					}
+
+					apply(latest, latestUsers, latestSupervisors,
+							entry.getKey(), entry.getValue());
+				}
+			}
+
+			if (snapshot
+					.compareAndSet(latest,
+							new Snapshot(latestUsers, latestSupervisors,
+									Collections.<String, User[]> emptyMap()))) {
+				break;
+			}
+		}
+
+		resolved.clear();
+
+		return changes;
+	}
+
+	/**
+	 * Reloads the direct reports of one supervisor with
+	 * <code>GetDirectReportsForUser</code>, leaving the other users untouched.
+	 */
+	public void refreshDirectReports(String supervisorUri) throws IOException {
+		User[] reports = replicon.getUsersBySupervisor(supervisorUri);
+
+		while (true) {
+			Snapshot current = snapshot.get();
+			Map<String, User> users = new LinkedHashMap<String, User>(
+					current.byUri);
+			Map<String, String> supervisors = new HashMap<String, String>(
+					current.supervisors);
+			Map<String, User[]> refreshedReports = new HashMap<String, User[]>(
+					current.refreshedReports);
+
+			apply(current, users, supervisors, supervisorUri, reports);
+			refreshedReports.put(supervisorUri, reports);
+
+			if (snapshot.compareAndSet(current, new Snapshot(users,
+					supervisors, refreshedReports))) {
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Makes the reports the only direct reports of the supervisor.
+	 */
+	protected static void apply(Snapshot snapshot, Map<String, User> users,
+			Map<String, String> supervisors, String supervisorUri,
+			User[] reports) {
+
+		supervisors.values().removeAll(Collections.singleton(supervisorUri));
+
+		if (reports != null) {
+			for (User report : reports) {
+				users.put(report.getUri(),
+						user(snapshot, report.getUri(), report.getLoginName()));
+				supervisors.put(report.getUri(), supervisorUri);
+			}
+		}
+	}
+
+	/**
+	 * @return the indexed user when unchanged, so snapshots share them
+	 */
+	protected static User user(Snapshot snapshot, String uri, String loginName) {
+		User user = snapshot.byUri.get(uri);
+
+		if (user != null && Objects.equals(user.getLoginName(), loginName)) {
+			return user;
+		}
+
+		user = new User();
+		user.setUri(uri);
+		user.setLoginName(loginName);
+
+		return user;
+	}
+
+	protected static String uriOf(ListCell cell) {
+		return cell == null ? null : cell.getUri();
+	}
+
+	protected static String key(String loginName) {
+		return loginName.toLowerCase(Locale.ROOT);
+	}
+
+	protected static class Snapshot {
+
+		protected final Map<String, User> byUri;
+		protected final Map<String, String> supervisors;
+		protected final Map<String, User> byLoginName;
+		protected final Map<String, List<User>> reports;
+
+		/**
+		 * The direct reports refreshed since the last full refresh, by
+		 * supervisor
+		 */
+		protected final Map<String, User[]> refreshedReports;
+
+		protected Snapshot(Map<String, User> byUri,
+				Map<String, String> supervisors,
+				Map<String, User[]> refreshedReports) {
+
+			this.byUri = byUri;
+			this.supervisors = supervisors;
+			this.refreshedReports = refreshedReports;
+			this.byLoginName = new HashMap<String, User>(byUri.size() * 2);
+
+			Map<String, List<User>> reports = new HashMap<String, List<User>>();
+
+			for (User user : byUri.values()) {
+				if (user.getLoginName() != null) {
+					byLoginName.put(key(user.getLoginName()), user);
+				}
+
+				String supervisorUri = supervisors.get(user.getUri());
+
+				if (supervisorUri != null) {
+					List<User> directReports = reports.get(supervisorUri);
+
+					if (directReports == null) {
+						directReports = new ArrayList<User>();
+						reports.put(supervisorUri, directReports);
+					}
+
+					directReports.add(user);
+				}
+			}
+
+			for (Map.Entry<String, List<User>> entry : reports.entrySet()) {
+				entry.setValue(Collections.unmodifiableList(entry.getValue()));
+			}
+
+			this.reports = reports;
+		}
+	}
+}
@@ -0,0 +1,65 @@
+/**
+ * Copyright (C) 2014 Thiago Moreira (tmoreira2020@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package br.com.thiagomoreira.replicon.events;
+
+/**
+ * A slot of the {@link ChangeEventBus} ring, reused for every event published
+ * to it: consumers must copy what they keep beyond
+ * {@link ChangeConsumer#onEvent(ChangeEvent, long, boolean)}.
+ */
+public class ChangeEvent {
+
+	protected Class<?> type;
+	protected String uri;
+	protected Object value;
+	protected boolean firstSeen;
+
+	public Class<?> getType() {
+		return type;
+	}
+
+	/**
+	 * @return the URI of the entity, or a key made of the URIs of the entities
+	 *         an allocation links
+	 */
+	public String getUri() {
+		return uri;
+	}
+
+	/**
+	 * @return the entity as fetched
+	 */
+	public Object getValue() {
+		return value;
+	}
+
+	/**
+	 * @return whether it is the first time the entity is fetched, so there is
+	 *         no earlier version it changed from
+	 */
+	public boolean isFirstSeen() {
+		return firstSeen;
+	}
+
+	protected void set(Class<?> type, String uri, Object value,
+			boolean firstSeen) {
+
+		this.type = type;
+		this.uri = uri;
+		this.value = value;
+		this.firstSeen = firstSeen;
+	}
+}
@@ -0,0 +1,296 @@
+/**
+ * Copyright (C) 2014 Thiago Moreira (tmoreira2020@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package br.com.thiagomoreira.replicon.events;
+
+import java.io.Closeable;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Fans change events out to in-process consumers, Disruptor-style: events are
+ * written into a ring of pre-allocated {@link ChangeEvent} slots and every
+ * consumer, on a daemon thread of its own, follows the ring with its own
+ * sequence cursor. Publishing and consuming take no lock and allocate nothing.
+ * 
+ * Producers claim sequences with a CAS and mark each slot published once
+ * written, consumers see events in sequence order. A producer lapping the
+ * slowest consumer waits for it, so size the ring for the largest burst;
+ * without consumers events are dropped.
+ */
+public class ChangeEventBus implements Closeable {
+
+	protected final ChangeEvent[] entries;
+	protected final int mask;
+	protected final AtomicLongArray published;
+	protected final AtomicLong claimed = new AtomicLong(-1);
+	protected volatile Subscription[] subscriptions = new Subscription[0];
+
+	public ChangeEventBus() {
+		this(1024);
+	}
+
+	/**
+	 * @param size
+	 *            the number of slots, a power of two
+	 */
+	public ChangeEventBus(int size) {
+		if (size < 1 || Integer.bitCount(size) != 1) {
+			throw new IllegalArgumentException("size must be a power of two");
+		}
+
+		this.entries = new ChangeEvent[size];
+		this.mask = size - 1;
+		this.published = new AtomicLongArray(size);
+
+		for (int i = 0; i < size; i++) {
+			entries[i] = new ChangeEvent();
+			published.set(i, -1);
+		}
+	}
+
+	/**
+	 * Starts a daemon thread feeding the consumer the events published from now
+	 * on.
+	 */
+	public Subscription subscribe(ChangeConsumer consumer,
+			WaitStrategy waitStrategy) {
+
+		Subscription subscription = new Subscription(consumer, waitStrategy);
+
+		synchronized (this) {
+			subscription.cursor.set(claimed.get());
+
+			Subscription[] subscriptions = Arrays.copyOf(this.subscriptions,
+					this.subscriptions.length + 1);
+
+			subscriptions[subscriptions.length - 1] = subscription;
+			this.subscriptions = subscriptions;
+
+			// producers that didn't see the subscription yet may have lapped
+			// the ring since, start after them
+			subscription.cursor.set(claimed.get());
+		}
+
+		Thread thread = new Thread(subscription, "replicon-change-consumer-"
+				+ subscriptions.length);
+
+		thread.setDaemon(true);
+		thread.start();
+
+		return subscription;
+	}
+
+	/**
+	 * Publishes an event, waiting for the slowest consumer when the ring is
+	 * full.
+	 */
+	public void publish(Class<?> type, String uri, Object value,
+			boolean firstSeen) {
+
+		long sequence;
+
+		do {
+			sequence = tryClaim();
+
+			if (sequence < 0) {
+				LockSupport.parkNanos(1000);
+			}
+		} while (sequence < 0);
+
+		publish(sequence, type, uri, value, firstSeen);
+	}
+
+	/**
+	 * Publishes an event unless the ring is full.
+	 */
+	public boolean tryPublish(Class<?> type, String uri, Object value,
+			boolean firstSeen) {
+
+		long sequence = tryClaim();
+
+		if (sequence < 0) {
+			return false;
+		}
+
+		publish(sequence, type, uri, value, firstSeen);
+
+		return true;
+	}
+
+	/**
+	 * @return the sequence of the last event claimed by a producer
+	 */
+	public long getCursor() {
+		return claimed.get();
+	}
+
+	public int getSize() {
+		return entries.length;
+	}
+
+	/**
+	 * Stops every consumer after the event it is handling.
+	 */
+	@Override
+	public void close() {
+		for (Subscription subscription : subscriptions) {
+			subscription.close();
+		}
+	}
+
+	/**
+	 * @return the claimed sequence, -1 when claiming it would overwrite an
+	 *         event a consumer hasn't handled yet
+	 */
+	protected long tryClaim() {
+		while (true) {
+			long current = claimed.get();
+			long next = current + 1;
+
+			if (next - entries.length > minimumCursor(current)) {
+				return -1;
+			}
+
+			if (claimed.compareAndSet(current, next)) {
+				return next;
+			}
+		}
+	}
+
+	protected void publish(long sequence, Class<?> type, String uri,
+			Object value, boolean firstSeen) {
+
+		int index = (int) sequence & mask;
+
+		entries[index].set(type, uri, value, firstSeen);
+		published.lazySet(index, sequence);
+	}
+
+	protected long minimumCursor(long claimed) {
+		long minimum = claimed;
+
+		for (Subscription subscription : subscriptions) {
+			if (subscription.running) {
+				minimum = Math.min(minimum, subscription.cursor.get());
+			}
+		}
+
+		return minimum;
+	}
+
+	/**
+	 * @return the last sequence from <code>from</code> on published without
+	 *         gaps, <code>from - 1</code> if none
+	 */
+	protected long highestPublished(long from, long to) {
+		for (long sequence = from; sequence <= to; sequence++) {
+			if (published.get((int) sequence & mask) != sequence) {
+				return sequence - 1;
+			}
+		}
+
+		return to;
+	}
+
+	protected void unsubscribe(Subscription subscription) {
+		synchronized (this) {
+			Subscription[] subscriptions = this.subscriptions;
+
+			for (int i = 0; i < subscriptions.length; i++) {
+				if (subscriptions[i] == subscription) {
+					Subscription[] remaining = new Subscription[subscriptions.length - 1];
+
+					System.arraycopy(subscriptions, 0, remaining, 0, i);
+					System.arraycopy(subscriptions, i + 1, remaining, i,
+							remaining.length - i);
+					this.subscriptions = remaining;
+
+					return;
+				}
+			}
+		}
+	}
+
+	public class Subscription implements Runnable, Closeable {
+
+		protected final ChangeConsumer consumer;
+		protected final WaitStrategy waitStrategy;
+		protected final AtomicLong cursor = new AtomicLong(-1);
+		protected final AtomicLong failures = new AtomicLong();
+		protected volatile boolean running = true;
+
+		protected Subscription(ChangeConsumer consumer,
+				WaitStrategy waitStrategy) {
+
+			this.consumer = consumer;
+			this.waitStrategy = waitStrategy;
+		}
+
+		@Override
+		public void run() {
+			int attempt = 0;
+
+			while (running) {
+				long next = cursor.get() + 1;
+				long available = highestPublished(next, claimed.get());
+
+				if (available < next) {
+					waitStrategy.idle(++attempt);
+
+					continue;
+				}
+
+				attempt = 0;
+
+				for (long sequence = next; sequence <= available; sequence++) {
+					try {
+						consumer.onEvent(entries[(int) sequence & mask],
+								sequence, sequence == available);
+					} catch (Throwable t) {
+						failures.incrementAndGet();
+					}
+				}
+
+				cursor.lazySet(available);
+			}
+		}
+
+		/**
+		 * @return the sequence of the last event handled
+		 */
+		public long getCursor() {
+			return cursor.get();
+		}
+
+		/**
+		 * @return the events the consumer threw on
+		 */
+		public long getFailures() {
+			return failures.get();
+		}
+
+		/**
+		 * Stops the consumer after the event it is handling.
+		 */
+		@Override
+		public void close() {
+			running = false;
+			unsubscribe(this);
+		}
+	}
+}
@@ -0,0 +1,185 @@
+/**
+ * Copyright (C) 2014 Thiago Moreira (tmoreira2020@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package br.com.thiagomoreira.replicon.events;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import br.com.thiagomoreira.replicon.model.Project;
+import br.com.thiagomoreira.replicon.model.ProjectAllocation;
+import br.com.thiagomoreira.replicon.model.Resource;
+import br.com.thiagomoreira.replicon.model.Task;
+import br.com.thiagomoreira.replicon.model.TaskAllocation;
+import br.com.thiagomoreira.replicon.model.TimeOffAllocation;
+import br.com.thiagomoreira.replicon.model.User;
+import br.com.thiagomoreira.replicon.model.operations.GetResourceAllocationSummaryResponse;
+import br.com.thiagomoreira.replicon.model.operations.GetResourceTaskAllocationDetailsResponse;
+
+/**
+ * Detects changed entities in the responses of the client and publishes them to
+ * a {@link ChangeEventBus}. Set on a runtime with
+ * {@link br.com.thiagomoreira.replicon.RepliconRuntime#setChangeTracker(ChangeTracker)}
+ * every fetch feeds it.
+ * 
+ * It keeps the hash of the last version of each user, resource, project, task,
+ * time-off, project allocation and task allocation fetched, by type and URI,
+ * and publishes the entities whose hash differs. Allocations have no URI of
+ * their own and are keyed by the URIs of the entities they link. References
+ * nested in other entities are partial and are not tracked.
+ * 
+ * Tracking runs on the calling thread of every fetch, so by default a change
+ * that doesn't fit the ring is dropped, and its version forgotten so the next
+ * fetch publishes it again, rather than blocking the call on a slow consumer.
+ */
+public class ChangeTracker {
+
+	protected final ChangeEventBus bus;
+	protected final boolean blocking;
+	protected final ConcurrentHashMap<Class<?>, ConcurrentHashMap<String, Integer>> hashes = new ConcurrentHashMap<Class<?>, ConcurrentHashMap<String, Integer>>();
+	protected final AtomicLong dropped = new AtomicLong();
+
+	public ChangeTracker(ChangeEventBus bus) {
+		this(bus, false);
+	}
+
+	/**
+	 * @param blocking
+	 *            whether a fetch waits for the slowest consumer when the ring
+	 *            is full instead of dropping the change
+	 */
+	public ChangeTracker(ChangeEventBus bus, boolean blocking) {
+		this.bus = bus;
+		this.blocking = blocking;
+	}
+
+	public void track(Object value) {
+		if (value instanceof Object[]) {
+			for (Object element : (Object[]) value) {
+				track(element);
+			}
+		} else if (value instanceof User) {
+			track(User.class, ((User) value).getUri(), value);
+		} else if (value instanceof Resource) {
+			track(Resource.class, ((Resource) value).getUri(), value);
+		} else if (value instanceof Project) {
+			track(Project.class, ((Project) value).getUri(), value);
+		} else if (value instanceof Task) {
+			track(Task.class, ((Task) value).getUri(), value);
+		} else if (value instanceof TimeOffAllocation) {
+			track(TimeOffAllocation.class,
+					((TimeOffAllocation) value).getUri(), value);
+		} else if (value instanceof ProjectAllocation) {
+			ProjectAllocation allocation = (ProjectAllocation) value;
+
+			if (allocation.getProject() != null
+					&& allocation.getResource() != null) {
+
+				track(ProjectAllocation.class, allocation.getProject().getUri()
+						+ " " + allocation.getResource().getUri(), allocation);
+			}
+		} else if (value instanceof GetResourceAllocationSummaryResponse) {
+			track(((GetResourceAllocationSummaryResponse) value)
+					.getProjectsAllocatedTo());
+		} else if (value instanceof GetResourceTaskAllocationDetailsResponse) {
+			GetResourceTaskAllocationDetailsResponse response = (GetResourceTaskAllocationDetailsResponse) value;
+
+			if (response.getEntries() != null && response.getResource() != null) {
+				for (TaskAllocation allocation : response.getEntries()) {
+					if (allocation.getTask() != null) {
+						track(TaskAllocation.class, allocation.getTask()
+								.getUri()
+								+ " "
+								+ response.getResource().getUri(), allocation);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Forgets every version seen, the next fetch of each entity is published as
+	 * first seen.
+	 */
+	public void clear() {
+		hashes.clear();
+	}
+
+	/**
+	 * @return the changes dropped because the ring was full
+	 */
+	public long getDropped() {
+		return dropped.get();
+	}
+
+	protected void track(Class<?> type, String uri, Object value) {
+		if (uri == null) {
+			return;
+		}
+
+		ConcurrentHashMap<String, Integer> hashes = this.hashes.get(type);
+
+		if (hashes == null) {
+			ConcurrentHashMap<String, Integer> newHashes = new ConcurrentHashMap<String, Integer>();
+
+			hashes = this.hashes.putIfAbsent(type, newHashes);
+			if (hashes == null) {
+				hashes = newHashes;
+			}
+		}
+
+		int hash = value.hashCode();
+
+		while (true) {
+			Integer previous = hashes.get(uri);
+
+			if (previous == null) {
+				if (hashes.putIfAbsent(uri, hash) == null) {
+					if (!publish(type, uri, value, true)) {
+						hashes.remove(uri, hash);
+					}
+
+					return;
+				}
+			} else if (previous.intValue() == hash) {
+				return;
+			} else if (hashes.replace(uri, previous, hash)) {
+				if (!publish(type, uri, value, false)) {
+					hashes.replace(uri, hash, previous);
+				}
+
+				return;
+			}
+		}
+	}
+
+	protected boolean publish(Class<?> type, String uri, Object value,
+			boolean firstSeen) {
+
+		if (blocking) {
+			bus.publish(type, uri, value, firstSeen);
+
+			return true;
+		}
+
+		if (bus.tryPublish(type, uri, value, firstSeen)) {
+			return true;
+		}
+
+		dropped.incrementAndGet();
+
+		return false;
+	}
+}
@@ -0,0 +1,76 @@
+/**
+ * Copyright (C) 2014 Thiago Moreira (tmoreira2020@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package br.com.thiagomoreira.replicon.events;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * What a consumer thread does while no event is available, trading latency for
+ * CPU.
+ */
+public interface WaitStrategy {
+
+	/**
+	 * Spins on a core, the lowest latency for consumers with a core of their
+	 * own.
+	 */
+	WaitStrategy BUSY_SPIN = new WaitStrategy() {
+		@Override
+		public void idle(int attempt) {
+		}
+	};
+
+	/**
+	 * Spins for a while then yields the core to other threads.
+	 */
+	WaitStrategy YIELD = new WaitStrategy() {
+		@Override
+		public void idle(int attempt) {
+			if (attempt > 100) {
+				Thread.yield();
+			}
+		}
+	};
+
+	/**
+	 * Spins, yields, then sleeps 100 microseconds at a time, nearly no CPU when
+	 * idle; the default.
+	 */
+	WaitStrategy PARK = park(100, TimeUnit.MICROSECONDS);
+
+	/**
+	 * @param attempt
+	 *            the number of times the consumer found nothing since the last
+	 *            event
+	 */
+	void idle(int attempt);
+
+	static WaitStrategy park(long time, TimeUnit unit) {
+		final long nanos = unit.toNanos(time);
+
+		return new WaitStrategy() {
+			@Override
+			public void idle(int attempt) {
+				if (attempt > 200) {
+					LockSupport.parkNanos(nanos);
+				} else if (attempt > 100) {
+					Thread.yield();
+				}
+			}
+		};
+	}
+}
@@ -0,0 +1,283 @@
+/**
+ * Copyright (C) 2014 Thiago Moreira (tmoreira2020@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package br.com.thiagomoreira.replicon.index;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import br.com.thiagomoreira.replicon.model.DateRange;
+import br.com.thiagomoreira.replicon.model.ProjectAllocation;
+import br.com.thiagomoreira.replicon.model.TaskAllocation;
+import br.com.thiagomoreira.replicon.model.TimeOffAllocation;
+import br.com.thiagomoreira.replicon.util.DateUtil;
+
+/**
+ * In-memory index over fetched project allocations, task allocations and
+ * time-off answering "who is allocated or on leave on a date or during a range"
+ * per resource, per project and for the whole tenant without scanning every
+ * record. Built once with a {@link Builder}, immutable afterwards and therefore
+ * safe to share between threads.
+ */
+public class AllocationIndex {
+
+	protected final IntervalIndex<ProjectAllocation> projectAllocations;
+	protected final Map<String, IntervalIndex<ProjectAllocation>> projectAllocationsByResource;
+	protected final Map<String, IntervalIndex<ProjectAllocation>> projectAllocationsByProject;
+	protected final Map<String, IntervalIndex<TaskAllocation>> taskAllocationsByResource;
+	protected final IntervalIndex<TimeOffAllocation> timeOff;
+	protected final Map<String, IntervalIndex<TimeOffAllocation>> timeOffByResource;
+	protected final Map<ProjectAllocation, String> resourceByProjectAllocation;
+
+	protected AllocationIndex(Builder builder) {
+		this.projectAllocations = builder.projectAllocations.build();
+		this.projectAllocationsByResource = build(builder.projectAllocationsByResource);
+		this.projectAllocationsByProject = build(builder.projectAllocationsByProject);
+		this.taskAllocationsByResource = build(builder.taskAllocationsByResource);
+		this.timeOff = builder.timeOff.build();
+		this.timeOffByResource = build(builder.timeOffByResource);
+		this.resourceByProjectAllocation = new IdentityHashMap<ProjectAllocation, String>(
+				builder.resourceByProjectAllocation);
+	}
+
+	public List<ProjectAllocation> getProjectAllocations(DateRange dateRange) {
+		return projectAllocations.overlapping(DateUtil.interval(dateRange));
+	}
+
+	public List<ProjectAllocation> getProjectAllocations(String resourceUri,
+			DateRange dateRange) {
+		return get(projectAllocationsByResource, resourceUri).overlapping(
+				DateUtil.interval(dateRange));
+	}
+
+	public List<ProjectAllocation> getProjectAllocations(String resourceUri,
+			int epochDay) {
+		return get(projectAllocationsByResource, resourceUri).stab(epochDay);
+	}
+
+	public List<ProjectAllocation> getProjectAllocationsByProject(
+			String projectUri, DateRange dateRange) {
+		return get(projectAllocationsByProject, projectUri).overlapping(
+				DateUtil.interval(dateRange));
+	}
+
+	public List<TaskAllocation> getTaskAllocations(String resourceUri,
+			DateRange dateRange) {
+		return get(taskAllocationsByResource, resourceUri).overlapping(
+				DateUtil.interval(dateRange));
+	}
+
+	public List<TimeOffAllocation> getTimeOff(DateRange dateRange) {
+		return timeOff.overlapping(DateUtil.interval(dateRange));
+	}
+
+	public List<TimeOffAllocation> getTimeOff(String resourceUri,
+			DateRange dateRange) {
+		return get(timeOffByResource, resourceUri).overlapping(
+				DateUtil.interval(dateRange));
+	}
+
+	public List<TimeOffAllocation> getTimeOff(String resourceUri, int epochDay) {
+		return get(timeOffByResource, resourceUri).stab(epochDay);
+	}
+
+	/**
+	 * @return the resources with at least one project allocation overlapping
+	 *         the range
+	 */
+	public Set<String> getAllocatedResources(DateRange dateRange) {
+		Set<String> resources = new LinkedHashSet<String>();
+
+		for (ProjectAllocation allocation : getProjectAllocations(dateRange)) {
+			resources.add(resourceByProjectAllocation.get(allocation));
+		}
+
+		return resources;
+	}
+
+	/**
+	 * @return the resources on the given project during the range
+	 */
+	public Set<String> getAllocatedResources(String projectUri,
+			DateRange dateRange) {
+		Set<String> resources = new LinkedHashSet<String>();
+
+		for (ProjectAllocation allocation : getProjectAllocationsByProject(
+				projectUri, dateRange)) {
+			resources.add(resourceByProjectAllocation.get(allocation));
+		}
+
+		return resources;
+	}
+
+	public Set<String> getResourcesOnLeave(DateRange dateRange) {
+		Set<String> resources = new LinkedHashSet<String>();
+
+		for (TimeOffAllocation allocation : getTimeOff(dateRange)) {
+			resources.add(allocation.getOwner().getUri());
+		}
+
+		return resources;
+	}
+
+	public boolean isAllocated(String resourceUri, DateRange dateRange) {
+		long interval = DateUtil.interval(dateRange);
+
+		return get(projectAllocationsByResource, resourceUri).overlaps(
+				DateUtil.intervalStart(interval),
+				DateUtil.intervalEnd(interval));
+	}
+
+	public boolean isOnLeave(String resourceUri, DateRange dateRange) {
+		long interval = DateUtil.interval(dateRange);
+
+		return get(timeOffByResource, resourceUri).overlaps(
+				DateUtil.intervalStart(interval),
+				DateUtil.intervalEnd(interval));
+	}
+
+	protected static <T> IntervalIndex<T> get(
+			Map<String, IntervalIndex<T>> indexes, String key) {
+		IntervalIndex<T> index = indexes.get(key);
+
+		if (index == null) {
+			return IntervalIndex.empty();
+		}
+
+		return index;
+	}
+
+	protected static <T> Map<String, IntervalIndex<T>> build(
+			Map<String, IntervalIndex.Builder<T>> builders) {
+		Map<String, IntervalIndex<T>> indexes = new HashMap<String, IntervalIndex<T>>(
+				builders.size() * 2);
+
+		for (Map.Entry<String, IntervalIndex.Builder<T>> entry : builders
+				.entrySet()) {
+			indexes.put(entry.getKey(), entry.getValue().build());
+		}
+
+		return Collections.unmodifiableMap(indexes);
+	}
+
+	public static class Builder {
+
+		protected final IntervalIndex.Builder<ProjectAllocation> projectAllocations = new IntervalIndex.Builder<ProjectAllocation>();
+		protected final Map<String, IntervalIndex.Builder<ProjectAllocation>> projectAllocationsByResource = new HashMap<String, IntervalIndex.Builder<ProjectAllocation>>();
+		protected final Map<String, IntervalIndex.Builder<ProjectAllocation>> projectAllocationsByProject = new HashMap<String, IntervalIndex.Builder<ProjectAllocation>>();
+		protected final Map<String, IntervalIndex.Builder<TaskAllocation>> taskAllocationsByResource = new HashMap<String, IntervalIndex.Builder<TaskAllocation>>();
+		protected final IntervalIndex.Builder<TimeOffAllocation> timeOff = new IntervalIndex.Builder<TimeOffAllocation>();
+		protected final Map<String, IntervalIndex.Builder<TimeOffAllocation>> timeOffByResource = new HashMap<String, IntervalIndex.Builder<TimeOffAllocation>>();
+		protected final Map<ProjectAllocation, String> resourceByProjectAllocation = new IdentityHashMap<ProjectAllocation, String>();
+
+		/**
+		 * Adds the result of
+		 * {@link br.com.thiagomoreira.replicon.Replicon#getProjectAllocations}
+		 * for the given resource.
+		 */
+		public Builder addProjectAllocations(String resourceUri,
+				ProjectAllocation... allocations) {
+			for (ProjectAllocation allocation : allocations) {
+				if (allocation.getAllocationDateRange() == null) {
+					continue;
+				}
+
+				long interval = DateUtil.interval(allocation
+						.getAllocationDateRange());
+
+				projectAllocations.add(interval, allocation);
+				builder(projectAllocationsByResource, resourceUri).add(
+						interval, allocation);
+				if (allocation.getProject() != null) {
+					builder(projectAllocationsByProject,
+							allocation.getProject().getUri()).add(interval,
+							allocation);
+				}
+				resourceByProjectAllocation.put(allocation, resourceUri);
+			}
+
+			return this;
+		}
+
+		/**
+		 * Adds the result of
+		 * {@link br.com.thiagomoreira.replicon.Replicon#getTaskAllocations} for
+		 * the given resource.
+		 */
+		public Builder addTaskAllocations(String resourceUri,
+				TaskAllocation... allocations) {
+			for (TaskAllocation allocation : allocations) {
+				if (allocation.getAllocationDateRange() == null) {
+					continue;
+				}
+
+				builder(taskAllocationsByResource, resourceUri).add(
+						DateUtil.interval(allocation.getAllocationDateRange()),
+						allocation);
+			}
+
+			return this;
+		}
+
+		/**
+		 * Adds time-off, indexed under the URI of its owner. Time-off without
+		 * dates or owner is skipped.
+		 */
+		public Builder addTimeOff(TimeOffAllocation... allocations) {
+			for (TimeOffAllocation allocation : allocations) {
+				if (allocation.getStartDateDetails() == null
+						|| allocation.getStartDateDetails().getDate() == null
+						|| allocation.getEndDateDetails() == null
+						|| allocation.getEndDateDetails().getDate() == null
+						|| allocation.getOwner() == null) {
+					continue;
+				}
+
+				long interval = DateUtil.interval(
+						(int) DateUtil.toEpochDay(allocation
+								.getStartDateDetails().getDate()),
+						(int) DateUtil.toEpochDay(allocation
+								.getEndDateDetails().getDate()));
+
+				timeOff.add(interval, allocation);
+				builder(timeOffByResource, allocation.getOwner().getUri()).add(
+						interval, allocation);
+			}
+
+			return this;
+		}
+
+		public AllocationIndex build() {
+			return new AllocationIndex(this);
+		}
+
+		protected static <T> IntervalIndex.Builder<T> builder(
+				Map<String, IntervalIndex.Builder<T>> builders, String key) {
+			IntervalIndex.Builder<T> builder = builders.get(key);
+
+			if (builder == null) {
+				builder = new IntervalIndex.Builder<T>();
+				builders.put(key, builder);
+			}
+
+			return builder;
+		}
+	}
+}
@@ -0,0 +1,207 @@
+/**
+ * Copyright (C) 2014 Thiago Moreira (tmoreira2020@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package br.com.thiagomoreira.replicon.index;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import br.com.thiagomoreira.replicon.util.DateUtil;
+
+/**
+ * Immutable static interval tree over inclusive epoch-day intervals (see
+ * {@link DateUtil#interval(int, int)}). Intervals are kept sorted by start in
+ * primitive arrays and the tree is implicit: the node of a slice is its middle
+ * element and stores the greatest end of the slice, which lets stabbing and
+ * overlap queries prune whole subtrees and run in O(log n + k).
+ */
+public class IntervalIndex<T> {
+
+	protected final int[] starts;
+	protected final int[] ends;
+	protected final int[] maxEnds;
+	protected final Object[] values;
+
+	@SuppressWarnings("rawtypes")
+	protected static final IntervalIndex EMPTY = new IntervalIndex<Object>(
+			new long[0], new Object[0]);
+
+	@SuppressWarnings("unchecked")
+	public static <T> IntervalIndex<T> empty() {
+		return EMPTY;
+	}
+
+	protected IntervalIndex(final long[] intervals, Object[] values) {
+		Integer[] order = new Integer[intervals.length];
+
+		for (int i = 0; i < order.length; i++) {
+			order[i] = i;
+		}
+
+		Arrays.sort(order, new Comparator<Integer>() {
+			@Override
+			public int compare(Integer o1, Integer o2) {
+				return Long.compare(intervals[o1], intervals[o2]);
+			}
+		});
+
+		this.starts = new int[intervals.length];
+		this.ends = new int[intervals.length];
+		this.maxEnds = new int[intervals.length];
+		this.values = new Object[intervals.length];
+
+		for (int i = 0; i < order.length; i++) {
+			starts[i] = DateUtil.intervalStart(intervals[order[i]]);
+			ends[i] = DateUtil.intervalEnd(intervals[order[i]]);
+			this.values[i] = values[order[i]];
+		}
+
+		computeMaxEnds(0, starts.length - 1);
+	}
+
+	public int size() {
+		return starts.length;
+	}
+
+	/**
+	 * @return the values whose interval contains the given epoch day
+	 */
+	public List<T> stab(int epochDay) {
+		return overlapping(epochDay, epochDay);
+	}
+
+	/**
+	 * @return the values whose interval shares at least one day with the given
+	 *         inclusive range, in start order
+	 */
+	public List<T> overlapping(int startEpochDay, int endEpochDay) {
+		if (starts.length == 0) {
+			return Collections.emptyList();
+		}
+
+		List<T> result = new ArrayList<T>();
+
+		collect(0, starts.length - 1, startEpochDay, endEpochDay, result);
+
+		return result;
+	}
+
+	public List<T> overlapping(long interval) {
+		return overlapping(DateUtil.intervalStart(interval),
+				DateUtil.intervalEnd(interval));
+	}
+
+	/**
+	 * @return whether any interval shares at least one day with the given
+	 *         inclusive range, without collecting the matches
+	 */
+	public boolean overlaps(int startEpochDay, int endEpochDay) {
+		return starts.length > 0
+				&& any(0, starts.length - 1, startEpochDay, endEpochDay);
+	}
+
+	protected int computeMaxEnds(int low, int high) {
+		if (low > high) {
+			return Integer.MIN_VALUE;
+		}
+
+		int middle = (low + high) >>> 1;
+		int maxEnd = Math.max(
+				ends[middle],
+				Math.max(computeMaxEnds(low, middle - 1),
+						computeMaxEnds(middle + 1, high)));
+
+		maxEnds[middle] = maxEnd;
+
+		return maxEnd;
+	}
+
+	@SuppressWarnings("unchecked")
+	protected void collect(int low, int high, int start, int end, List<T> result) {
+		while (low <= high) {
+			int middle = (low + high) >>> 1;
+
+			if (maxEnds[middle] < start) {
+				return;
+			}
+
+			collect(low, middle - 1, start, end, result);
+
+			if (starts[middle] > end) {
+				return;
+			}
+
+			if (ends[middle] >= start) {
+				result.add((T) values[middle]);
+			}
+
+			low = middle + 1;
+		}
+	}
+
+	protected boolean any(int low, int high, int start, int end) {
+		while (low <= high) {
+			int middle = (low + high) >>> 1;
+
+			if (maxEnds[middle] < start) {
+				return false;
+			}
+
+			if (starts[middle] <= end && ends[middle] >= start) {
+				return true;
+			}
+
+			if (any(low, middle - 1, start, end)) {
+				return true;
+			}
+
+			if (starts[middle] > end) {
+				return false;
+			}
+
+			low = middle + 1;
+		}
+
+		return false;
+	}
+
+	public static class Builder<T> {
+
+		protected long[] intervals = new long[16];
+		protected Object[] values = new Object[16];
+		protected int size;
+
+		public Builder<T> add(long interval, T value) {
+			if (size == intervals.length) {
+				intervals = Arrays.copyOf(intervals, size * 2);
+				values = Arrays.copyOf(values, size * 2);
+			}
+
+			intervals[size] = interval;
+			values[size] = value;
+			size++;
+
+			return this;
+		}
+
+		public IntervalIndex<T> build() {
+			return new IntervalIndex<T>(Arrays.copyOf(intervals, size),
+					Arrays.copyOf(values, size));
+		}
+	}
+}
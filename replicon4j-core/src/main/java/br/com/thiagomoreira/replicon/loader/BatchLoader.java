@@ -0,0 +1,308 @@
+/**
+ * Copyright (C) 2014 Thiago Moreira (tmoreira2020@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package br.com.thiagomoreira.replicon.loader;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import br.com.thiagomoreira.replicon.Priority;
+
+/**
+ * DataLoader-style loader: keys requested during one tick are queued and
+ * resolved together once the tick elapses, each distinct key is fetched once no
+ * matter how many callers asked for it, and no more than
+ * <code>maxConcurrency</code> fetches run at the same time.
+ * 
+ * Collect the futures of all the references first and join them afterwards,
+ * joining each future right after requesting it serializes the fetches again.
+ * 
+ * Loaded values are cached, up to <code>maxCached</code> of them: past it the
+ * oldest are forgotten first.
+ */
+public class BatchLoader<K, V> {
+
+	protected final Fetcher<K, V> fetcher;
+	protected final Executor executor;
+	protected final ScheduledExecutorService scheduler;
+	protected final long tickNanos;
+	protected final int maxConcurrency;
+	protected final ConcurrentHashMap<K, CompletableFuture<V>> futures = new ConcurrentHashMap<K, CompletableFuture<V>>();
+	protected final ConcurrentLinkedQueue<PendingLoad<K, V>> pending = new ConcurrentLinkedQueue<PendingLoad<K, V>>();
+	protected final AtomicBoolean dispatchScheduled = new AtomicBoolean();
+	protected final AtomicInteger activeWorkers = new AtomicInteger();
+	protected final AtomicLong dispatches = new AtomicLong();
+	protected final AtomicLong fetches = new AtomicLong();
+	protected final ConcurrentLinkedQueue<Map.Entry<K, CompletableFuture<V>>> cached = new ConcurrentLinkedQueue<Map.Entry<K, CompletableFuture<V>>>();
+	protected final AtomicInteger cachedCount = new AtomicInteger();
+	protected volatile boolean caching = true;
+	protected volatile int maxCached = 10000;
+
+	public BatchLoader(Fetcher<K, V> fetcher, Executor executor,
+			ScheduledExecutorService scheduler, long tick, TimeUnit unit,
+			int maxConcurrency) {
+		if (maxConcurrency < 1) {
+			throw new IllegalArgumentException(
+					"maxConcurrency must be positive");
+		}
+
+		this.fetcher = fetcher;
+		this.executor = executor;
+		this.scheduler = scheduler;
+		this.tickNanos = unit.toNanos(tick);
+		this.maxConcurrency = maxConcurrency;
+	}
+
+	public CompletableFuture<V> load(K key) {
+		CompletableFuture<V> future = futures.get(key);
+
+		if (future != null) {
+			return future;
+		}
+
+		CompletableFuture<V> newFuture = new CompletableFuture<V>();
+
+		future = futures.putIfAbsent(key, newFuture);
+		if (future != null) {
+			return future;
+		}
+
+		pending.add(new PendingLoad<K, V>(key, newFuture, Priority.current()));
+		scheduleDispatch();
+
+		return newFuture;
+	}
+
+	public List<CompletableFuture<V>> loadAll(Collection<? extends K> keys) {
+		List<CompletableFuture<V>> result = new ArrayList<CompletableFuture<V>>(
+				keys.size());
+
+		for (K key : keys) {
+			result.add(load(key));
+		}
+
+		return result;
+	}
+
+	/**
+	 * Seeds the loader with an already known value.
+	 */
+	public void prime(K key, V value) {
+		CompletableFuture<V> future = CompletableFuture.completedFuture(value);
+
+		if (futures.putIfAbsent(key, future) == null) {
+			cache(key, future);
+		}
+	}
+
+	/**
+	 * Forgets every loaded value, in-flight loads complete normally.
+	 */
+	public void clear() {
+		while (cached.poll() != null) {
+			cachedCount.decrementAndGet();
+		}
+
+		futures.clear();
+	}
+
+	/**
+	 * When disabled, values are forgotten as soon as their load completes and
+	 * only concurrent requests for the same key are coalesced.
+	 */
+	public void setCaching(boolean caching) {
+		this.caching = caching;
+	}
+
+	public int getMaxCached() {
+		return maxCached;
+	}
+
+	public void setMaxCached(int maxCached) {
+		if (maxCached < 1) {
+			throw new IllegalArgumentException("maxCached must be positive");
+		}
+
+		this.maxCached = maxCached;
+	}
+
+	/**
+	 * @return the values cached, in-flight loads excluded
+	 */
+	public int getCachedCount() {
+		return cachedCount.get();
+	}
+
+	public long getDispatchCount() {
+		return dispatches.get();
+	}
+
+	public long getFetchCount() {
+		return fetches.get();
+	}
+
+	protected void scheduleDispatch() {
+		if (!dispatchScheduled.compareAndSet(false, true)) {
+			return;
+		}
+
+		Runnable dispatch = new Runnable() {
+			@Override
+			public void run() {
+				dispatchScheduled.set(false);
+				dispatches.incrementAndGet();
+				startWorkers();
+			}
+		};
+
+		try {
+			if (tickNanos > 0) {
+				scheduler.schedule(dispatch, tickNanos, TimeUnit.NANOSECONDS);
+			} else {
+				executor.execute(dispatch);
+			}
+		} catch (RejectedExecutionException e) {
+			dispatchScheduled.set(false);
+			failPending(e);
+		}
+	}
+
+	protected void startWorkers() {
+		while (!pending.isEmpty()) {
+			int active = activeWorkers.get();
+
+			if (active >= maxConcurrency) {
+				return;
+			}
+
+			if (activeWorkers.compareAndSet(active, active + 1)) {
+				try {
+					executor.execute(new Runnable() {
+						@Override
+						public void run() {
+							work();
+						}
+					});
+				} catch (RejectedExecutionException e) {
+					activeWorkers.decrementAndGet();
+					failPending(e);
+
+					return;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Fails the queued keys once the executors turn work down, nothing would
+	 * fetch them otherwise. Keys queued afterwards are left alone, the
+	 * executors may take work again by then.
+	 */
+	protected void failPending(Throwable t) {
+		int count = pending.size();
+		PendingLoad<K, V> load;
+
+		while (count-- > 0 && (load = pending.poll()) != null) {
+			futures.remove(load.key, load.future);
+			load.future.completeExceptionally(t);
+		}
+	}
+
+	protected void work() {
+		try {
+			PendingLoad<K, V> load;
+
+			while ((load = pending.poll()) != null) {
+				// with the priority of the caller that requested the key
+				Priority previous = Priority.override(load.priority);
+
+				try {
+					fetch(load.key, load.future);
+				} finally {
+					Priority.override(previous);
+				}
+			}
+		} finally {
+			activeWorkers.decrementAndGet();
+		}
+
+		// keys queued while this worker was leaving would be stranded
+		if (!pending.isEmpty()) {
+			startWorkers();
+		}
+	}
+
+	protected void fetch(K key, CompletableFuture<V> future) {
+		fetches.incrementAndGet();
+
+		try {
+			V value = fetcher.fetch(key);
+
+			// before completing, so callers see the cache up to date
+			if (caching) {
+				cache(key, future);
+			} else {
+				futures.remove(key, future);
+			}
+
+			future.complete(value);
+		} catch (Throwable t) {
+			futures.remove(key, future);
+			future.completeExceptionally(t);
+		}
+	}
+
+	protected void cache(K key, CompletableFuture<V> future) {
+		cached.add(new AbstractMap.SimpleImmutableEntry<K, CompletableFuture<V>>(
+				key, future));
+		cachedCount.incrementAndGet();
+
+		Map.Entry<K, CompletableFuture<V>> eldest;
+
+		while (cachedCount.get() > maxCached
+				&& (eldest = cached.poll()) != null) {
+
+			cachedCount.decrementAndGet();
+			futures.remove(eldest.getKey(), eldest.getValue());
+		}
+	}
+
+	protected static class PendingLoad<K, V> {
+
+		protected final K key;
+		protected final CompletableFuture<V> future;
+		protected final Priority priority;
+
+		protected PendingLoad(K key, CompletableFuture<V> future,
+				Priority priority) {
+			this.key = key;
+			this.future = future;
+			this.priority = priority;
+		}
+	}
+}
@@ -0,0 +1,208 @@
+/**
+ * Copyright (C) 2014 Thiago Moreira (tmoreira2020@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package br.com.thiagomoreira.replicon.loader;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import br.com.thiagomoreira.replicon.Replicon;
+import br.com.thiagomoreira.replicon.RepliconRuntime;
+import br.com.thiagomoreira.replicon.model.Project;
+import br.com.thiagomoreira.replicon.model.ProjectAllocation;
+import br.com.thiagomoreira.replicon.model.Resource;
+import br.com.thiagomoreira.replicon.model.Task;
+import br.com.thiagomoreira.replicon.model.TaskAllocation;
+import br.com.thiagomoreira.replicon.model.TimeOffAllocation;
+import br.com.thiagomoreira.replicon.model.User;
+
+/**
+ * Resolves the partial references Replicon embeds in its responses (usually
+ * just a URI and a display text) into full objects. Every reference requested
+ * within a tick is queued per type and fetched together with bounded
+ * concurrency, so hydrating N allocations costs one round of parallel calls per
+ * distinct URI instead of N sequential ones. The API has no call fetching
+ * several entities at once, so a batch is a round of single calls.
+ * 
+ * Each loader keeps up to {@link BatchLoader#getMaxCached()} resolved
+ * references, see {@link BatchLoader#setMaxCached(int)}.
+ * 
+ * Obtained with {@link Replicon#getReferenceLoader()}.
+ */
+public class ReferenceLoader {
+
+	public static final long DEFAULT_TICK_MILLIS = 2;
+	public static final int DEFAULT_MAX_CONCURRENCY = 8;
+
+	protected final BatchLoader<String, Project> projects;
+	protected final BatchLoader<String, Resource> resources;
+	protected final BatchLoader<String, Task> tasks;
+	protected final BatchLoader<String, User> usersByLoginName;
+
+	public ReferenceLoader(Replicon replicon) {
+		this(replicon, DEFAULT_TICK_MILLIS, TimeUnit.MILLISECONDS,
+				DEFAULT_MAX_CONCURRENCY);
+	}
+
+	public ReferenceLoader(final Replicon replicon, long tick, TimeUnit unit,
+			int maxConcurrency) {
+		RepliconRuntime runtime = replicon.getRuntime();
+
+		this.projects = new BatchLoader<String, Project>(
+				new Fetcher<String, Project>() {
+					@Override
+					public Project fetch(String projectUri) throws IOException {
+						return replicon.getProject(projectUri);
+					}
+				}, runtime.getExecutor(), runtime.getScheduler(), tick, unit,
+				maxConcurrency);
+		this.resources = new BatchLoader<String, Resource>(
+				new Fetcher<String, Resource>() {
+					@Override
+					public Resource fetch(String resourceUri)
+							throws IOException {
+						return replicon.getResource(resourceUri);
+					}
+				}, runtime.getExecutor(), runtime.getScheduler(), tick, unit,
+				maxConcurrency);
+		this.tasks = new BatchLoader<String, Task>(new Fetcher<String, Task>() {
+			@Override
+			public Task fetch(String taskUri) throws IOException {
+				return replicon.getTask(taskUri);
+			}
+		}, runtime.getExecutor(), runtime.getScheduler(), tick, unit,
+				maxConcurrency);
+		this.usersByLoginName = new BatchLoader<String, User>(
+				new Fetcher<String, User>() {
+					@Override
+					public User fetch(String loginName) throws IOException {
+						return replicon.getUserByLoginName(loginName);
+					}
+				}, runtime.getExecutor(), runtime.getScheduler(), tick, unit,
+				maxConcurrency);
+	}
+
+	public CompletableFuture<Project> project(ProjectAllocation allocation) {
+		return projects.load(allocation.getProject().getUri());
+	}
+
+	public CompletableFuture<Resource> resource(ProjectAllocation allocation) {
+		return resources.load(allocation.getResource().getUri());
+	}
+
+	public CompletableFuture<Task> task(TaskAllocation allocation) {
+		return tasks.load(allocation.getTask().getUri());
+	}
+
+	/**
+	 * Resolves the owner of the time-off into its resource, which shares the
+	 * user URI.
+	 */
+	public CompletableFuture<Resource> owner(TimeOffAllocation allocation) {
+		return resources.load(allocation.getOwner().getUri());
+	}
+
+	/**
+	 * Resolves the user of the resource, the reference must carry its login
+	 * name.
+	 */
+	public CompletableFuture<User> user(Resource resource) {
+		return usersByLoginName.load(resource.getUser().getLoginName());
+	}
+
+	/**
+	 * Hydrates the projects of all the allocations in one batch.
+	 * 
+	 * @return the full projects keyed by URI
+	 */
+	public Map<String, Project> projects(
+			Collection<ProjectAllocation> allocations) {
+		Map<String, CompletableFuture<Project>> futures = new LinkedHashMap<String, CompletableFuture<Project>>();
+
+		for (ProjectAllocation allocation : allocations) {
+			futures.put(allocation.getProject().getUri(), project(allocation));
+		}
+
+		return join(futures);
+	}
+
+	/**
+	 * Hydrates the owners of all the time-off in one batch.
+	 * 
+	 * @return the full resources keyed by URI
+	 */
+	public Map<String, Resource> owners(Collection<TimeOffAllocation> timeOff) {
+		Map<String, CompletableFuture<Resource>> futures = new LinkedHashMap<String, CompletableFuture<Resource>>();
+
+		for (TimeOffAllocation allocation : timeOff) {
+			futures.put(allocation.getOwner().getUri(), owner(allocation));
+		}
+
+		return join(futures);
+	}
+
+	/**
+	 * Hydrates the tasks of all the allocations in one batch.
+	 * 
+	 * @return the full tasks keyed by URI
+	 */
+	public Map<String, Task> tasks(Collection<TaskAllocation> allocations) {
+		Map<String, CompletableFuture<Task>> futures = new LinkedHashMap<String, CompletableFuture<Task>>();
+
+		for (TaskAllocation allocation : allocations) {
+			futures.put(allocation.getTask().getUri(), task(allocation));
+		}
+
+		return join(futures);
+	}
+
+	public BatchLoader<String, Project> getProjects() {
+		return projects;
+	}
+
+	public BatchLoader<String, Resource> getResources() {
+		return resources;
+	}
+
+	public BatchLoader<String, Task> getTasks() {
+		return tasks;
+	}
+
+	public BatchLoader<String, User> getUsersByLoginName() {
+		return usersByLoginName;
+	}
+
+	public void clear() {
+		projects.clear();
+		resources.clear();
+		tasks.clear();
+		usersByLoginName.clear();
+	}
+
+	protected static <T> Map<String, T> join(
+			Map<String, CompletableFuture<T>> futures) {
+		Map<String, T> result = new LinkedHashMap<String, T>(futures.size() * 2);
+
+		for (Map.Entry<String, CompletableFuture<T>> entry : futures.entrySet()) {
+			result.put(entry.getKey(), entry.getValue().join());
+		}
+
+		return result;
+	}
+}
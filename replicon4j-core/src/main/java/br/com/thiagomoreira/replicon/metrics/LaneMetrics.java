@@ -0,0 +1,105 @@
+/**
+ * Copyright (C) 2014 Thiago Moreira (tmoreira2020@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package br.com.thiagomoreira.replicon.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Queue depth and waits of one lane of
+ * {@link br.com.thiagomoreira.replicon.PriorityLanes}.
+ */
+public class LaneMetrics {
+
+	protected final AtomicInteger queued = new AtomicInteger();
+	protected final AtomicInteger maxQueued = new AtomicInteger();
+	protected final AtomicInteger active = new AtomicInteger();
+	protected final LongAdder calls = new LongAdder();
+	protected final LongAdder queuedCalls = new LongAdder();
+	protected final LongAdder waitNanos = new LongAdder();
+
+	public void enqueued() {
+		int depth = queued.incrementAndGet();
+		int max = maxQueued.get();
+
+		while (depth > max && !maxQueued.compareAndSet(max, depth)) {
+			max = maxQueued.get();
+		}
+	}
+
+	public void dequeued() {
+		queued.decrementAndGet();
+	}
+
+	/**
+	 * @param waitNanos
+	 *            the time the call waited in the queue, 0 if it didn't queue
+	 */
+	public void started(long waitNanos) {
+		active.incrementAndGet();
+		calls.increment();
+
+		if (waitNanos > 0) {
+			queuedCalls.increment();
+			this.waitNanos.add(waitNanos);
+		}
+	}
+
+	public void finished() {
+		active.decrementAndGet();
+	}
+
+	/**
+	 * @return the calls waiting for a permit right now
+	 */
+	public int getQueueDepth() {
+		return queued.get();
+	}
+
+	public int getMaxQueueDepth() {
+		return maxQueued.get();
+	}
+
+	/**
+	 * @return the calls holding a permit right now
+	 */
+	public int getActive() {
+		return active.get();
+	}
+
+	public long getCalls() {
+		return calls.sum();
+	}
+
+	/**
+	 * @return the calls that had to wait for a permit
+	 */
+	public long getQueuedCalls() {
+		return queuedCalls.sum();
+	}
+
+	public long getWaitTime(TimeUnit unit) {
+		return unit.convert(waitNanos.sum(), TimeUnit.NANOSECONDS);
+	}
+
+	public double getMeanWaitTime(TimeUnit unit) {
+		long calls = getCalls();
+
+		return calls == 0 ? 0 : (double) getWaitTime(TimeUnit.NANOSECONDS)
+				/ calls / unit.toNanos(1);
+	}
+}
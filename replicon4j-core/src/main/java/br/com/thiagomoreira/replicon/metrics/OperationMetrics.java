@@ -0,0 +1,121 @@
+/**
+ * Copyright (C) 2014 Thiago Moreira (tmoreira2020@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package br.com.thiagomoreira.replicon.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters of a single Replicon operation, updated without locks.
+ */
+public class OperationMetrics {
+
+	protected final String operation;
+	protected final LongAdder calls = new LongAdder();
+	protected final LongAdder failures = new LongAdder();
+	protected final LongAdder totalNanos = new LongAdder();
+	protected final AtomicLong maxNanos = new AtomicLong();
+	protected final LongAdder sampledCalls = new LongAdder();
+	protected final LongAdder allocatedBytes = new LongAdder();
+	protected final LongAdder cpuNanos = new LongAdder();
+
+	public OperationMetrics(String operation) {
+		this.operation = operation;
+	}
+
+	public void record(long nanos, boolean success) {
+		calls.increment();
+		if (!success) {
+			failures.increment();
+		}
+		totalNanos.add(nanos);
+
+		long max = maxNanos.get();
+
+		while (nanos > max && !maxNanos.compareAndSet(max, nanos)) {
+			max = maxNanos.get();
+		}
+	}
+
+	/**
+	 * Records the heap allocated and the CPU time used by one sampled call.
+	 */
+	public void recordResources(long allocatedBytes, long cpuNanos) {
+		sampledCalls.increment();
+		this.allocatedBytes.add(allocatedBytes);
+		this.cpuNanos.add(cpuNanos);
+	}
+
+	public String getOperation() {
+		return operation;
+	}
+
+	public long getCalls() {
+		return calls.sum();
+	}
+
+	public long getFailures() {
+		return failures.sum();
+	}
+
+	public long getTotalTime(TimeUnit unit) {
+		return unit.convert(totalNanos.sum(), TimeUnit.NANOSECONDS);
+	}
+
+	public long getMaxTime(TimeUnit unit) {
+		return unit.convert(maxNanos.get(), TimeUnit.NANOSECONDS);
+	}
+
+	public double getMeanTime(TimeUnit unit) {
+		long calls = getCalls();
+
+		return calls == 0 ? 0 : (double) getTotalTime(TimeUnit.NANOSECONDS)
+				/ calls / unit.toNanos(1);
+	}
+
+	/**
+	 * @return the calls whose allocations and CPU time were measured, see
+	 *         {@link RepliconMetrics#setSampler(ResourceSampler)}
+	 */
+	public long getSampledCalls() {
+		return sampledCalls.sum();
+	}
+
+	public long getAllocatedBytes() {
+		return allocatedBytes.sum();
+	}
+
+	public long getCpuTime(TimeUnit unit) {
+		return unit.convert(cpuNanos.sum(), TimeUnit.NANOSECONDS);
+	}
+
+	public double getMeanAllocatedBytes() {
+		long sampledCalls = getSampledCalls();
+
+		return sampledCalls == 0 ? 0 : (double) getAllocatedBytes()
+				/ sampledCalls;
+	}
+
+	public double getMeanCpuTime(TimeUnit unit) {
+		long sampledCalls = getSampledCalls();
+
+		return sampledCalls == 0
+				? 0
+				: (double) getCpuTime(TimeUnit.NANOSECONDS) / sampledCalls
+						/ unit.toNanos(1);
+	}
+}
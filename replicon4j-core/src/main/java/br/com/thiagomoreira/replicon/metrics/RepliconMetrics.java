@@ -0,0 +1,98 @@
+/**
+ * Copyright (C) 2014 Thiago Moreira (tmoreira2020@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package br.com.thiagomoreira.replicon.metrics;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Per-operation call counters and timings, shared by every
+ * {@link br.com.thiagomoreira.replicon.Replicon} attached to the same
+ * {@link br.com.thiagomoreira.replicon.RepliconRuntime}.
+ */
+public class RepliconMetrics {
+
+	protected final ConcurrentHashMap<String, OperationMetrics> operations = new ConcurrentHashMap<String, OperationMetrics>();
+
+	protected volatile ResourceSampler sampler;
+
+	public void record(String operation, long nanos, boolean success) {
+		getOperation(operation).record(nanos, success);
+	}
+
+	/**
+	 * @param sample
+	 *            from {@link #startSample()}, taken on the current thread
+	 */
+	public void record(String operation, long nanos, boolean success,
+			ResourceSampler.Sample sample) {
+
+		OperationMetrics metrics = getOperation(operation);
+
+		metrics.record(nanos, success);
+
+		ResourceSampler sampler = this.sampler;
+
+		if (sample != null && sampler != null) {
+			sampler.stop(sample, metrics);
+		}
+	}
+
+	/**
+	 * @return the counters of the current thread when accounting is on and the
+	 *         call is sampled, <code>null</code> otherwise
+	 */
+	public ResourceSampler.Sample startSample() {
+		ResourceSampler sampler = this.sampler;
+
+		return sampler == null ? null : sampler.start();
+	}
+
+	public ResourceSampler getSampler() {
+		return sampler;
+	}
+
+	/**
+	 * Turns on the accounting of the heap allocated and the CPU time used by
+	 * the calls, off by default; <code>null</code> turns it off.
+	 */
+	public void setSampler(ResourceSampler sampler) {
+		this.sampler = sampler;
+	}
+
+	public OperationMetrics getOperation(String operation) {
+		OperationMetrics metrics = operations.get(operation);
+
+		if (metrics == null) {
+			OperationMetrics newMetrics = new OperationMetrics(operation);
+
+			metrics = operations.putIfAbsent(operation, newMetrics);
+			if (metrics == null) {
+				metrics = newMetrics;
+			}
+		}
+
+		return metrics;
+	}
+
+	public Map<String, OperationMetrics> getOperations() {
+		return Collections
+				.unmodifiableMap(new TreeMap<String, OperationMetrics>(
+						operations));
+	}
+}
@@ -0,0 +1,113 @@
+/**
+ * Copyright (C) 2014 Thiago Moreira (tmoreira2020@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package br.com.thiagomoreira.replicon.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.ThreadLocalRandom;
+
+import com.sun.management.ThreadMXBean;
+
+/**
+ * Measures the CPU time and the heap allocated by the calling thread during one
+ * call in every <code>rate</code>, serialization and mapping included, through
+ * the HotSpot {@link ThreadMXBean}. Reading the counters is cheap next to a
+ * call but not free, a rate above 1 keeps the overhead down on busy clients.
+ */
+public class ResourceSampler {
+
+	protected final ThreadMXBean threadMXBean;
+	protected final int rate;
+
+	public ResourceSampler() {
+		this(1);
+	}
+
+	/**
+	 * @param rate
+	 *            samples one call in <code>rate</code>, picked at random
+	 */
+	public ResourceSampler(int rate) {
+		if (rate < 1) {
+			throw new IllegalArgumentException("rate must be positive");
+		}
+		if (!isSupported()) {
+			throw new IllegalStateException(
+					"Thread CPU time and allocation counters aren't supported by this JVM");
+		}
+
+		this.threadMXBean = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+		this.rate = rate;
+
+		if (!threadMXBean.isThreadCpuTimeEnabled()) {
+			threadMXBean.setThreadCpuTimeEnabled(true);
+		}
+		if (!threadMXBean.isThreadAllocatedMemoryEnabled()) {
+			threadMXBean.setThreadAllocatedMemoryEnabled(true);
+		}
+	}
+
+	public static boolean isSupported() {
+		java.lang.management.ThreadMXBean threadMXBean = ManagementFactory
+				.getThreadMXBean();
+
+		return threadMXBean instanceof ThreadMXBean
+				&& threadMXBean.isCurrentThreadCpuTimeSupported()
+				&& ((ThreadMXBean) threadMXBean)
+						.isThreadAllocatedMemorySupported();
+	}
+
+	public int getRate() {
+		return rate;
+	}
+
+	/**
+	 * @return the counters of the current thread, <code>null</code> when this
+	 *         call isn't sampled
+	 */
+	public Sample start() {
+		if (rate > 1 && ThreadLocalRandom.current().nextInt(rate) != 0) {
+			return null;
+		}
+
+		return new Sample(allocatedBytes(),
+				threadMXBean.getCurrentThreadCpuTime());
+	}
+
+	/**
+	 * Adds what the current thread used since the sample started to the
+	 * operation.
+	 */
+	public void stop(Sample sample, OperationMetrics metrics) {
+		metrics.recordResources(allocatedBytes() - sample.allocatedBytes,
+				threadMXBean.getCurrentThreadCpuTime() - sample.cpuNanos);
+	}
+
+	protected long allocatedBytes() {
+		return threadMXBean.getThreadAllocatedBytes(Thread.currentThread()
+				.getId());
+	}
+
+	public static class Sample {
+
+		protected final long allocatedBytes;
+		protected final long cpuNanos;
+
+		protected Sample(long allocatedBytes, long cpuNanos) {
+			this.allocatedBytes = allocatedBytes;
+			this.cpuNanos = cpuNanos;
+		}
+	}
+}
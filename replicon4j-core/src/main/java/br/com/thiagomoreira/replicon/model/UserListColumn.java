@@ -0,0 +1,38 @@
+/**
+ * Copyright (C) 2014 Thiago Moreira (tmoreira2020@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package br.com.thiagomoreira.replicon.model;
+
+/**
+ * Column URIs of <code>UserListService1</code>.
+ */
+public final class UserListColumn {
+
+	/**
+	 * The user reference: its URI and display text.
+	 */
+	public static final String USER = "urn:replicon:user-list-column:user";
+	public static final String LOGIN_NAME = "urn:replicon:user-list-column:login-name";
+	public static final String FIRST_NAME = "urn:replicon:user-list-column:first-name";
+	public static final String LAST_NAME = "urn:replicon:user-list-column:last-name";
+	public static final String EMAIL_ADDRESS = "urn:replicon:user-list-column:email-address";
+	public static final String EMPLOYEE_ID = "urn:replicon:user-list-column:employee-id";
+	public static final String DEPARTMENT = "urn:replicon:user-list-column:department";
+	public static final String SUPERVISOR = "urn:replicon:user-list-column:supervisor";
+	public static final String ENABLED = "urn:replicon:user-list-column:is-enabled";
+
+	private UserListColumn() {
+	}
+}
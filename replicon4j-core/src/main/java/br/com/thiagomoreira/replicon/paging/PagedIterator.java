@@ -0,0 +1,172 @@
+/**
+ * Copyright (C) 2014 Thiago Moreira (tmoreira2020@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package br.com.thiagomoreira.replicon.paging;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import br.com.thiagomoreira.replicon.Priority;
+
+/**
+ * Iterates the items of a paged listing in order while fetching up to
+ * <code>parallelism</code> pages ahead of the caller. The listing ends at the
+ * first page shorter than the page size; as the pages after it may already be
+ * in flight, up to <code>parallelism - 1</code> requests past the end are
+ * issued and discarded.
+ * 
+ * Fetch failures surface as {@link UncheckedIOException}s from
+ * {@link #hasNext()}. Closing the iterator cancels the pages in flight.
+ */
+public class PagedIterator<T> implements Iterator<T>, Closeable {
+
+	protected final PageFetcher<T> fetcher;
+	protected final int pageSize;
+	protected final int parallelism;
+	protected final ExecutorService executor;
+	protected final ArrayDeque<Future<List<T>>> window;
+	protected Iterator<T> page = Collections.<T> emptyList().iterator();
+	protected int nextPage = 1;
+	protected boolean last;
+
+	public PagedIterator(PageFetcher<T> fetcher, int pageSize, int parallelism,
+			ExecutorService executor) {
+
+		if (pageSize < 1 || parallelism < 1) {
+			throw new IllegalArgumentException(
+					"Page size and parallelism must be positive");
+		}
+
+		this.fetcher = fetcher;
+		this.pageSize = pageSize;
+		this.parallelism = parallelism;
+		this.executor = executor;
+		this.window = new ArrayDeque<Future<List<T>>>(parallelism);
+
+		fill();
+	}
+
+	/**
+	 * @return a sequential, ordered stream over the iterator, closing it when
+	 *         closed
+	 */
+	public static <T> Stream<T> stream(final PagedIterator<T> iterator) {
+		return StreamSupport.stream(
+				Spliterators.spliteratorUnknownSize(iterator,
+						Spliterator.ORDERED | Spliterator.NONNULL), false)
+				.onClose(new Runnable() {
+					@Override
+					public void run() {
+						iterator.close();
+					}
+				});
+	}
+
+	@Override
+	public boolean hasNext() {
+		while (!page.hasNext()) {
+			Future<List<T>> future = window.poll();
+
+			if (future == null) {
+				return false;
+			}
+
+			List<T> items = await(future);
+
+			if (items.size() < pageSize) {
+				last = true;
+				close();
+			} else {
+				fill();
+			}
+
+			page = items.iterator();
+		}
+
+		return true;
+	}
+
+	@Override
+	public T next() {
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+
+		return page.next();
+	}
+
+	@Override
+	public void close() {
+		last = true;
+
+		Future<List<T>> future;
+
+		while ((future = window.poll()) != null) {
+			future.cancel(true);
+		}
+	}
+
+	protected void fill() {
+		while (!last && window.size() < parallelism) {
+			final int number = nextPage++;
+
+			window.add(executor.submit(Priority
+					.propagate(new Callable<List<T>>() {
+						@Override
+						public List<T> call() throws IOException {
+							return fetcher.fetch(number, pageSize);
+						}
+					})));
+		}
+	}
+
+	protected List<T> await(Future<List<T>> future) {
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			close();
+
+			throw new UncheckedIOException(new InterruptedIOException());
+		} catch (ExecutionException e) {
+			close();
+
+			Throwable cause = e.getCause();
+
+			if (cause instanceof IOException) {
+				throw new UncheckedIOException((IOException) cause);
+			} else if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+
+			throw new IllegalStateException(cause);
+		}
+	}
+}
@@ -0,0 +1,188 @@
+/**
+ * Copyright (C) 2014 Thiago Moreira (tmoreira2020@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package br.com.thiagomoreira.replicon.rollup;
+
+import java.util.Map;
+import java.util.function.Function;
+
+import br.com.thiagomoreira.replicon.model.Client;
+import br.com.thiagomoreira.replicon.model.Date;
+import br.com.thiagomoreira.replicon.model.Department;
+import br.com.thiagomoreira.replicon.model.Project;
+import br.com.thiagomoreira.replicon.model.ProjectAllocation;
+import br.com.thiagomoreira.replicon.model.Resource;
+import br.com.thiagomoreira.replicon.model.Status;
+import br.com.thiagomoreira.replicon.model.TimeOffAllocation;
+import br.com.thiagomoreira.replicon.model.User;
+
+/**
+ * Grouping dimensions for {@link Rollup}. References returned by Replicon are
+ * often partial, so the joins take the fully fetched {@link Resource}s and
+ * {@link Project}s keyed by URI and fall back to the reference itself. Missing
+ * values are grouped under <code>null</code>.
+ */
+public class Dimensions {
+
+	public static Function<TimeOffAllocation, String> timeOffOwner() {
+		return new Function<TimeOffAllocation, String>() {
+			@Override
+			public String apply(TimeOffAllocation allocation) {
+				return uri(allocation.getOwner());
+			}
+		};
+	}
+
+	public static Function<TimeOffAllocation, String> timeOffDepartment(
+			final Map<String, Resource> resourcesByUri) {
+		return new Function<TimeOffAllocation, String>() {
+			@Override
+			public String apply(TimeOffAllocation allocation) {
+				User owner = allocation.getOwner();
+				Resource resource = owner == null ? null : resourcesByUri
+						.get(owner.getUri());
+
+				return department(resource);
+			}
+		};
+	}
+
+	/**
+	 * @return the year and month the time-off starts in, as
+	 *         <code>yyyy-MM</code>
+	 */
+	public static Function<TimeOffAllocation, String> timeOffMonth() {
+		return new Function<TimeOffAllocation, String>() {
+			@Override
+			public String apply(TimeOffAllocation allocation) {
+				return allocation.getStartDateDetails() == null
+						? null
+						: month(allocation.getStartDateDetails().getDate());
+			}
+		};
+	}
+
+	public static Function<TimeOffAllocation, String> timeOffStatus() {
+		return new Function<TimeOffAllocation, String>() {
+			@Override
+			public String apply(TimeOffAllocation allocation) {
+				return name(allocation.getTimeOffStatus());
+			}
+		};
+	}
+
+	public static Function<ProjectAllocation, String> project() {
+		return new Function<ProjectAllocation, String>() {
+			@Override
+			public String apply(ProjectAllocation allocation) {
+				return allocation.getProject() == null ? null : allocation
+						.getProject().getUri();
+			}
+		};
+	}
+
+	public static Function<ProjectAllocation, String> resourceDepartment(
+			final Map<String, Resource> resourcesByUri) {
+		return new Function<ProjectAllocation, String>() {
+			@Override
+			public String apply(ProjectAllocation allocation) {
+				Resource resource = allocation.getResource();
+
+				if (resource != null
+						&& resourcesByUri.containsKey(resource.getUri())) {
+					resource = resourcesByUri.get(resource.getUri());
+				}
+
+				return department(resource);
+			}
+		};
+	}
+
+	public static Function<ProjectAllocation, String> client(
+			final Map<String, Project> projectsByUri) {
+		return new Function<ProjectAllocation, String>() {
+			@Override
+			public String apply(ProjectAllocation allocation) {
+				Project project = project(allocation, projectsByUri);
+				Client client = project == null ? null : project.getClient();
+
+				return client == null ? null : client.getUri();
+			}
+		};
+	}
+
+	public static Function<ProjectAllocation, String> projectStatus(
+			final Map<String, Project> projectsByUri) {
+		return new Function<ProjectAllocation, String>() {
+			@Override
+			public String apply(ProjectAllocation allocation) {
+				Project project = project(allocation, projectsByUri);
+
+				return project == null ? null : name(project.getStatus());
+			}
+		};
+	}
+
+	/**
+	 * @return the year and month the allocation starts in, as
+	 *         <code>yyyy-MM</code>
+	 */
+	public static Function<ProjectAllocation, String> allocationMonth() {
+		return new Function<ProjectAllocation, String>() {
+			@Override
+			public String apply(ProjectAllocation allocation) {
+				return allocation.getAllocationDateRange() == null
+						? null
+						: month(allocation.getAllocationDateRange()
+								.getStartDate());
+			}
+		};
+	}
+
+	protected static Project project(ProjectAllocation allocation,
+			Map<String, Project> projectsByUri) {
+		Project project = allocation.getProject();
+
+		if (project != null && projectsByUri.containsKey(project.getUri())) {
+			project = projectsByUri.get(project.getUri());
+		}
+
+		return project;
+	}
+
+	protected static String department(Resource resource) {
+		Department department = resource == null ? null : resource
+				.getDepartment();
+
+		return department == null ? null : department.getUri();
+	}
+
+	protected static String month(Date date) {
+		if (date == null) {
+			return null;
+		}
+
+		return date.getYear() + (date.getMonth() < 10 ? "-0" : "-")
+				+ date.getMonth();
+	}
+
+	protected static String name(Status status) {
+		return status == null ? null : status.getName();
+	}
+
+	protected static String uri(User user) {
+		return user == null ? null : user.getUri();
+	}
+}
@@ -0,0 +1,73 @@
+/**
+ * Copyright (C) 2014 Thiago Moreira (tmoreira2020@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package br.com.thiagomoreira.replicon.rollup;
+
+import java.util.function.ToLongFunction;
+
+import br.com.thiagomoreira.replicon.model.Duration;
+import br.com.thiagomoreira.replicon.model.ProjectAllocation;
+import br.com.thiagomoreira.replicon.model.TimeOffAllocation;
+
+/**
+ * Primitive measures for {@link Rollup}, durations are summed in seconds.
+ */
+public class Measures {
+
+	public static ToLongFunction<TimeOffAllocation> timeOffSeconds() {
+		return new ToLongFunction<TimeOffAllocation>() {
+			@Override
+			public long applyAsLong(TimeOffAllocation allocation) {
+				return seconds(allocation.getTotalDuration());
+			}
+		};
+	}
+
+	public static ToLongFunction<ProjectAllocation> allocatedSeconds() {
+		return new ToLongFunction<ProjectAllocation>() {
+			@Override
+			public long applyAsLong(ProjectAllocation allocation) {
+				return seconds(allocation.getTotalProjectsDuration());
+			}
+		};
+	}
+
+	public static ToLongFunction<ProjectAllocation> allocatedDays() {
+		return new ToLongFunction<ProjectAllocation>() {
+			@Override
+			public long applyAsLong(ProjectAllocation allocation) {
+				return allocation.getAllocatedDaysCount();
+			}
+		};
+	}
+
+	public static ToLongFunction<Object> count() {
+		return new ToLongFunction<Object>() {
+			@Override
+			public long applyAsLong(Object value) {
+				return 1;
+			}
+		};
+	}
+
+	public static long seconds(Duration duration) {
+		if (duration == null) {
+			return 0;
+		}
+
+		return duration.getHours() * 3600L + duration.getMinutes() * 60L
+				+ duration.getSeconds();
+	}
+}
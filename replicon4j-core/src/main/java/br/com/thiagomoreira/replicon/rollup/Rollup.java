@@ -0,0 +1,182 @@
+/**
+ * Copyright (C) 2014 Thiago Moreira (tmoreira2020@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package br.com.thiagomoreira.replicon.rollup;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+/**
+ * Groups fetched model objects by one or more dimensions and sums a primitive
+ * measure per group. The input is split recursively on a fork-join pool, each
+ * leaf aggregates into its own map of <code>long</code> accumulators and
+ * partial results are merged while joining, so no shared or synchronized
+ * structure is touched during the scan.
+ * 
+ * See {@link Dimensions} and {@link Measures} for the usual Replicon dimensions
+ * and measures.
+ */
+public class Rollup<T> {
+
+	protected static final int DEFAULT_THRESHOLD = 2048;
+
+	protected final List<Function<? super T, ?>> dimensions;
+	protected final ToLongFunction<? super T> measure;
+	protected ForkJoinPool pool = ForkJoinPool.commonPool();
+	protected int threshold = DEFAULT_THRESHOLD;
+
+	public Rollup(List<? extends Function<? super T, ?>> dimensions,
+			ToLongFunction<? super T> measure) {
+		if (dimensions.isEmpty()) {
+			throw new IllegalArgumentException(
+					"At least one dimension is required");
+		}
+
+		this.dimensions = new ArrayList<Function<? super T, ?>>(dimensions);
+		this.measure = measure;
+	}
+
+	@SafeVarargs
+	public static <T> Map<List<Object>, Aggregate> groupBy(
+			Collection<? extends T> values, ToLongFunction<? super T> measure,
+			Function<? super T, ?>... dimensions) {
+		return new Rollup<T>(Arrays.asList(dimensions), measure)
+				.aggregate(values);
+	}
+
+	public void setPool(ForkJoinPool pool) {
+		this.pool = pool;
+	}
+
+	public void setThreshold(int threshold) {
+		this.threshold = Math.max(1, threshold);
+	}
+
+	/**
+	 * @return the aggregate of each group, keyed by the dimension values in the
+	 *         order the dimensions were given
+	 */
+	public Map<List<Object>, Aggregate> aggregate(Collection<? extends T> values) {
+		List<? extends T> list = values instanceof List
+				? (List<? extends T>) values
+				: new ArrayList<T>(values);
+		Map<List<Object>, long[]> partial = pool.invoke(new RollupTask(list, 0,
+				list.size()));
+		Map<List<Object>, Aggregate> result = new LinkedHashMap<List<Object>, Aggregate>(
+				partial.size() * 2);
+
+		for (Map.Entry<List<Object>, long[]> entry : partial.entrySet()) {
+			result.put(entry.getKey(),
+					new Aggregate(entry.getValue()[0], entry.getValue()[1]));
+		}
+
+		return Collections.unmodifiableMap(result);
+	}
+
+	protected List<Object> key(T value) {
+		if (dimensions.size() == 1) {
+			return Collections.singletonList(dimensions.get(0).apply(value));
+		}
+
+		Object[] key = new Object[dimensions.size()];
+
+		for (int i = 0; i < key.length; i++) {
+			key[i] = dimensions.get(i).apply(value);
+		}
+
+		return Arrays.asList(key);
+	}
+
+	protected static void merge(Map<List<Object>, long[]> target,
+			Map<List<Object>, long[]> source) {
+		for (Map.Entry<List<Object>, long[]> entry : source.entrySet()) {
+			long[] accumulator = target.get(entry.getKey());
+
+			if (accumulator == null) {
+				target.put(entry.getKey(), entry.getValue());
+			} else {
+				accumulator[0] += entry.getValue()[0];
+				accumulator[1] += entry.getValue()[1];
+			}
+		}
+	}
+
+	protected class RollupTask extends RecursiveTask<Map<List<Object>, long[]>> {
+
+		private static final long serialVersionUID = 1L;
+
+		protected final List<? extends T> values;
+		protected final int from;
+		protected final int to;
+
+		protected RollupTask(List<? extends T> values, int from, int to) {
+			this.values = values;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected Map<List<Object>, long[]> compute() {
+			if (to - from <= threshold) {
+				Map<List<Object>, long[]> accumulators = new HashMap<List<Object>, long[]>();
+
+				for (int i = from; i < to; i++) {
+					T value = values.get(i);
+					List<Object> key = key(value);
+					long[] accumulator = accumulators.get(key);
+
+					if (accumulator == null) {
+						accumulator = new long[2];
+						accumulators.put(key, accumulator);
+					}
+
+					accumulator[0] += measure.applyAsLong(value);
+					accumulator[1]++;
+				}
+
+				return accumulators;
+			}
+
+			int middle = (from + to) >>> 1;
+			RollupTask left = new RollupTask(values, from, middle);
+
+			left.fork();
+
+			Map<List<Object>, long[]> right = new RollupTask(values, middle, to)
+					.compute();
+			Map<List<Object>, long[]> result = left.join();
+
+			if (result.size() < right.size()) {
+				merge(right, result);
+
+				return right;
+			}
+
+			merge(result, right);
+
+			return result;
+		}
+	}
+}
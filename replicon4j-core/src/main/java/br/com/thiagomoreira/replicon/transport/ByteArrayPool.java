@@ -0,0 +1,124 @@
+/**
+ * Copyright (C) 2014 Thiago Moreira (tmoreira2020@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package br.com.thiagomoreira.replicon.transport;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Pool of fixed size byte arrays response bodies are read into, so reading a
+ * response allocates nothing once the pool is warm. Arrays released beyond the
+ * pool capacity are left to the garbage collector.
+ */
+public class ByteArrayPool {
+
+	protected final int bufferSize;
+	protected final int capacity;
+	protected final ConcurrentLinkedQueue<byte[]> buffers = new ConcurrentLinkedQueue<byte[]>();
+	protected final AtomicInteger pooled = new AtomicInteger();
+	protected final LongAdder allocations = new LongAdder();
+
+	/**
+	 * Creates a pool of up to 256 buffers of 16 KiB.
+	 */
+	public ByteArrayPool() {
+		this(16 * 1024, 256);
+	}
+
+	public ByteArrayPool(int bufferSize, int capacity) {
+		this.bufferSize = bufferSize;
+		this.capacity = capacity;
+	}
+
+	public byte[] acquire() {
+		byte[] buffer = buffers.poll();
+
+		if (buffer == null) {
+			allocations.increment();
+
+			return new byte[bufferSize];
+		}
+
+		pooled.decrementAndGet();
+
+		return buffer;
+	}
+
+	public void release(byte[] buffer) {
+		if (pooled.incrementAndGet() <= capacity) {
+			buffers.offer(buffer);
+		} else {
+			pooled.decrementAndGet();
+		}
+	}
+
+	/**
+	 * Reads the stream to its end straight into pooled buffers. The stream is
+	 * left open.
+	 */
+	public PooledBody read(InputStream inputStream) throws IOException {
+		PooledBody body = new PooledBody(this);
+
+		try {
+			int read = 0;
+			int next;
+
+			// a buffer is only taken once there is a byte to put in it
+			while (read != -1 && (next = inputStream.read()) != -1) {
+				byte[] buffer = acquire();
+				int length = 1;
+
+				buffer[0] = (byte) next;
+				body.add(buffer);
+
+				while (length < bufferSize
+						&& (read = inputStream.read(buffer, length, bufferSize
+								- length)) != -1) {
+					length += read;
+				}
+
+				body.length += length;
+			}
+		} catch (IOException e) {
+			body.close();
+
+			throw e;
+		}
+
+		return body;
+	}
+
+	public int getBufferSize() {
+		return bufferSize;
+	}
+
+	/**
+	 * @return the number of idle buffers in the pool
+	 */
+	public int getPooled() {
+		return pooled.get();
+	}
+
+	/**
+	 * @return the number of buffers allocated because the pool was empty
+	 */
+	public long getAllocations() {
+		return allocations.sum();
+	}
+}
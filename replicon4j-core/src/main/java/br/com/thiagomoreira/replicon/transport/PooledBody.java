@@ -0,0 +1,111 @@
+/**
+ * Copyright (C) 2014 Thiago Moreira (tmoreira2020@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package br.com.thiagomoreira.replicon.transport;
+
+import java.io.Closeable;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A response body held in buffers of a {@link ByteArrayPool}, read once through
+ * {@link #getInputStream()}. Every buffer but the last is full. Closing it
+ * returns the buffers to the pool, so nothing read from the stream may be used
+ * afterwards.
+ */
+public class PooledBody implements Closeable {
+
+	protected final ByteArrayPool pool;
+	protected final List<byte[]> buffers = new ArrayList<byte[]>(4);
+	protected int length;
+	protected int position;
+	protected boolean closed;
+
+	protected PooledBody(ByteArrayPool pool) {
+		this.pool = pool;
+	}
+
+	protected void add(byte[] buffer) {
+		buffers.add(buffer);
+	}
+
+	public int getLength() {
+		return length;
+	}
+
+	public InputStream getInputStream() {
+		return new BuffersInputStream();
+	}
+
+	@Override
+	public void close() {
+		if (closed) {
+			return;
+		}
+
+		closed = true;
+
+		for (byte[] buffer : buffers) {
+			pool.release(buffer);
+		}
+
+		buffers.clear();
+	}
+
+	protected class BuffersInputStream extends InputStream {
+
+		protected final int bufferSize = pool.getBufferSize();
+
+		@Override
+		public int read() {
+			if (position >= length) {
+				return -1;
+			}
+
+			byte[] buffer = buffers.get(position / bufferSize);
+
+			return buffer[position++ % bufferSize] & 0xff;
+		}
+
+		@Override
+		public int read(byte[] bytes, int offset, int length) {
+			if (length == 0) {
+				return 0;
+			}
+
+			int available = available();
+
+			if (available == 0) {
+				return -1;
+			}
+
+			int bufferOffset = position % bufferSize;
+			int read = Math.min(length,
+					Math.min(available, bufferSize - bufferOffset));
+
+			System.arraycopy(buffers.get(position / bufferSize), bufferOffset,
+					bytes, offset, read);
+			position += read;
+
+			return read;
+		}
+
+		@Override
+		public int available() {
+			return Math.max(0, PooledBody.this.length - position);
+		}
+	}
+}
@@ -0,0 +1,151 @@
+/**
+ * Copyright (C) 2014 Thiago Moreira (tmoreira2020@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package br.com.thiagomoreira.replicon.transport;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The calls captured by a {@link RecordingTransport}, in the order they
+ * completed.
+ * 
+ * The file starts with a magic number and a format version, followed by one
+ * record per call: its length and then the start timestamp, URL, status code,
+ * duration, and the length prefixed request and response bodies. A record cut
+ * short, because the recording process died while writing it, is ignored.
+ */
+public class Recording {
+
+	protected static final int MAGIC = 0x52344a52;
+	protected static final int VERSION = 1;
+
+	protected final List<RecordedExchange> exchanges;
+
+	public Recording(List<RecordedExchange> exchanges) {
+		this.exchanges = Collections.unmodifiableList(exchanges);
+	}
+
+	public static Recording load(File file) throws IOException {
+		DataInputStream input = new DataInputStream(new BufferedInputStream(
+				new FileInputStream(file)));
+
+		try {
+			if (input.readInt() != MAGIC) {
+				throw new IOException(file + " is not a recording");
+			}
+
+			int version = input.readInt();
+
+			if (version != VERSION) {
+				throw new IOException("Unsupported recording version "
+						+ version);
+			}
+
+			List<RecordedExchange> exchanges = new ArrayList<RecordedExchange>();
+
+			try {
+				while (true) {
+					byte[] record = new byte[input.readInt()];
+
+					input.readFully(record);
+					exchanges.add(read(record));
+				}
+			} catch (EOFException e) {
+				// end of the recording, or a truncated last record
+			}
+
+			return new Recording(exchanges);
+		} finally {
+			input.close();
+		}
+	}
+
+	public List<RecordedExchange> getExchanges() {
+		return exchanges;
+	}
+
+	protected static void writeHeader(OutputStream outputStream)
+			throws IOException {
+
+		DataOutputStream output = new DataOutputStream(outputStream);
+
+		output.writeInt(MAGIC);
+		output.writeInt(VERSION);
+		output.flush();
+	}
+
+	/**
+	 * @return the length prefixed record of the exchange
+	 */
+	protected static byte[] write(RecordedExchange exchange) throws IOException {
+
+		ByteArrayOutputStream record = new ByteArrayOutputStream(64
+				+ exchange.getRequest().length + exchange.getResponse().length);
+		DataOutputStream output = new DataOutputStream(record);
+
+		output.writeInt(0);
+		output.writeLong(exchange.getTimestamp());
+		output.writeUTF(exchange.getUrl());
+		output.writeInt(exchange.getStatusCode());
+		output.writeLong(exchange.getNanos());
+		output.writeInt(exchange.getRequest().length);
+		output.write(exchange.getRequest());
+		output.writeInt(exchange.getResponse().length);
+		output.write(exchange.getResponse());
+		output.flush();
+
+		byte[] bytes = record.toByteArray();
+		int length = bytes.length - 4;
+
+		bytes[0] = (byte) (length >>> 24);
+		bytes[1] = (byte) (length >>> 16);
+		bytes[2] = (byte) (length >>> 8);
+		bytes[3] = (byte) length;
+
+		return bytes;
+	}
+
+	protected static RecordedExchange read(byte[] record) throws IOException {
+		DataInputStream input = new DataInputStream(new ByteArrayInputStream(
+				record));
+
+		long timestamp = input.readLong();
+		String url = input.readUTF();
+		int statusCode = input.readInt();
+		long nanos = input.readLong();
+		byte[] request = new byte[input.readInt()];
+
+		input.readFully(request);
+
+		byte[] response = new byte[input.readInt()];
+
+		input.readFully(response);
+
+		return new RecordedExchange(timestamp, url, request, statusCode,
+				response, nanos);
+	}
+}
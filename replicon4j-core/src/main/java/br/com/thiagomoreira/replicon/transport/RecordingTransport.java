@@ -0,0 +1,116 @@
+/**
+ * Copyright (C) 2014 Thiago Moreira (tmoreira2020@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package br.com.thiagomoreira.replicon.transport;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Map;
+
+/**
+ * Decorates a {@link Transport}, appending every call it completes (request and
+ * response bodies, status code and duration) to a {@link Recording} file that a
+ * {@link ReplayTransport} can serve later. Response bodies are read in full
+ * before being handed to the caller.
+ */
+public class RecordingTransport implements Transport, Closeable {
+
+	protected final Transport transport;
+	protected final OutputStream outputStream;
+
+	/**
+	 * Opens the file for appending, starting a new recording if it's empty.
+	 */
+	public RecordingTransport(Transport transport, File file)
+			throws IOException {
+
+		this.transport = transport;
+
+		boolean empty = file.length() == 0;
+
+		this.outputStream = new BufferedOutputStream(new FileOutputStream(file,
+				true));
+
+		if (empty) {
+			Recording.writeHeader(outputStream);
+		}
+	}
+
+	@Override
+	public TransportResponse post(String url, Map<String, String> headers,
+			byte[] body) throws IOException {
+
+		long timestamp = System.currentTimeMillis();
+		long start = System.nanoTime();
+		TransportResponse response = transport.post(url, headers, body);
+		byte[] bytes;
+
+		try {
+			bytes = toByteArray(response.getBody());
+		} finally {
+			response.close();
+		}
+
+		RecordedExchange exchange = new RecordedExchange(timestamp, url, body,
+				response.getStatusCode(), bytes, System.nanoTime() - start);
+
+		byte[] record = Recording.write(exchange);
+
+		synchronized (outputStream) {
+			outputStream.write(record);
+			outputStream.flush();
+		}
+
+		return new TransportResponse(response.getStatusCode(),
+				new ByteArrayInputStream(bytes));
+	}
+
+	@Override
+	public void preconnect(String url, int connections) throws IOException {
+		transport.preconnect(url, connections);
+	}
+
+	@Override
+	public void close() throws IOException {
+		synchronized (outputStream) {
+			outputStream.close();
+		}
+	}
+
+	protected static byte[] toByteArray(InputStream inputStream)
+			throws IOException {
+
+		if (inputStream == null) {
+			return new byte[0];
+		}
+
+		ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+		byte[] buffer = new byte[4096];
+		int read;
+
+		while ((read = inputStream.read(buffer)) != -1) {
+			outputStream.write(buffer, 0, read);
+		}
+
+		return outputStream.toByteArray();
+	}
+}
@@ -0,0 +1,144 @@
+/**
+ * Copyright (C) 2014 Thiago Moreira (tmoreira2020@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package br.com.thiagomoreira.replicon.transport;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * {@link Transport} answering from a {@link Recording} instead of the network.
+ * A call is matched on its URL and request body; calls recorded several times
+ * are answered in recording order, starting over when exhausted, so a pipeline
+ * can be replayed in a loop.
+ * 
+ * By default answers are served as fast as possible. A positive speed keeps
+ * each call busy for its recorded duration divided by the speed, 1 replaying at
+ * the original latencies.
+ */
+public class ReplayTransport implements Transport {
+
+	protected final Map<Key, Replay> replays = new HashMap<Key, Replay>();
+	protected volatile double speed;
+
+	public ReplayTransport(Recording recording) {
+		this(recording, 0);
+	}
+
+	public ReplayTransport(Recording recording, double speed) {
+		this.speed = speed;
+
+		for (RecordedExchange exchange : recording.getExchanges()) {
+			Key key = new Key(exchange.getUrl(), exchange.getRequest());
+			Replay replay = replays.get(key);
+
+			if (replay == null) {
+				replay = new Replay();
+				replays.put(key, replay);
+			}
+
+			replay.exchanges.add(exchange);
+		}
+	}
+
+	@Override
+	public TransportResponse post(String url, Map<String, String> headers,
+			byte[] body) throws IOException {
+
+		long start = System.nanoTime();
+		Replay replay = replays.get(new Key(url, body));
+
+		if (replay == null) {
+			throw new IOException("No recorded call to " + url
+					+ " with this request");
+		}
+
+		RecordedExchange exchange = replay.next();
+		double speed = this.speed;
+
+		if (speed > 0) {
+			long deadline = start + (long) (exchange.getNanos() / speed);
+			long remaining;
+
+			while ((remaining = deadline - System.nanoTime()) > 0) {
+				LockSupport.parkNanos(remaining);
+
+				if (Thread.interrupted()) {
+					throw new InterruptedIOException();
+				}
+			}
+		}
+
+		return new TransportResponse(exchange.getStatusCode(),
+				new ByteArrayInputStream(exchange.getResponse()));
+	}
+
+	public double getSpeed() {
+		return speed;
+	}
+
+	public void setSpeed(double speed) {
+		this.speed = speed;
+	}
+
+	protected static class Replay {
+
+		protected final List<RecordedExchange> exchanges = new ArrayList<RecordedExchange>(
+				1);
+		protected final AtomicInteger cursor = new AtomicInteger();
+
+		protected RecordedExchange next() {
+			return exchanges.get(Math.floorMod(cursor.getAndIncrement(),
+					exchanges.size()));
+		}
+	}
+
+	protected static class Key {
+
+		protected final String url;
+		protected final byte[] request;
+		protected final int hashCode;
+
+		protected Key(String url, byte[] request) {
+			this.url = url;
+			this.request = request;
+			this.hashCode = 31 * url.hashCode() + Arrays.hashCode(request);
+		}
+
+		@Override
+		public boolean equals(Object object) {
+			if (!(object instanceof Key)) {
+				return false;
+			}
+
+			Key key = (Key) object;
+
+			return url.equals(key.url) && Arrays.equals(request, key.request);
+		}
+
+		@Override
+		public int hashCode() {
+			return hashCode;
+		}
+	}
+}
@@ -0,0 +1,37 @@
+/**
+ * Copyright (C) 2014 Thiago Moreira (tmoreira2020@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package br.com.thiagomoreira.replicon.transport;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Minimal HTTP client used by {@link br.com.thiagomoreira.replicon.Replicon}:
+ * every Replicon operation is a JSON <code>POST</code>. Implementations must be
+ * thread safe and return the response whatever its status code.
+ */
+public interface Transport {
+
+	TransportResponse post(String url, Map<String, String> headers, byte[] body)
+			throws IOException;
+
+	/**
+	 * Opens connections to the host of the URL and leaves them idle in the
+	 * transport's pool, if it has one. Does nothing by default.
+	 */
+	default void preconnect(String url, int connections) throws IOException {
+	}
+}
@@ -0,0 +1,54 @@
+/**
+ * Copyright (C) 2014 Thiago Moreira (tmoreira2020@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package br.com.thiagomoreira.replicon.transport;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Status code and body stream of a {@link Transport} call. The body must be
+ * closed, releasing the underlying connection.
+ */
+public class TransportResponse implements Closeable {
+
+	protected final int statusCode;
+	protected final InputStream body;
+
+	public TransportResponse(int statusCode, InputStream body) {
+		this.statusCode = statusCode;
+		this.body = body;
+	}
+
+	public int getStatusCode() {
+		return statusCode;
+	}
+
+	public boolean isSuccessful() {
+		return statusCode >= 200 && statusCode < 300;
+	}
+
+	public InputStream getBody() {
+		return body;
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (body != null) {
+			body.close();
+		}
+	}
+}
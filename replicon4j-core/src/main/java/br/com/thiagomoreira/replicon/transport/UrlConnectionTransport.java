@@ -0,0 +1,145 @@
+/**
+ * Copyright (C) 2014 Thiago Moreira (tmoreira2020@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package br.com.thiagomoreira.replicon.transport;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@link Transport} on top of the JDK {@link HttpURLConnection}, relying on its
+ * built-in keep-alive cache (sized by the <code>http.maxConnections</code>
+ * system property) to reuse connections.
+ */
+public class UrlConnectionTransport implements Transport {
+
+	protected int connectTimeout = 10000;
+	protected int readTimeout = 60000;
+
+	@Override
+	public TransportResponse post(String url, Map<String, String> headers,
+			byte[] body) throws IOException {
+
+		HttpURLConnection connection = open(url);
+
+		connection.setRequestMethod("POST");
+		connection.setDoOutput(true);
+		connection.setFixedLengthStreamingMode(body.length);
+
+		for (Map.Entry<String, String> header : headers.entrySet()) {
+			connection.setRequestProperty(header.getKey(), header.getValue());
+		}
+
+		OutputStream outputStream = connection.getOutputStream();
+
+		try {
+			outputStream.write(body);
+		} finally {
+			outputStream.close();
+		}
+
+		int statusCode = connection.getResponseCode();
+		InputStream inputStream = statusCode < 400 ? connection
+				.getInputStream() : connection.getErrorStream();
+
+		return new UrlConnectionResponse(statusCode, inputStream);
+	}
+
+	/**
+	 * Opens the connections with <code>HEAD</code> requests. They are all
+	 * established before any of them is released, otherwise each request would
+	 * reuse the connection freed by the previous one.
+	 */
+	@Override
+	public void preconnect(String url, int connections) throws IOException {
+		List<HttpURLConnection> opened = new ArrayList<HttpURLConnection>(
+				connections);
+
+		try {
+			for (int i = 0; i < connections; i++) {
+				HttpURLConnection connection = open(url);
+
+				connection.setRequestMethod("HEAD");
+				connection.connect();
+				opened.add(connection);
+			}
+		} catch (IOException e) {
+			for (HttpURLConnection connection : opened) {
+				connection.disconnect();
+			}
+
+			throw e;
+		}
+
+		for (HttpURLConnection connection : opened) {
+			int statusCode = connection.getResponseCode();
+
+			new UrlConnectionResponse(statusCode, statusCode < 400
+					? connection.getInputStream()
+					: connection.getErrorStream()).close();
+		}
+	}
+
+	public void setConnectTimeout(int connectTimeout) {
+		this.connectTimeout = connectTimeout;
+	}
+
+	public void setReadTimeout(int readTimeout) {
+		this.readTimeout = readTimeout;
+	}
+
+	protected HttpURLConnection open(String url) throws IOException {
+		HttpURLConnection connection = (HttpURLConnection) new URL(url)
+				.openConnection();
+
+		connection.setConnectTimeout(connectTimeout);
+		connection.setReadTimeout(readTimeout);
+
+		return connection;
+	}
+
+	/**
+	 * Drains whatever the reader left unread before closing, otherwise the
+	 * connection can't go back to the keep-alive cache.
+	 */
+	protected static class UrlConnectionResponse extends TransportResponse {
+
+		protected UrlConnectionResponse(int statusCode, InputStream body) {
+			super(statusCode, body);
+		}
+
+		@Override
+		public void close() throws IOException {
+			if (body == null) {
+				return;
+			}
+
+			try {
+				byte[] buffer = new byte[4096];
+
+				while (body.read(buffer) != -1) {
+				}
+			} finally {
+				body.close();
+			}
+		}
+	}
+}
@@ -0,0 +1,158 @@
+/**
+ * Copyright (C) 2014 Thiago Moreira (tmoreira2020@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package br.com.thiagomoreira.replicon.util;
+
+import java.time.LocalDate;
+import java.util.Date;
+
+import br.com.thiagomoreira.replicon.model.DateRange;
+
+/**
+ * Conversions between the Replicon
+ * {@link br.com.thiagomoreira.replicon.model.Date} and the JDK date types.
+ * Replicon dates are calendar dates without a time zone, they are mapped to
+ * midnight UTC.
+ * 
+ * The epoch-day based methods use plain integer arithmetic (proleptic Gregorian
+ * calendar, same as {@link LocalDate#toEpochDay()}) and don't allocate,
+ * intervals are packed in a single <code>long</code> holding the inclusive
+ * start and end epoch days.
+ */
+public class DateUtil {
+
+	protected static final long MILLIS_PER_DAY = 86400000L;
+
+	public static Date translateDate(
+			br.com.thiagomoreira.replicon.model.Date date) {
+		return translateDate(date, false);
+	}
+
+	public static Date translateDate(
+			br.com.thiagomoreira.replicon.model.Date date, boolean isEndDate) {
+
+		long epochDay = toEpochDay(date);
+
+		if (isEndDate) {
+			epochDay++;
+		}
+
+		return new Date(epochDay * MILLIS_PER_DAY);
+	}
+
+	public static br.com.thiagomoreira.replicon.model.Date translateDate(
+			Date date) {
+
+		return fromEpochDay(Math.floorDiv(date.getTime(), MILLIS_PER_DAY));
+	}
+
+	public static LocalDate toLocalDate(
+			br.com.thiagomoreira.replicon.model.Date date) {
+		return LocalDate.ofEpochDay(toEpochDay(date));
+	}
+
+	public static br.com.thiagomoreira.replicon.model.Date fromLocalDate(
+			LocalDate localDate) {
+		br.com.thiagomoreira.replicon.model.Date date = new br.com.thiagomoreira.replicon.model.Date();
+
+		date.setYear(localDate.getYear());
+		date.setMonth(localDate.getMonthValue());
+		date.setDay(localDate.getDayOfMonth());
+
+		return date;
+	}
+
+	public static long toEpochDay(br.com.thiagomoreira.replicon.model.Date date) {
+		return toEpochDay(date.getYear(), date.getMonth(), date.getDay());
+	}
+
+	public static long toEpochDay(int year, int month, int day) {
+		long y = month <= 2 ? year - 1 : year;
+		long era = (y >= 0 ? y : y - 399) / 400;
+		long yearOfEra = y - era * 400;
+		long dayOfYear = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5
+				+ day - 1;
+		long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100
+				+ dayOfYear;
+
+		return era * 146097 + dayOfEra - 719468;
+	}
+
+	public static br.com.thiagomoreira.replicon.model.Date fromEpochDay(
+			long epochDay) {
+		long z = epochDay + 719468;
+		long era = (z >= 0 ? z : z - 146096) / 146097;
+		long dayOfEra = z - era * 146097;
+		long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+		long dayOfYear = dayOfEra
+				- (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+		long mp = (5 * dayOfYear + 2) / 153;
+		int month = (int) (mp < 10 ? mp + 3 : mp - 9);
+		br.com.thiagomoreira.replicon.model.Date date = new br.com.thiagomoreira.replicon.model.Date();
+
+		date.setYear((int) (yearOfEra + era * 400 + (month <= 2 ? 1 : 0)));
+		date.setMonth(month);
+		date.setDay((int) (dayOfYear - (153 * mp + 2) / 5 + 1));
+
+		return date;
+	}
+
+	public static long interval(DateRange dateRange) {
+		return interval((int) toEpochDay(dateRange.getStartDate()),
+				(int) toEpochDay(dateRange.getEndDate()));
+	}
+
+	public static long interval(int startEpochDay, int endEpochDay) {
+		return ((long) startEpochDay << 32) | (endEpochDay & 0xFFFFFFFFL);
+	}
+
+	public static int intervalStart(long interval) {
+		return (int) (interval >> 32);
+	}
+
+	public static int intervalEnd(long interval) {
+		return (int) interval;
+	}
+
+	public static int intervalLength(long interval) {
+		return Math.max(0, intervalEnd(interval) - intervalStart(interval) + 1);
+	}
+
+	public static boolean overlaps(long interval, long other) {
+		return intervalStart(interval) <= intervalEnd(other)
+				&& intervalStart(other) <= intervalEnd(interval);
+	}
+
+	/**
+	 * @return the number of days both intervals have in common, zero when they
+	 *         don't overlap
+	 */
+	public static int overlapLength(long interval, long other) {
+		int start = Math.max(intervalStart(interval), intervalStart(other));
+		int end = Math.min(intervalEnd(interval), intervalEnd(other));
+
+		return Math.max(0, end - start + 1);
+	}
+
+	public static DateRange toDateRange(long interval) {
+		DateRange dateRange = new DateRange();
+
+		dateRange.setStartDate(fromEpochDay(intervalStart(interval)));
+		dateRange.setEndDate(fromEpochDay(intervalEnd(interval)));
+
+		return dateRange;
+	}
+
+}
@@ -0,0 +1,142 @@
+/**
+ * Copyright (C) 2014 Thiago Moreira (tmoreira2020@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package br.com.thiagomoreira.replicon.util;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import br.com.thiagomoreira.replicon.Priority;
+
+/**
+ * Runs related calls concurrently and fails as a whole: the first failure
+ * cancels, and interrupts, every other call of the scope, including the ones
+ * forked later by calls still running. Calls may fork the calls depending on
+ * their result instead of waiting for them, so no worker thread ever blocks on
+ * another.
+ */
+public class TaskScope implements AutoCloseable {
+
+	protected final ExecutorService executor;
+	protected final List<Future<?>> tasks = new ArrayList<Future<?>>();
+	/**
+	 * The calls still running, plus one for the owner until {@link #join()}, so
+	 * the scope can't complete while the owner may still fork.
+	 */
+	protected final AtomicInteger running = new AtomicInteger(1);
+	protected final AtomicBoolean joined = new AtomicBoolean();
+	protected final CompletableFuture<Void> done = new CompletableFuture<Void>();
+
+	public TaskScope(ExecutorService executor) {
+		this.executor = executor;
+	}
+
+	public <T> CompletableFuture<T> fork(final Callable<T> callable) {
+		final CompletableFuture<T> result = new CompletableFuture<T>();
+
+		running.incrementAndGet();
+
+		Future<?> task = executor.submit(Priority.propagate(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					result.complete(callable.call());
+
+					if (running.decrementAndGet() == 0) {
+						done.complete(null);
+					}
+				} catch (Throwable t) {
+					result.completeExceptionally(t);
+					fail(t);
+				}
+			}
+		}));
+
+		synchronized (tasks) {
+			if (done.isCompletedExceptionally()) {
+				task.cancel(true);
+			}
+
+			tasks.add(task);
+		}
+
+		return result;
+	}
+
+	/**
+	 * Waits for every call, forked so far or while waiting, to complete.
+	 * 
+	 * @throws IOException
+	 *             the first failure of the scope
+	 */
+	public void join() throws IOException {
+		if (joined.compareAndSet(false, true) && running.decrementAndGet() == 0) {
+			done.complete(null);
+		}
+
+		try {
+			done.get();
+		} catch (InterruptedException e) {
+			close();
+			Thread.currentThread().interrupt();
+
+			throw new InterruptedIOException();
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+
+			if (cause instanceof IOException) {
+				throw (IOException) cause;
+			}
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+
+			throw new IOException(cause);
+		}
+	}
+
+	/**
+	 * Cancels the calls still running.
+	 */
+	@Override
+	public void close() {
+		fail(new CancellationException("Scope closed"));
+	}
+
+	protected void fail(Throwable t) {
+		if (!done.completeExceptionally(t)) {
+			return;
+		}
+
+		synchronized (tasks) {
+			for (Future<?> task : tasks) {
+				task.cancel(true);
+			}
+		}
+	}
+}
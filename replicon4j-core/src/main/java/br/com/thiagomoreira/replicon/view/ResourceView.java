@@ -0,0 +1,44 @@
+/**
+ * Copyright (C) 2014 Thiago Moreira (tmoreira2020@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package br.com.thiagomoreira.replicon.view;
+
+import java.util.List;
+import java.util.Map;
+
+import lombok.Value;
+import br.com.thiagomoreira.replicon.model.ProjectAllocation;
+import br.com.thiagomoreira.replicon.model.Resource;
+import br.com.thiagomoreira.replicon.model.TaskAllocation;
+import br.com.thiagomoreira.replicon.model.TimeOffAllocation;
+
+/**
+ * Everything planned for a resource over a date range; the collections are
+ * unmodifiable.
+ */
+@Value
+public class ResourceView {
+
+	Resource resource;
+	List<ProjectAllocation> projectAllocations;
+
+	/**
+	 * Task allocations by project URI, in the order of the project allocations
+	 */
+	Map<String, List<TaskAllocation>> taskAllocations;
+
+	List<TimeOffAllocation> timeOff;
+
+}
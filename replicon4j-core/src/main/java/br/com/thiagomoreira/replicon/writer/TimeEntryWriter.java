@@ -0,0 +1,251 @@
+/**
+ * Copyright (C) 2014 Thiago Moreira (tmoreira2020@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package br.com.thiagomoreira.replicon.writer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import br.com.thiagomoreira.replicon.Replicon;
+import br.com.thiagomoreira.replicon.model.Target;
+import br.com.thiagomoreira.replicon.model.TimeEntry;
+
+/**
+ * Buffers time entries and saves them with <code>BulkPutTimeEntry</code>, a
+ * batch as soon as <code>batchSize</code> entries are buffered and whatever is
+ * buffered every <code>flushInterval</code>, with at most
+ * <code>maxConcurrency</code> calls in flight.
+ * 
+ * Entries leave the buffer only when their batch is sent, so once every call in
+ * flight is busy and the buffer is full {@link #write(TimeEntry)} blocks until
+ * a batch completes. Close the writer to send the remaining entries.
+ */
+public class TimeEntryWriter implements Closeable {
+
+	protected final Replicon replicon;
+	protected final Executor executor;
+	protected final int batchSize;
+	protected final int maxConcurrency;
+	protected final BlockingQueue<PendingWrite> buffer;
+	protected final Semaphore calls;
+	protected final ScheduledFuture<?> tick;
+	protected final AtomicLong batches = new AtomicLong();
+	protected volatile boolean closed;
+
+	public TimeEntryWriter(Replicon replicon) {
+		this(replicon, 100, 1, TimeUnit.SECONDS, 1000, 4);
+	}
+
+	public TimeEntryWriter(Replicon replicon, int batchSize,
+			long flushInterval, TimeUnit unit, int capacity, int maxConcurrency) {
+
+		if (batchSize < 1 || capacity < batchSize || maxConcurrency < 1) {
+			throw new IllegalArgumentException(
+					"batchSize and maxConcurrency must be positive and capacity at least batchSize");
+		}
+
+		this.replicon = replicon;
+		this.executor = replicon.getRuntime().getExecutor();
+		this.batchSize = batchSize;
+		this.maxConcurrency = maxConcurrency;
+		this.buffer = new ArrayBlockingQueue<PendingWrite>(capacity);
+		this.calls = new Semaphore(maxConcurrency);
+		this.tick = replicon.getRuntime().getScheduler()
+				.scheduleWithFixedDelay(new Runnable() {
+					@Override
+					public void run() {
+						dispatch(1);
+					}
+				}, flushInterval, flushInterval, unit);
+	}
+
+	/**
+	 * Buffers the entry, waiting for room when the buffer is full.
+	 * 
+	 * @return completed with the reference to the saved entry, or exceptionally
+	 *         with the failure of its batch
+	 */
+	public CompletableFuture<Target> write(TimeEntry timeEntry)
+			throws InterruptedIOException {
+
+		if (closed) {
+			throw new IllegalStateException("Writer is closed");
+		}
+
+		PendingWrite write = new PendingWrite(timeEntry);
+
+		try {
+			buffer.put(write);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+
+			throw new InterruptedIOException();
+		}
+
+		// close() may have drained the buffer before the entry got in
+		if (closed && buffer.remove(write)) {
+			write.future.completeExceptionally(new IllegalStateException(
+					"Writer is closed"));
+
+			return write.future;
+		}
+
+		dispatch(batchSize);
+
+		return write.future;
+	}
+
+	/**
+	 * Sends whatever is buffered, without waiting for the calls to complete.
+	 */
+	public void flush() {
+		dispatch(1);
+	}
+
+	public long getBatchCount() {
+		return batches.get();
+	}
+
+	/**
+	 * Sends the remaining entries and waits for every call to complete.
+	 */
+	@Override
+	public void close() throws IOException {
+		closed = true;
+		tick.cancel(false);
+
+		try {
+			while (!buffer.isEmpty()) {
+				calls.acquire();
+
+				List<PendingWrite> batch = drain();
+
+				if (batch.isEmpty()) {
+					calls.release();
+				} else {
+					send(batch);
+				}
+			}
+
+			calls.acquire(maxConcurrency);
+			calls.release(maxConcurrency);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+
+			throw new InterruptedIOException();
+		}
+	}
+
+	/**
+	 * Starts calls while at least <code>minimum</code> entries are buffered and
+	 * fewer than <code>maxConcurrency</code> calls are in flight.
+	 */
+	protected void dispatch(int minimum) {
+		while (buffer.size() >= minimum && calls.tryAcquire()) {
+			final List<PendingWrite> batch = drain();
+
+			if (batch.isEmpty()) {
+				calls.release();
+
+				return;
+			}
+
+			try {
+				executor.execute(new Runnable() {
+					@Override
+					public void run() {
+						send(batch);
+					}
+				});
+			} catch (RejectedExecutionException e) {
+				calls.release();
+
+				for (PendingWrite write : batch) {
+					write.future.completeExceptionally(e);
+				}
+
+				return;
+			}
+		}
+	}
+
+	protected List<PendingWrite> drain() {
+		List<PendingWrite> batch = new ArrayList<PendingWrite>(batchSize);
+
+		buffer.drainTo(batch, batchSize);
+
+		return batch;
+	}
+
+	/**
+	 * Saves the batch and releases its call permit.
+	 */
+	protected void send(List<PendingWrite> batch) {
+		try {
+			List<TimeEntry> timeEntries = new ArrayList<TimeEntry>(batch.size());
+
+			for (PendingWrite write : batch) {
+				timeEntries.add(write.timeEntry);
+			}
+
+			batches.incrementAndGet();
+
+			Target[] targets = replicon.putTimeEntries(timeEntries);
+
+			if (targets == null || targets.length != batch.size()) {
+				throw new IOException("Expected " + batch.size()
+						+ " saved entries but got "
+						+ (targets == null ? 0 : targets.length));
+			}
+
+			for (int i = 0; i < targets.length; i++) {
+				batch.get(i).future.complete(targets[i]);
+			}
+		} catch (Throwable t) {
+			for (PendingWrite write : batch) {
+				write.future.completeExceptionally(t);
+			}
+		} finally {
+			calls.release();
+		}
+
+		// full batches may have piled up while every call was busy
+		if (!closed) {
+			dispatch(batchSize);
+		}
+	}
+
+	protected static class PendingWrite {
+
+		protected final TimeEntry timeEntry;
+		protected final CompletableFuture<Target> future = new CompletableFuture<Target>();
+
+		protected PendingWrite(TimeEntry timeEntry) {
+			this.timeEntry = timeEntry;
+		}
+	}
+}
@@ -0,0 +1,117 @@
+/**
+ * Copyright (C) 2014 Thiago Moreira (tmoreira2020@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package br.com.thiagomoreira.replicon;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class PriorityLanesTest {
+
+	@Test
+	public void headroom() throws Exception {
+		final PriorityLanes lanes = new PriorityLanes(2, 1);
+
+		lanes.acquire(Priority.BULK);
+
+		Thread bulk = waiter(lanes, Priority.BULK, null);
+
+		awaitQueued(lanes, Priority.BULK, 1);
+
+		// the reserved permit is still free for interactive calls
+		lanes.acquire(Priority.INTERACTIVE);
+
+		Assert.assertTrue(bulk.isAlive());
+		Assert.assertEquals(1, lanes.getMetrics(Priority.BULK).getActive());
+
+		lanes.release(Priority.BULK);
+		bulk.join(1000);
+
+		Assert.assertFalse(bulk.isAlive());
+		Assert.assertEquals(0, lanes.getMetrics(Priority.BULK).getQueueDepth());
+		Assert.assertEquals(1, lanes.getMetrics(Priority.BULK)
+				.getMaxQueueDepth());
+		Assert.assertEquals(1, lanes.getMetrics(Priority.BULK).getQueuedCalls());
+		Assert.assertEquals(2, lanes.getMetrics(Priority.BULK).getCalls());
+	}
+
+	@Test
+	public void weightedFairness() throws Exception {
+		PriorityLanes lanes = new PriorityLanes(1, 0);
+		List<Priority> grants = Collections
+				.synchronizedList(new ArrayList<Priority>());
+		List<Thread> threads = new ArrayList<Thread>();
+
+		lanes.acquire(Priority.INTERACTIVE);
+
+		for (int i = 1; i <= 5; i++) {
+			threads.add(waiter(lanes, Priority.BULK, grants));
+			awaitQueued(lanes, Priority.BULK, i);
+			threads.add(waiter(lanes, Priority.INTERACTIVE, grants));
+			awaitQueued(lanes, Priority.INTERACTIVE, i);
+		}
+
+		lanes.release(Priority.INTERACTIVE);
+
+		for (Thread thread : threads) {
+			thread.join(1000);
+		}
+
+		Assert.assertEquals(10, grants.size());
+		// 4 interactive calls for each bulk one while both lanes wait
+		Assert.assertEquals(5, Collections.frequency(grants.subList(0, 6),
+				Priority.INTERACTIVE));
+	}
+
+	protected Thread waiter(final PriorityLanes lanes, final Priority priority,
+			final List<Priority> grants) {
+
+		Thread thread = new Thread() {
+			@Override
+			public void run() {
+				try {
+					lanes.acquire(priority);
+				} catch (Exception e) {
+					throw new RuntimeException(e);
+				}
+
+				if (grants != null) {
+					grants.add(priority);
+					lanes.release(priority);
+				}
+			}
+		};
+
+		thread.start();
+
+		return thread;
+	}
+
+	protected void awaitQueued(PriorityLanes lanes, Priority priority, int depth)
+			throws Exception {
+
+		for (int i = 0; i < 1000
+				&& lanes.getMetrics(priority).getQueueDepth() < depth; i++) {
+
+			Thread.sleep(1);
+		}
+
+		Assert.assertEquals(depth, lanes.getMetrics(priority).getQueueDepth());
+	}
+}
@@ -0,0 +1,102 @@
+/**
+ * Copyright (C) 2014 Thiago Moreira (tmoreira2020@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package br.com.thiagomoreira.replicon;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+import br.com.thiagomoreira.replicon.auth.Authentication;
+import br.com.thiagomoreira.replicon.transport.Transport;
+import br.com.thiagomoreira.replicon.transport.TransportResponse;
+
+public class RepliconRuntimeTest {
+
+	@Test
+	public void attach() throws Exception {
+		final byte[] user = IOUtils.toByteArray(getClass().getResourceAsStream(
+				"/getUser2Response.json"));
+		final List<String> urls = Collections
+				.synchronizedList(new ArrayList<String>());
+		final List<String> authorizations = Collections
+				.synchronizedList(new ArrayList<String>());
+
+		RepliconRuntime runtime = new RepliconRuntime(new Transport() {
+			@Override
+			public TransportResponse post(String url,
+					Map<String, String> headers, byte[] body)
+					throws IOException {
+
+				urls.add(url);
+				authorizations.add(headers.get("Authorization"));
+
+				String response;
+
+				if (url.equals(DiscoveryBaseUrlResolver.DEFAULT_DISCOVERY_URL)) {
+					String company = new String(body, "UTF-8")
+							.contains("first")
+							? "na5.replicon.com/first/"
+							: "eu1.replicon.com/second";
+
+					response = "{\"d\":{\"applicationRootUrl\":\"https://"
+							+ company + "\"}}";
+				} else {
+					return new TransportResponse(200, new ByteArrayInputStream(
+							user));
+				}
+
+				return new TransportResponse(200, new ByteArrayInputStream(
+						response.getBytes("UTF-8")));
+			}
+		});
+		Replicon first = runtime.attach("First", "username", "password");
+		Replicon second = runtime.attach("second", new Authentication() {
+			@Override
+			public String getAuthorizationHeader() {
+				return "Bearer token";
+			}
+		});
+
+		first.getUserByLoginName("thiago.ferreira");
+		first.getUserByLoginName("thiago.ferreira");
+		second.getUserByLoginName("thiago.ferreira");
+
+		Assert.assertEquals(5, urls.size());
+		Assert.assertEquals(DiscoveryBaseUrlResolver.DEFAULT_DISCOVERY_URL,
+				urls.get(0));
+		Assert.assertNull(authorizations.get(0));
+		Assert.assertEquals(
+				"https://na5.replicon.com/first/services/UserService1.svc/GetUser2",
+				urls.get(1));
+		Assert.assertEquals(urls.get(1), urls.get(2));
+		Assert.assertEquals(DiscoveryBaseUrlResolver.DEFAULT_DISCOVERY_URL,
+				urls.get(3));
+		Assert.assertEquals(
+				"https://eu1.replicon.com/second/services/UserService1.svc/GetUser2",
+				urls.get(4));
+		Assert.assertEquals("Bearer token", authorizations.get(4));
+		Assert.assertEquals(3,
+				runtime.getMetrics().getOperation("/UserService1.svc/GetUser2")
+						.getCalls());
+	}
+}
@@ -0,0 +1,426 @@
+/**
+ * Copyright (C) 2014 Thiago Moreira (tmoreira2020@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package br.com.thiagomoreira.replicon;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import br.com.thiagomoreira.replicon.auth.AccessToken;
+import br.com.thiagomoreira.replicon.auth.AccessTokenProvider;
+import br.com.thiagomoreira.replicon.auth.TokenAuthentication;
+import br.com.thiagomoreira.replicon.metrics.OperationMetrics;
+import br.com.thiagomoreira.replicon.metrics.ResourceSampler;
+import br.com.thiagomoreira.replicon.model.Duration;
+import br.com.thiagomoreira.replicon.model.Project;
+import br.com.thiagomoreira.replicon.model.Status;
+import br.com.thiagomoreira.replicon.model.User;
+import br.com.thiagomoreira.replicon.transport.ByteArrayPool;
+import br.com.thiagomoreira.replicon.view.ResourceView;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+public class RepliconTest {
+
+	protected static final String WARMUP = "/br/com/thiagomoreira/replicon/warmup/";
+
+	protected HttpServer server;
+	protected RepliconRuntime runtime;
+	protected Replicon replicon;
+	protected volatile String path;
+	protected volatile String authorization;
+	protected Map<String, String> fixtures = new HashMap<String, String>();
+	protected Set<Integer> ports = Collections
+			.synchronizedSet(new HashSet<Integer>());
+
+	@Before
+	public void setUp() throws Exception {
+		fixtures.put("GetProjectDetails", "/getProjectResponse.json");
+		fixtures.put("GetUser2", "/getUser2Response.json");
+		fixtures.put("GetDirectReportsForUser",
+				"/getUsersBySupervisorResponse.json");
+
+		server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		server.createContext("/", new HttpHandler() {
+			@Override
+			public void handle(HttpExchange exchange) throws IOException {
+				ports.add(exchange.getRemoteAddress().getPort());
+				exchange.getRequestBody().close();
+
+				if (exchange.getRequestMethod().equals("HEAD")) {
+					exchange.sendResponseHeaders(200, -1);
+					exchange.close();
+					return;
+				}
+
+				path = exchange.getRequestURI().getPath();
+				authorization = exchange.getRequestHeaders().getFirst(
+						"Authorization");
+
+				String name = fixtures.get(path.substring(path.lastIndexOf('/') + 1));
+				InputStream fixture = name == null ? null : getClass()
+						.getResourceAsStream(name);
+
+				byte[] body = fixture == null
+						? "{\"error\":{}}".getBytes()
+						: IOUtils.toByteArray(fixture);
+
+				exchange.getResponseHeaders().set("Content-Type",
+						"application/json");
+				exchange.sendResponseHeaders(fixture == null ? 500 : 200,
+						body.length);
+
+				OutputStream outputStream = exchange.getResponseBody();
+
+				outputStream.write(body);
+				outputStream.close();
+			}
+		});
+		server.start();
+
+		runtime = new RepliconRuntime();
+
+		runtime.setBaseServiceUrl("company", "http://127.0.0.1:"
+				+ server.getAddress().getPort() + "/company/services");
+		replicon = runtime.attach("company", "username", "password");
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		server.stop(0);
+	}
+
+	@Test
+	public void getProject() throws Exception {
+		String projectUri = "urn:replicon-tenant:company:project:001";
+		Project project = replicon.getProject(projectUri);
+
+		Assert.assertEquals(
+				"/company/services/ProjectService1.svc/GetProjectDetails", path);
+		Assert.assertEquals(projectUri, project.getUri());
+		Assert.assertEquals(Status.INPROGRESS, project.getStatus().getName());
+	}
+
+	@Test
+	public void getUser() throws Exception {
+		User user = replicon.getUserByLoginName("thiago.ferreira");
+
+		Assert.assertEquals("/company/services/UserService1.svc/GetUser2", path);
+		Assert.assertEquals("Basic Y29tcGFueVx1c2VybmFtZTpwYXNzd29yZA==",
+				authorization);
+		Assert.assertEquals("thiago.ferreira", user.getLoginName());
+		Assert.assertEquals("urn:replicon-tenant:company:user:001",
+				user.getUri());
+	}
+
+	@Test
+	public void createAccessToken() throws Exception {
+		fixtures.put("CreateAccessToken", "/createAccessTokenResponse.json");
+
+		Duration lifetime = new Duration();
+
+		lifetime.setHours(2);
+
+		long before = System.currentTimeMillis();
+		AccessToken accessToken = replicon.createAccessToken(lifetime,
+				"replicon4j");
+
+		Assert.assertEquals(
+				"/company/services/AuthenticationService1.svc/CreateAccessToken",
+				path);
+		Assert.assertEquals("0123456789abcdef", accessToken.getToken());
+		Assert.assertTrue(accessToken.getExpiresAt() >= before
+				+ TimeUnit.HOURS.toMillis(2));
+		Assert.assertTrue(accessToken.getExpiresAt() <= System
+				.currentTimeMillis() + TimeUnit.HOURS.toMillis(2));
+
+		// the token authenticates the calls of another client
+		final Replicon creator = replicon;
+		Replicon bearer = runtime.attach("company", new TokenAuthentication(
+				new AccessTokenProvider() {
+					@Override
+					public AccessToken createAccessToken() throws IOException {
+						Duration lifetime = new Duration();
+
+						lifetime.setHours(2);
+
+						return creator
+								.createAccessToken(lifetime, "replicon4j");
+					}
+				}, runtime.getExecutor()));
+
+		bearer.getProject("urn:replicon-tenant:company:project:001");
+
+		Assert.assertEquals("Bearer 0123456789abcdef", authorization);
+	}
+
+	@Test
+	public void getUsersBySupervisor() throws Exception {
+		User[] users = replicon
+				.getUsersBySupervisor("urn:replicon-tenant:company:user:120");
+
+		Assert.assertEquals(4, users.length);
+		Assert.assertEquals("eduardo.moreira", users[0].getLoginName());
+		Assert.assertEquals("marcio.peixoto", users[3].getLoginName());
+	}
+
+	@Test
+	public void byteArrayPool() throws Exception {
+		ByteArrayPool byteArrayPool = new ByteArrayPool(256, 64);
+
+		runtime.setByteArrayPool(byteArrayPool);
+
+		for (int i = 0; i < 3; i++) {
+			Project project = replicon
+					.getProject("urn:replicon-tenant:company:project:001");
+
+			Assert.assertEquals(Status.INPROGRESS, project.getStatus()
+					.getName());
+		}
+
+		// the 2059 bytes body takes 9 buffers, allocated on the first call
+		Assert.assertEquals(9, byteArrayPool.getAllocations());
+		Assert.assertEquals(9, byteArrayPool.getPooled());
+	}
+
+	@Test
+	public void getResourceView() throws Exception {
+		fixtures.put("GetResourceDetails", WARMUP + "GetResourceDetails.json");
+		fixtures.put("GetResourceAllocationSummary", WARMUP
+				+ "GetResourceAllocationSummary.json");
+		fixtures.put("GetResourceTaskAllocationDetails", WARMUP
+				+ "GetResourceTaskAllocationDetails.json");
+		fixtures.put("GetTimeOffDetailsForUserAndDateRange", WARMUP
+				+ "GetTimeOffDetailsForUserAndDateRange.json");
+
+		ResourceView view = replicon.getResourceView(
+				"urn:replicon-tenant:company:user:3", new Date(), new Date());
+
+		Assert.assertEquals("user.3", view.getResource().getUser()
+				.getLoginName());
+		Assert.assertEquals(8, view.getProjectAllocations().size());
+		Assert.assertEquals(6, view.getTaskAllocations().size());
+		Assert.assertEquals(
+				8,
+				view.getTaskAllocations()
+						.get("urn:replicon-tenant:company:project:4").size());
+		Assert.assertEquals(4, view.getTimeOff().size());
+		// one call per distinct project
+		Assert.assertEquals(
+				6,
+				runtime.getMetrics()
+						.getOperation(
+								Operation.GET_RESOURCE_TASK_ALLOCATION_DETAILS
+										.getPath()).getCalls());
+	}
+
+	@Test
+	public void getResourceViewWithoutAllocations() throws Exception {
+		fixtures.put("GetResourceDetails", WARMUP + "GetResourceDetails.json");
+		fixtures.put("GetResourceAllocationSummary",
+				"/getResourceAllocationSummaryEmptyResponse.json");
+		fixtures.put("GetTimeOffDetailsForUserAndDateRange", WARMUP
+				+ "GetTimeOffDetailsForUserAndDateRange.json");
+
+		ResourceView view = replicon.getResourceView(
+				"urn:replicon-tenant:company:user:3", new Date(), new Date());
+
+		Assert.assertEquals("user.3", view.getResource().getUser()
+				.getLoginName());
+		Assert.assertTrue(view.getProjectAllocations().isEmpty());
+		Assert.assertTrue(view.getTaskAllocations().isEmpty());
+		Assert.assertEquals(4, view.getTimeOff().size());
+	}
+
+	@Test
+	public void getResourceViewFailure() throws Exception {
+		fixtures.put("GetResourceDetails", WARMUP + "GetResourceDetails.json");
+		fixtures.put("GetResourceAllocationSummary", WARMUP
+				+ "GetResourceAllocationSummary.json");
+
+		try {
+			replicon.getResourceView("urn:replicon-tenant:company:user:3",
+					new Date(), new Date());
+			Assert.fail();
+		} catch (RepliconException e) {
+			Assert.assertEquals(500, e.getStatusCode());
+		}
+	}
+
+	@Test
+	public void accounting() throws Exception {
+		runtime.getMetrics().setSampler(new ResourceSampler());
+
+		for (int i = 0; i < 3; i++) {
+			replicon.getProject("urn:replicon-tenant:company:project:001");
+		}
+
+		OperationMetrics metrics = runtime.getMetrics().getOperation(
+				Operation.GET_PROJECT_DETAILS.getPath());
+
+		Assert.assertEquals(3, metrics.getSampledCalls());
+		Assert.assertTrue(metrics.getMeanAllocatedBytes() > 2059);
+		Assert.assertTrue(metrics.getCpuTime(TimeUnit.NANOSECONDS) > 0);
+	}
+
+	@Test
+	public void priorityLanes() throws Exception {
+		PriorityLanes priorityLanes = new PriorityLanes(2, 1);
+
+		runtime.setPriorityLanes(priorityLanes);
+
+		replicon.getProject("urn:replicon-tenant:company:project:001");
+
+		Priority previous = Priority.override(Priority.BULK);
+
+		try {
+			replicon.getUserByLoginName("thiago.ferreira");
+		} finally {
+			Priority.override(previous);
+		}
+
+		Assert.assertEquals(1, priorityLanes.getMetrics(Priority.INTERACTIVE)
+				.getCalls());
+		Assert.assertEquals(1, priorityLanes.getMetrics(Priority.BULK)
+				.getCalls());
+		Assert.assertEquals(0, priorityLanes.getMetrics(Priority.BULK)
+				.getActive());
+	}
+
+	@Test
+	public void queuedCallsHoldNoRatePermit() throws Exception {
+		PriorityLanes priorityLanes = new PriorityLanes(1, 0);
+		RateLimiter rateLimiter = new RateLimiter(0.001, 2);
+
+		runtime.setPriorityLanes(priorityLanes);
+		runtime.setRateLimiter(rateLimiter);
+
+		// takes the only permit of the lanes
+		priorityLanes.acquire(Priority.INTERACTIVE);
+
+		Thread bulk = new Thread() {
+			@Override
+			public void run() {
+				Priority.override(Priority.BULK);
+
+				try {
+					replicon.getProject("urn:replicon-tenant:company:project:001");
+				} catch (IOException e) {
+					throw new RuntimeException(e);
+				}
+			}
+		};
+
+		bulk.start();
+
+		try {
+			long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+
+			while (priorityLanes.getMetrics(Priority.BULK).getQueueDepth() == 0) {
+				Assert.assertTrue("timed out", System.nanoTime() - deadline < 0);
+
+				Thread.sleep(5);
+			}
+
+			Assert.assertEquals(2, rateLimiter.getAvailablePermits(), 0.01);
+		} finally {
+			priorityLanes.release(Priority.INTERACTIVE);
+		}
+
+		bulk.join(TimeUnit.SECONDS.toMillis(10));
+
+		Assert.assertEquals(1, priorityLanes.getMetrics(Priority.BULK)
+				.getCalls());
+		Assert.assertEquals(1, rateLimiter.getAvailablePermits(), 0.01);
+	}
+
+	@Test
+	public void priorityPropagation() throws Exception {
+		fixtures.put("GetResourceDetails", WARMUP + "GetResourceDetails.json");
+		fixtures.put("GetResourceAllocationSummary", WARMUP
+				+ "GetResourceAllocationSummary.json");
+		fixtures.put("GetResourceTaskAllocationDetails", WARMUP
+				+ "GetResourceTaskAllocationDetails.json");
+		fixtures.put("GetTimeOffDetailsForUserAndDateRange", WARMUP
+				+ "GetTimeOffDetailsForUserAndDateRange.json");
+
+		PriorityLanes priorityLanes = new PriorityLanes();
+
+		runtime.setPriorityLanes(priorityLanes);
+
+		Priority previous = Priority.override(Priority.BULK);
+
+		try {
+			replicon.getResourceView("urn:replicon-tenant:company:user:3",
+					new Date(), new Date());
+		} finally {
+			Priority.override(previous);
+		}
+
+		// the calls made by the workers carry the override
+		Assert.assertEquals(0, priorityLanes.getMetrics(Priority.INTERACTIVE)
+				.getCalls());
+		Assert.assertEquals(9, priorityLanes.getMetrics(Priority.BULK)
+				.getCalls());
+	}
+
+	@Test
+	public void failure() throws Exception {
+		try {
+			replicon.getTask("urn:replicon-tenant:company:task:001");
+			Assert.fail();
+		} catch (RepliconException e) {
+			Assert.assertEquals(500, e.getStatusCode());
+		}
+
+		// the connection is still usable
+		Assert.assertNotNull(replicon.getUserByLoginName("thiago.ferreira"));
+	}
+
+	@Test
+	public void warmUp() throws Exception {
+		WarmUp warmUp = new WarmUp();
+
+		warmUp.setConnections(3);
+		warmUp.setIterations(10);
+
+		replicon.warmUp(warmUp);
+
+		Assert.assertEquals(3, ports.size());
+
+		replicon.getUserByLoginName("thiago.ferreira");
+		replicon.getProject("urn:replicon-tenant:company:project:001");
+
+		// served by the connections opened beforehand
+		Assert.assertEquals(3, ports.size());
+	}
+}
@@ -0,0 +1,201 @@
+/**
+ * Copyright (C) 2014 Thiago Moreira (tmoreira2020@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package br.com.thiagomoreira.replicon.auth;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TokenAuthenticationTest {
+
+	protected static final long HOUR = TimeUnit.HOURS.toMillis(1);
+
+	protected final AtomicLong clock = new AtomicLong(1000000);
+	protected final AtomicInteger tokens = new AtomicInteger();
+	protected final List<Runnable> tasks = new ArrayList<Runnable>();
+	protected volatile boolean rejecting;
+	protected volatile CountDownLatch release = new CountDownLatch(0);
+	protected TokenAuthentication authentication;
+
+	@Before
+	public void setUp() throws Exception {
+		authentication = new TokenAuthentication(new AccessTokenProvider() {
+			@Override
+			public AccessToken createAccessToken() throws IOException {
+				int token = tokens.incrementAndGet();
+
+				try {
+					release.await();
+				} catch (InterruptedException e) {
+					throw new IOException(e);
+				}
+
+				return new AccessToken("t" + token, clock.get() + HOUR);
+			}
+		}, new Executor() {
+			@Override
+			public void execute(Runnable command) {
+				if (rejecting) {
+					throw new RejectedExecutionException();
+				}
+
+				tasks.add(command);
+			}
+		}, 5, TimeUnit.MINUTES) {
+			@Override
+			protected long currentTimeMillis() {
+				return clock.get();
+			}
+		};
+	}
+
+	@Test
+	public void cachesHeader() throws Exception {
+		Assert.assertEquals("Bearer t1",
+				authentication.getAuthorizationHeader());
+		Assert.assertEquals("Bearer t1",
+				authentication.getAuthorizationHeader());
+
+		clock.addAndGet(HOUR - TimeUnit.MINUTES.toMillis(6));
+
+		Assert.assertEquals("Bearer t1",
+				authentication.getAuthorizationHeader());
+		Assert.assertEquals(1, tokens.get());
+		Assert.assertTrue(tasks.isEmpty());
+	}
+
+	@Test
+	public void refreshesInBackground() throws Exception {
+		authentication.getAuthorizationHeader();
+
+		clock.addAndGet(HOUR - TimeUnit.MINUTES.toMillis(4));
+
+		// callers keep the current header while a single refresh is pending
+		Assert.assertEquals("Bearer t1",
+				authentication.getAuthorizationHeader());
+		Assert.assertEquals("Bearer t1",
+				authentication.getAuthorizationHeader());
+		Assert.assertEquals(1, tasks.size());
+		Assert.assertEquals(1, tokens.get());
+
+		tasks.remove(0).run();
+
+		Assert.assertEquals(2, tokens.get());
+		Assert.assertEquals("Bearer t2",
+				authentication.getAuthorizationHeader());
+		Assert.assertTrue(tasks.isEmpty());
+	}
+
+	@Test
+	public void refreshesExpired() throws Exception {
+		authentication.getAuthorizationHeader();
+
+		clock.addAndGet(HOUR);
+
+		Assert.assertEquals("Bearer t2",
+				authentication.getAuthorizationHeader());
+		Assert.assertEquals(2, tokens.get());
+		Assert.assertTrue(tasks.isEmpty());
+	}
+
+	@Test
+	public void blocksOnceWhenMissing() throws Exception {
+		final List<String> headers = new ArrayList<String>();
+		List<Thread> threads = new ArrayList<Thread>();
+
+		release = new CountDownLatch(1);
+
+		for (int i = 0; i < 4; i++) {
+			Thread thread = new Thread() {
+				@Override
+				public void run() {
+					try {
+						String header = authentication.getAuthorizationHeader();
+
+						synchronized (headers) {
+							headers.add(header);
+						}
+					} catch (IOException e) {
+						throw new RuntimeException(e);
+					}
+				}
+			};
+
+			thread.start();
+			threads.add(thread);
+		}
+
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+
+		while (tokens.get() == 0) {
+			Assert.assertTrue("timed out", System.nanoTime() - deadline < 0);
+
+			Thread.sleep(5);
+		}
+
+		release.countDown();
+
+		for (Thread thread : threads) {
+			thread.join(TimeUnit.SECONDS.toMillis(10));
+		}
+
+		Assert.assertEquals(4, headers.size());
+
+		for (String header : headers) {
+			Assert.assertEquals("Bearer t1", header);
+		}
+
+		Assert.assertEquals(1, tokens.get());
+	}
+
+	@Test
+	public void rejectedRefresh() throws Exception {
+		authentication.getAuthorizationHeader();
+
+		clock.addAndGet(HOUR - TimeUnit.MINUTES.toMillis(4));
+		rejecting = true;
+
+		Assert.assertEquals("Bearer t1",
+				authentication.getAuthorizationHeader());
+		Assert.assertFalse(authentication.refreshing.get());
+
+		// the next caller tries again
+		rejecting = false;
+
+		Assert.assertEquals("Bearer t1",
+				authentication.getAuthorizationHeader());
+		Assert.assertEquals(1, tasks.size());
+	}
+
+	@Test
+	public void invalidate() throws Exception {
+		authentication.getAuthorizationHeader();
+		authentication.invalidate();
+
+		Assert.assertEquals("Bearer t2",
+				authentication.getAuthorizationHeader());
+	}
+}
@@ -0,0 +1,242 @@
+/**
+ * Copyright (C) 2014 Thiago Moreira (tmoreira2020@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package br.com.thiagomoreira.replicon.cache;
+
+import java.io.IOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import br.com.thiagomoreira.replicon.RateLimiter;
+import br.com.thiagomoreira.replicon.RepliconRuntime;
+import br.com.thiagomoreira.replicon.loader.Fetcher;
+
+public class RefreshAheadCacheTest {
+
+	protected RepliconRuntime runtime;
+	protected RefreshAheadCache<String, String> cache;
+	protected AtomicInteger fetches = new AtomicInteger();
+
+	@Before
+	public void setUp() throws Exception {
+		runtime = new RepliconRuntime();
+		cache = new RefreshAheadCache<String, String>(
+				new Fetcher<String, String>() {
+					@Override
+					public String fetch(String key) throws IOException {
+						return key + "-" + fetches.incrementAndGet();
+					}
+				}, runtime, 300, TimeUnit.MILLISECONDS, 10,
+				TimeUnit.MILLISECONDS);
+		cache.setRefreshAhead(200, TimeUnit.MILLISECONDS);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		cache.close();
+		runtime.close();
+	}
+
+	@Test
+	public void refreshesHotEntries() throws Exception {
+		Assert.assertEquals("a-1", cache.get("a"));
+		Assert.assertEquals("a-1", cache.get("a"));
+		Assert.assertEquals("a-1", cache.get("a"));
+
+		// refreshed in the background 100ms after the first load
+		eventually(new Callable<Boolean>() {
+			@Override
+			public Boolean call() throws Exception {
+				return cache.getRefreshCount() == 1;
+			}
+		});
+
+		Assert.assertEquals("a-2", cache.get("a"));
+		Assert.assertEquals(1, cache.getMissCount());
+		Assert.assertEquals(1, cache.getRefreshCount());
+	}
+
+	@Test
+	public void coldEntriesExpire() throws Exception {
+		Assert.assertEquals("a-1", cache.get("a"));
+
+		eventually(new Callable<Boolean>() {
+			@Override
+			public Boolean call() throws Exception {
+				return cache.size() == 0;
+			}
+		});
+
+		Assert.assertEquals("a-2", cache.get("a"));
+		Assert.assertEquals(2, cache.getMissCount());
+		Assert.assertEquals(0, cache.getRefreshCount());
+	}
+
+	@Test
+	public void respectsRateBudget() throws Exception {
+		final AtomicInteger prepays = new AtomicInteger();
+		RateLimiter rateLimiter = new RateLimiter(0.001, 1) {
+			@Override
+			public boolean tryPrepay() {
+				prepays.incrementAndGet();
+
+				return super.tryPrepay();
+			}
+		};
+
+		Assert.assertTrue(rateLimiter.tryAcquire());
+		runtime.setRateLimiter(rateLimiter);
+
+		cache.get("a");
+		cache.get("a");
+		cache.get("a");
+
+		// two refreshes turned down by the budget
+		eventually(new Callable<Boolean>() {
+			@Override
+			public Boolean call() throws Exception {
+				return prepays.get() >= 2;
+			}
+		});
+
+		Assert.assertEquals(0, cache.getRefreshCount());
+		Assert.assertEquals(1, fetches.get());
+	}
+
+	@Test
+	public void failingRefresh() throws Exception {
+		final AtomicInteger attempts = new AtomicInteger();
+		final RefreshAheadCache<String, String> cache = new RefreshAheadCache<String, String>(
+				new Fetcher<String, String>() {
+					@Override
+					public String fetch(String key) throws IOException {
+						if (attempts.incrementAndGet() > 1) {
+							throw new IOException("gone");
+						}
+
+						return key;
+					}
+				}, runtime, 300, TimeUnit.MILLISECONDS, 10,
+				TimeUnit.MILLISECONDS);
+
+		try {
+			cache.get("a");
+			cache.get("a");
+			cache.get("a");
+
+			// dropped once expired instead of refreshed every tick
+			eventually(new Callable<Boolean>() {
+				@Override
+				public Boolean call() throws Exception {
+					return cache.size() == 0;
+				}
+			});
+
+			int expired = attempts.get();
+
+			Thread.sleep(100);
+
+			Assert.assertTrue(expired > 1);
+			Assert.assertEquals(expired, attempts.get());
+			Assert.assertEquals(0, cache.getRefreshCount());
+		} finally {
+			cache.close();
+		}
+	}
+
+	@Test
+	public void rejectedRefresh() throws Exception {
+		RefreshAheadCache<String, String> cache = new RefreshAheadCache<String, String>(
+				new Fetcher<String, String>() {
+					@Override
+					public String fetch(String key) throws IOException {
+						return key + "-" + fetches.incrementAndGet();
+					}
+				}, runtime, 1, TimeUnit.HOURS, 1, TimeUnit.HOURS);
+
+		try {
+			cache.setRefreshAhead(1, TimeUnit.HOURS);
+			cache.setMaxConcurrency(1);
+
+			cache.get("a");
+			cache.get("a");
+			cache.get("a");
+
+			runtime.getExecutor().shutdown();
+			cache.refresh();
+
+			Assert.assertEquals(0, cache.activeRefreshes.get());
+			Assert.assertFalse(cache.entries.get("a").refreshing.get());
+
+			cache.refresh();
+
+			Assert.assertEquals(0, cache.activeRefreshes.get());
+			Assert.assertEquals(0, cache.getRefreshCount());
+		} finally {
+			cache.close();
+		}
+	}
+
+	@Test
+	public void failedTick() throws Exception {
+		final AtomicInteger ticks = new AtomicInteger();
+		RefreshAheadCache<String, String> cache = new RefreshAheadCache<String, String>(
+				new Fetcher<String, String>() {
+					@Override
+					public String fetch(String key) throws IOException {
+						return key;
+					}
+				}, runtime, 300, TimeUnit.MILLISECONDS, 10,
+				TimeUnit.MILLISECONDS) {
+			@Override
+			protected void refresh() {
+				if (ticks.incrementAndGet() == 1) {
+					throw new IllegalStateException();
+				}
+
+				super.refresh();
+			}
+		};
+
+		try {
+			eventually(new Callable<Boolean>() {
+				@Override
+				public Boolean call() throws Exception {
+					return ticks.get() >= 2;
+				}
+			});
+		} finally {
+			cache.close();
+		}
+	}
+
+	protected static void eventually(Callable<Boolean> condition)
+			throws Exception {
+
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+
+		while (!condition.call()) {
+			Assert.assertTrue("timed out", System.nanoTime() - deadline < 0);
+
+			Thread.sleep(5);
+		}
+	}
+}
@@ -0,0 +1,227 @@
+/**
+ * Copyright (C) 2014 Thiago Moreira (tmoreira2020@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package br.com.thiagomoreira.replicon.capacity;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import br.com.thiagomoreira.replicon.Replicon;
+import br.com.thiagomoreira.replicon.RepliconRuntime;
+import br.com.thiagomoreira.replicon.model.DateDetails;
+import br.com.thiagomoreira.replicon.model.Duration;
+import br.com.thiagomoreira.replicon.model.ProjectAllocation;
+import br.com.thiagomoreira.replicon.model.Response;
+import br.com.thiagomoreira.replicon.model.TimeOffAllocation;
+import br.com.thiagomoreira.replicon.model.User;
+import br.com.thiagomoreira.replicon.model.operations.GetResourceAllocationSummaryResponse;
+import br.com.thiagomoreira.replicon.transport.Transport;
+import br.com.thiagomoreira.replicon.transport.TransportResponse;
+import br.com.thiagomoreira.replicon.util.DateUtil;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+public class AvailabilitySearchTest {
+
+	// Monday to Friday, 40 working hours
+	protected static final long MONDAY = DateUtil.toEpochDay(2014, 6, 2);
+	protected static final long FRIDAY = MONDAY + 4;
+
+	protected Replicon replicon;
+	protected Map<String, List<String>> reports = new HashMap<String, List<String>>();
+	protected Map<String, Integer> allocatedHours = new HashMap<String, Integer>();
+	protected Map<String, Integer> timeOffHours = new HashMap<String, Integer>();
+	protected List<String> calls = Collections
+			.synchronizedList(new ArrayList<String>());
+
+	@Before
+	public void setUp() throws Exception {
+		final ObjectMapper objectMapper = new ObjectMapper();
+
+		RepliconRuntime runtime = new RepliconRuntime(new Transport() {
+			@Override
+			public TransportResponse post(String url,
+					Map<String, String> headers, byte[] body)
+					throws IOException {
+
+				String operation = url.substring(url.lastIndexOf('/') + 1);
+				JsonNode request = objectMapper.readTree(body);
+				String userUri = request.has("userUri") ? request
+						.get("userUri").asText() : request.get("resourceUri")
+						.asText();
+				Response<Object> response = new Response<Object>();
+
+				calls.add(operation + " " + userUri);
+
+				if (operation.equals("GetDirectReportsForUser")) {
+					response.setD(users(reports.get(userUri)));
+				} else if (operation
+						.equals("GetTimeOffDetailsForUserAndDateRange")) {
+					response.setD(timeOff(timeOffHours.get(userUri)));
+				} else {
+					response.setD(allocations(allocatedHours.get(userUri)));
+				}
+
+				return new TransportResponse(200, new ByteArrayInputStream(
+						objectMapper.writeValueAsBytes(response)));
+			}
+		});
+		runtime.setBaseServiceUrl("company", "http://localhost/services");
+		replicon = runtime.attach("company", "username", "password");
+
+		reports.put("s", Arrays.asList("a", "b", "c"));
+		reports.put("a", Arrays.asList("d"));
+		timeOffHours.put("a", 16);
+		allocatedHours.put("b", 8);
+		allocatedHours.put("c", 20);
+	}
+
+	@Test
+	public void search() throws Exception {
+		List<Availability> found = new AvailabilitySearch(replicon).search("s",
+				date(MONDAY), date(FRIDAY), 30, 5);
+
+		Assert.assertEquals(2, found.size());
+
+		Availability b = found.get(0).getUser().getUri().equals("b") ? found
+				.get(0) : found.get(1);
+
+		Assert.assertEquals(40 * 60, b.getCapacityMinutes());
+		Assert.assertEquals(8 * 60, b.getAllocatedMinutes());
+		Assert.assertEquals(0, b.getTimeOffMinutes());
+		Assert.assertEquals(32, b.getFreeHours(), 0);
+		// time off leaves too little, allocations are not fetched
+		Assert.assertFalse(calls.contains("GetResourceAllocationSummary a"));
+	}
+
+	@Test
+	public void earlyTermination() throws Exception {
+		List<Availability> found = new AvailabilitySearch(replicon, 1, 8 * 60)
+				.search("s", date(MONDAY), date(FRIDAY), 30, 1);
+
+		Assert.assertEquals(1, found.size());
+		Assert.assertEquals("b", found.get(0).getUser().getUri());
+		Assert.assertEquals(4, calls.size());
+		Assert.assertFalse(calls.contains("GetDirectReportsForUser a"));
+	}
+
+	@Test
+	public void timeOffWithoutDates() throws Exception {
+		timeOffHours.put("b", 0);
+
+		List<Availability> found = new AvailabilitySearch(replicon, 1, 8 * 60)
+				.search("s", date(MONDAY), date(FRIDAY), 30, 1);
+
+		Assert.assertEquals("b", found.get(0).getUser().getUri());
+		Assert.assertEquals(0, found.get(0).getTimeOffMinutes());
+	}
+
+	@Test
+	public void notEnoughCapacity() throws Exception {
+		List<Availability> found = new AvailabilitySearch(replicon).search("s",
+				date(MONDAY), date(FRIDAY), 41, 1);
+
+		Assert.assertTrue(found.isEmpty());
+		Assert.assertTrue(calls.isEmpty());
+	}
+
+	protected Date date(long epochDay) {
+		return DateUtil.translateDate(DateUtil.fromEpochDay(epochDay));
+	}
+
+	protected User[] users(List<String> uris) {
+		List<User> users = new ArrayList<User>();
+
+		if (uris != null) {
+			for (String uri : uris) {
+				User user = new User();
+
+				user.setUri(uri);
+				users.add(user);
+			}
+		}
+
+		return users.toArray(new User[users.size()]);
+	}
+
+	protected TimeOffAllocation[] timeOff(Integer hours) {
+		if (hours == null) {
+			return new TimeOffAllocation[0];
+		}
+
+		TimeOffAllocation timeOff = new TimeOffAllocation();
+
+		DateDetails start = new DateDetails();
+		DateDetails end = new DateDetails();
+
+		if (hours == 0) {
+			// no date details, and date details without dates
+			TimeOffAllocation withoutDates = new TimeOffAllocation();
+
+			withoutDates.setStartDateDetails(start);
+			withoutDates.setEndDateDetails(end);
+			withoutDates.setTotalDuration(duration(8));
+
+			return new TimeOffAllocation[]{timeOff, withoutDates};
+		}
+
+		start.setDate(DateUtil.fromEpochDay(MONDAY));
+		end.setDate(DateUtil.fromEpochDay(FRIDAY));
+		timeOff.setStartDateDetails(start);
+		timeOff.setEndDateDetails(end);
+		timeOff.setTotalDuration(duration(hours));
+
+		return new TimeOffAllocation[]{timeOff};
+	}
+
+	protected GetResourceAllocationSummaryResponse allocations(Integer hours) {
+		GetResourceAllocationSummaryResponse response = new GetResourceAllocationSummaryResponse();
+
+		if (hours == null) {
+			response.setProjectsAllocatedTo(new ProjectAllocation[0]);
+
+			return response;
+		}
+
+		ProjectAllocation allocation = new ProjectAllocation();
+
+		allocation.setAllocationDateRange(DateUtil.toDateRange(DateUtil
+				.interval((int) MONDAY, (int) FRIDAY)));
+		allocation.setTotalProjectsDuration(duration(hours));
+		response.setProjectsAllocatedTo(new ProjectAllocation[]{allocation});
+
+		return response;
+	}
+
+	protected Duration duration(int hours) {
+		Duration duration = new Duration();
+
+		duration.setHours(hours);
+
+		return duration;
+	}
+}
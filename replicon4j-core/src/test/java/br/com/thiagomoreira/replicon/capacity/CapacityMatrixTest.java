@@ -0,0 +1,184 @@
+/**
+ * Copyright (C) 2014 Thiago Moreira (tmoreira2020@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package br.com.thiagomoreira.replicon.capacity;
+
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import br.com.thiagomoreira.replicon.model.DateDetails;
+import br.com.thiagomoreira.replicon.model.DateRange;
+import br.com.thiagomoreira.replicon.model.Duration;
+import br.com.thiagomoreira.replicon.model.ProjectAllocation;
+import br.com.thiagomoreira.replicon.model.TimeOffAllocation;
+import br.com.thiagomoreira.replicon.util.DateUtil;
+
+public class CapacityMatrixTest {
+
+	@Test
+	public void fromProjectAllocations() throws Exception {
+		// Monday 2014-03-03 to Sunday 2014-03-16, 10 working days
+		int first = (int) LocalDate.of(2014, 3, 1).toEpochDay();
+		int last = (int) LocalDate.of(2014, 3, 31).toEpochDay();
+
+		for (boolean offHeap : new boolean[]{false, true}) {
+			Map<String, ProjectAllocation[]> allocations = new LinkedHashMap<String, ProjectAllocation[]>();
+
+			allocations.put(
+					"a",
+					new ProjectAllocation[]{
+							allocation(LocalDate.of(2014, 3, 3),
+									LocalDate.of(2014, 3, 16), 80, 5),
+							allocation(LocalDate.of(2014, 3, 3),
+									LocalDate.of(2014, 3, 3), 4, 0)});
+			allocations.put(
+					"b",
+					new ProjectAllocation[]{allocation(
+							LocalDate.of(2014, 2, 24),
+							LocalDate.of(2014, 3, 7), 80, 0)});
+
+			CapacityMatrix matrix = CapacityMatrix.fromProjectAllocations(
+					allocations, first, last, offHeap);
+			int a = matrix.row("a");
+			int b = matrix.row("b");
+			int monday = (int) LocalDate.of(2014, 3, 3).toEpochDay();
+
+			Assert.assertEquals(offHeap, matrix.isOffHeap());
+			Assert.assertEquals(80 * 60 + 5 + 4 * 60, matrix.rowSum(a));
+			Assert.assertEquals(8 * 60 + 1 + 4 * 60, matrix.get(a, monday));
+			Assert.assertEquals(0, matrix.get(a, monday + 5));
+			// half of the allocation of b falls before the matrix
+			Assert.assertEquals(40 * 60, matrix.rowSum(b));
+
+			long[] columns = matrix.columnSums(monday, monday + 6);
+
+			Assert.assertEquals(7, columns.length);
+			Assert.assertEquals(matrix.get(a, monday) + matrix.get(b, monday),
+					columns[0]);
+			Assert.assertEquals(matrix.rowSum(a) + matrix.rowSum(b),
+					matrix.total());
+
+			CapacityMatrix slice = matrix.slice(monday, monday + 4);
+
+			Assert.assertEquals(5, slice.getDays());
+			Assert.assertEquals(matrix.rowSum(b, monday, monday + 4),
+					slice.rowSum(slice.row("b")));
+		}
+	}
+
+	@Test
+	public void fromTimeOff() throws Exception {
+		int monday = (int) LocalDate.of(2014, 3, 3).toEpochDay();
+		Map<String, TimeOffAllocation[]> timeOff = new LinkedHashMap<String, TimeOffAllocation[]>();
+		TimeOffAllocation withoutDetails = new TimeOffAllocation();
+		TimeOffAllocation withoutDates = new TimeOffAllocation();
+
+		withoutDetails.setTotalDuration(duration(8, 0));
+		withoutDates.setStartDateDetails(new DateDetails());
+		withoutDates.setEndDateDetails(new DateDetails());
+		withoutDates.setTotalDuration(duration(8, 0));
+
+		timeOff.put(
+				"a",
+				new TimeOffAllocation[]{
+						timeOff(LocalDate.of(2014, 3, 3),
+								LocalDate.of(2014, 3, 4), 16), withoutDetails,
+						withoutDates});
+
+		CapacityMatrix matrix = CapacityMatrix.fromTimeOff(timeOff, monday,
+				monday + 6, false);
+
+		// only the entry with dates counts
+		Assert.assertEquals(16 * 60, matrix.rowSum(matrix.row("a")));
+		Assert.assertEquals(8 * 60, matrix.get(matrix.row("a"), monday));
+	}
+
+	@Test
+	public void rowSumOutOfRange() throws Exception {
+		int first = (int) LocalDate.of(2014, 3, 3).toEpochDay();
+		CapacityMatrix matrix = new CapacityMatrix(
+				Collections.singletonList("a"), first, first + 6, false);
+
+		matrix.spread(0, first, first + 4, 5 * 60);
+
+		Assert.assertEquals(0, matrix.rowSum(0, first - 10, first - 1));
+		Assert.assertEquals(0, matrix.rowSum(0, first + 7, first + 10));
+		Assert.assertEquals(0, matrix.rowSum(0, first + 3, first + 1));
+		Assert.assertEquals(2 * 60, matrix.rowSum(0, first - 10, first + 1));
+
+		try {
+			matrix.rowSum(1, first + 7, first + 10);
+			Assert.fail();
+		} catch (IndexOutOfBoundsException e) {
+		}
+	}
+
+	@Test
+	public void workingDays() throws Exception {
+		int monday = (int) LocalDate.of(2014, 3, 3).toEpochDay();
+
+		Assert.assertTrue(CapacityMatrix.isWorkingDay(monday));
+		Assert.assertFalse(CapacityMatrix.isWorkingDay(monday + 5));
+		Assert.assertEquals(10, CapacityMatrix.workingDays(monday, monday + 13));
+		Assert.assertEquals(0,
+				CapacityMatrix.workingDays(monday + 5, monday + 6));
+	}
+
+	protected TimeOffAllocation timeOff(LocalDate start, LocalDate end,
+			int hours) {
+		DateDetails startDetails = new DateDetails();
+		DateDetails endDetails = new DateDetails();
+
+		startDetails.setDate(DateUtil.fromLocalDate(start));
+		endDetails.setDate(DateUtil.fromLocalDate(end));
+
+		TimeOffAllocation timeOff = new TimeOffAllocation();
+
+		timeOff.setStartDateDetails(startDetails);
+		timeOff.setEndDateDetails(endDetails);
+		timeOff.setTotalDuration(duration(hours, 0));
+
+		return timeOff;
+	}
+
+	protected Duration duration(int hours, int minutes) {
+		Duration duration = new Duration();
+
+		duration.setHours(hours);
+		duration.setMinutes(minutes);
+
+		return duration;
+	}
+
+	protected ProjectAllocation allocation(LocalDate start, LocalDate end,
+			int hours, int minutes) {
+		DateRange dateRange = new DateRange();
+
+		dateRange.setStartDate(DateUtil.fromLocalDate(start));
+		dateRange.setEndDate(DateUtil.fromLocalDate(end));
+
+		ProjectAllocation allocation = new ProjectAllocation();
+
+		allocation.setAllocationDateRange(dateRange);
+		allocation.setTotalProjectsDuration(duration(hours, minutes));
+
+		return allocation;
+	}
+}
@@ -0,0 +1,153 @@
+/**
+ * Copyright (C) 2014 Thiago Moreira (tmoreira2020@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package br.com.thiagomoreira.replicon.codec;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+import br.com.thiagomoreira.replicon.Operation;
+import br.com.thiagomoreira.replicon.RepliconRuntime;
+import br.com.thiagomoreira.replicon.model.Date;
+import br.com.thiagomoreira.replicon.model.Duration;
+import br.com.thiagomoreira.replicon.model.Project;
+import br.com.thiagomoreira.replicon.model.ProjectAllocation;
+import br.com.thiagomoreira.replicon.model.Resource;
+import br.com.thiagomoreira.replicon.model.Response;
+import br.com.thiagomoreira.replicon.model.TimeOffAllocation;
+
+public class JacksonCodecTest {
+
+	protected RepliconRuntime runtime = new RepliconRuntime();
+	protected JacksonCodec json = JacksonCodec.json();
+	protected JacksonCodec smile = JacksonCodec.smile();
+
+	@Test
+	public void roundTrip() throws Exception {
+		Project project = fixture(Operation.GET_PROJECT_DETAILS);
+		Resource resource = fixture(Operation.GET_RESOURCE_DETAILS);
+		TimeOffAllocation[] timeOff = fixture(Operation.GET_TIME_OFF_DETAILS_FOR_USER_AND_DATE_RANGE);
+		ProjectAllocation[] allocations = fixture(
+				Operation.GET_RESOURCE_ALLOCATION_SUMMARY)
+				.getProjectsAllocatedTo();
+
+		Assert.assertEquals(project,
+				smile.decode(smile.encode(project), Project.class));
+		Assert.assertEquals(resource,
+				smile.decode(smile.encode(resource), Resource.class));
+		Assert.assertArrayEquals(timeOff,
+				smile.decode(smile.encode(timeOff), TimeOffAllocation[].class));
+		Assert.assertArrayEquals(allocations, smile.decode(
+				smile.encode(allocations), ProjectAllocation[].class));
+	}
+
+	@Test
+	public void streams() throws Exception {
+		Project project = fixture(Operation.GET_PROJECT_DETAILS);
+		ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+		smile.encode(project, outputStream);
+
+		Assert.assertEquals(project, smile.decode(new ByteArrayInputStream(
+				outputStream.toByteArray()), Project.class));
+	}
+
+	@Test
+	public void leavesStreamsOpen() throws Exception {
+		Project project = fixture(Operation.GET_PROJECT_DETAILS);
+
+		for (JacksonCodec codec : new JacksonCodec[]{json, smile}) {
+			final AtomicBoolean closed = new AtomicBoolean();
+			ByteArrayOutputStream outputStream = new ByteArrayOutputStream() {
+				@Override
+				public void close() {
+					closed.set(true);
+				}
+			};
+
+			codec.encode(project, outputStream);
+
+			Assert.assertFalse(closed.get());
+
+			ByteArrayInputStream inputStream = new ByteArrayInputStream(
+					outputStream.toByteArray()) {
+				@Override
+				public void close() {
+					closed.set(true);
+				}
+			};
+
+			Assert.assertEquals(project,
+					codec.decode(inputStream, Project.class));
+			Assert.assertFalse(closed.get());
+		}
+	}
+
+	@Test
+	public void compact() throws Exception {
+		ProjectAllocation[] allocations = fixture(
+				Operation.GET_RESOURCE_ALLOCATION_SUMMARY)
+				.getProjectsAllocatedTo();
+		TimeOffAllocation[] timeOff = fixture(Operation.GET_TIME_OFF_DETAILS_FOR_USER_AND_DATE_RANGE);
+
+		Assert.assertTrue(smile.encode(allocations).length * 3 < json
+				.encode(allocations).length);
+		Assert.assertTrue(smile.encode(timeOff).length * 2 < json
+				.encode(timeOff).length);
+	}
+
+	@Test
+	public void dates() throws Exception {
+		Date date = new Date();
+
+		date.setDay(29);
+		date.setMonth(2);
+		date.setYear(2016);
+
+		Assert.assertEquals(date, smile.decode(smile.encode(date), Date.class));
+
+		// not a calendar date, kept as an object
+		date.setMonth(0);
+
+		Assert.assertEquals(date, smile.decode(smile.encode(date), Date.class));
+	}
+
+	@Test
+	public void durations() throws Exception {
+		Duration duration = new Duration();
+
+		duration.setHours(1234);
+		duration.setMinutes(56);
+		duration.setSeconds(7);
+
+		Assert.assertEquals(duration,
+				smile.decode(smile.encode(duration), Duration.class));
+	}
+
+	protected <T> T fixture(Operation<T> operation) throws Exception {
+		byte[] data = IOUtils.toByteArray(getClass().getResourceAsStream(
+				"/br/com/thiagomoreira/replicon/warmup/" + operation.getName()
+						+ ".json"));
+		Response<T> response = runtime.getReader(operation.getResponseType())
+				.readValue(data);
+
+		return response.getD();
+	}
+}
@@ -0,0 +1,200 @@
+/**
+ * Copyright (C) 2014 Thiago Moreira (tmoreira2020@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package br.com.thiagomoreira.replicon.directory;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import br.com.thiagomoreira.replicon.Replicon;
+import br.com.thiagomoreira.replicon.RepliconRuntime;
+import br.com.thiagomoreira.replicon.model.ListCell;
+import br.com.thiagomoreira.replicon.model.ListData;
+import br.com.thiagomoreira.replicon.model.ListRow;
+import br.com.thiagomoreira.replicon.model.Response;
+import br.com.thiagomoreira.replicon.model.User;
+import br.com.thiagomoreira.replicon.transport.Transport;
+import br.com.thiagomoreira.replicon.transport.TransportResponse;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+public class UserDirectoryTest {
+
+	protected static final String ALICE = "urn:replicon-tenant:company:user:1";
+	protected static final String BOB = "urn:replicon-tenant:company:user:2";
+	protected static final String CAROL = "urn:replicon-tenant:company:user:3";
+
+	protected RepliconRuntime runtime;
+	protected Replicon replicon;
+	protected UserDirectory directory;
+	protected volatile List<ListRow> rows;
+	protected volatile CountDownLatch listing = new CountDownLatch(0);
+	protected List<String> calls = Collections
+			.synchronizedList(new ArrayList<String>());
+
+	@Before
+	public void setUp() throws Exception {
+		final ObjectMapper objectMapper = new ObjectMapper();
+
+		runtime = new RepliconRuntime(new Transport() {
+			@Override
+			public TransportResponse post(String url,
+					Map<String, String> headers, byte[] body)
+					throws IOException {
+
+				String operation = url.substring(url.lastIndexOf('/') + 1);
+				byte[] response;
+
+				calls.add(operation);
+
+				if (operation.equals("GetData")) {
+					try {
+						listing.await();
+					} catch (InterruptedException e) {
+						throw new IOException(e);
+					}
+
+					ListData data = new ListData();
+					Response<ListData> wrapper = new Response<ListData>();
+
+					data.setRows(rows.toArray(new ListRow[rows.size()]));
+					wrapper.setD(data);
+					response = objectMapper.writeValueAsBytes(wrapper);
+				} else if (operation.equals("GetUser2")) {
+					response = IOUtils.toByteArray(getClass()
+							.getResourceAsStream("/getUser2Response.json"));
+				} else {
+					response = IOUtils.toByteArray(getClass()
+							.getResourceAsStream(
+									"/getUsersBySupervisorResponse.json"));
+				}
+
+				return new TransportResponse(200, new ByteArrayInputStream(
+						response));
+			}
+		});
+		runtime.setBaseServiceUrl("company", "http://localhost/services");
+		replicon = runtime.attach("company", "username", "password");
+		directory = new UserDirectory(replicon, 10, 2);
+		rows = new ArrayList<ListRow>();
+		rows.add(row(ALICE, "Alice.Admin", null));
+		rows.add(row(BOB, "bob", ALICE));
+		rows.add(row(CAROL, "carol", ALICE));
+	}
+
+	@Test
+	public void refresh() throws Exception {
+		Assert.assertEquals(3, directory.refresh());
+		Assert.assertEquals(3, directory.size());
+
+		User alice = directory.getUserByLoginName("alice.admin");
+
+		Assert.assertEquals(ALICE, alice.getUri());
+		Assert.assertSame(alice, directory.getUser(ALICE));
+		Assert.assertEquals(2, directory.getDirectReports(ALICE).size());
+		Assert.assertEquals("bob", directory.getDirectReports(ALICE).get(0)
+				.getLoginName());
+		Assert.assertEquals(ALICE, directory.getSupervisorUri(CAROL));
+		Assert.assertFalse(calls.contains("GetUser2"));
+
+		rows.set(1, row(BOB, "robert", ALICE));
+		rows.set(2, row(CAROL, "carol", BOB));
+
+		Assert.assertEquals(2, directory.refresh());
+		Assert.assertSame(alice, directory.getUser(ALICE));
+		Assert.assertEquals(BOB, directory.getUserByLoginName("Robert")
+				.getUri());
+		Assert.assertEquals(1, directory.getDirectReports(ALICE).size());
+		Assert.assertEquals(CAROL, directory.getDirectReports(BOB).get(0)
+				.getUri());
+	}
+
+	@Test
+	public void fallback() throws Exception {
+		directory.refresh();
+
+		User user = directory.getUserByLoginName("Thiago.Ferreira");
+
+		Assert.assertEquals("urn:replicon-tenant:company:user:001",
+				user.getUri());
+		Assert.assertSame(user, directory.getUserByLoginName("thiago.ferreira"));
+		Assert.assertEquals(1, Collections.frequency(calls, "GetUser2"));
+	}
+
+	@Test
+	public void refreshDirectReports() throws Exception {
+		directory.refresh();
+		directory.refreshDirectReports(ALICE);
+
+		// the reports of the fixture replace bob and carol
+		Assert.assertEquals(4, directory.getDirectReports(ALICE).size());
+		Assert.assertNull(directory.getSupervisorUri(BOB));
+		Assert.assertEquals("eduardo.moreira",
+				directory.getUserByLoginName("Eduardo.Moreira").getLoginName());
+		Assert.assertEquals(7, directory.size());
+		Assert.assertFalse(calls.contains("GetUser2"));
+	}
+
+	@Test
+	public void refreshDirectReportsWhileRefreshing() throws Exception {
+		listing = new CountDownLatch(1);
+
+		Thread thread = new Thread() {
+			@Override
+			public void run() {
+				try {
+					directory.refreshDirectReports(ALICE);
+				} catch (IOException e) {
+					throw new RuntimeException(e);
+				} finally {
+					listing.countDown();
+				}
+			}
+		};
+
+		thread.start();
+		// the list is read once the direct reports are in
+		directory.refresh();
+		thread.join();
+
+		Assert.assertEquals(4, directory.getDirectReports(ALICE).size());
+		Assert.assertNull(directory.getSupervisorUri(BOB));
+		Assert.assertEquals(7, directory.size());
+	}
+
+	protected ListRow row(String uri, String loginName, String supervisorUri) {
+		ListCell user = new ListCell();
+		ListCell login = new ListCell();
+		ListCell supervisor = new ListCell();
+		ListRow row = new ListRow();
+
+		user.setUri(uri);
+		login.setTextValue(loginName);
+		supervisor.setUri(supervisorUri);
+		row.setCells(new ListCell[]{user, login, supervisor});
+
+		return row;
+	}
+}
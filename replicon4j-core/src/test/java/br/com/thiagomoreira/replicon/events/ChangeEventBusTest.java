@@ -0,0 +1,224 @@
+/**
+ * Copyright (C) 2014 Thiago Moreira (tmoreira2020@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package br.com.thiagomoreira.replicon.events;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import br.com.thiagomoreira.replicon.model.User;
+
+public class ChangeEventBusTest {
+
+	protected ChangeEventBus bus;
+
+	@After
+	public void tearDown() throws Exception {
+		bus.close();
+	}
+
+	@Test
+	public void fanOut() throws Exception {
+		bus = new ChangeEventBus(8);
+
+		final int producers = 4;
+		final int events = 1000;
+		final CountDownLatch done = new CountDownLatch(2);
+		List<int[]> received = new ArrayList<int[]>();
+
+		for (WaitStrategy waitStrategy : new WaitStrategy[]{
+				WaitStrategy.BUSY_SPIN, WaitStrategy.PARK}) {
+
+			final int[] last = new int[producers + 1];
+
+			received.add(last);
+			bus.subscribe(new ChangeConsumer() {
+				@Override
+				public void onEvent(ChangeEvent event, long sequence,
+						boolean endOfBatch) {
+
+					int producer = event.getUri().charAt(0) - '0';
+					int index = (Integer) event.getValue();
+
+					// each producer's events arrive in order
+					if (index != last[producer] + 1) {
+						throw new AssertionError();
+					}
+
+					last[producer] = index;
+
+					if (++last[producers] == producers * events) {
+						done.countDown();
+					}
+				}
+			}, waitStrategy);
+		}
+
+		List<Thread> threads = new ArrayList<Thread>();
+
+		for (int p = 0; p < producers; p++) {
+			final String uri = String.valueOf(p);
+
+			Thread thread = new Thread() {
+				@Override
+				public void run() {
+					for (int i = 1; i <= events; i++) {
+						bus.publish(User.class, uri, i, false);
+					}
+				}
+			};
+
+			threads.add(thread);
+			thread.start();
+		}
+
+		for (Thread thread : threads) {
+			thread.join();
+		}
+
+		Assert.assertTrue(done.await(10, TimeUnit.SECONDS));
+		Assert.assertEquals(producers * events - 1, bus.getCursor());
+
+		for (int[] last : received) {
+			for (int p = 0; p < producers; p++) {
+				Assert.assertEquals(events, last[p]);
+			}
+		}
+	}
+
+	@Test
+	public void full() throws Exception {
+		bus = new ChangeEventBus(2);
+
+		final CountDownLatch handling = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		ChangeEventBus.Subscription subscription = bus.subscribe(
+				new ChangeConsumer() {
+					@Override
+					public void onEvent(ChangeEvent event, long sequence,
+							boolean endOfBatch) throws Exception {
+
+						handling.countDown();
+						release.await();
+					}
+				}, WaitStrategy.YIELD);
+
+		Assert.assertTrue(bus.tryPublish(User.class, "a", null, true));
+		Assert.assertTrue(handling.await(1, TimeUnit.SECONDS));
+		Assert.assertTrue(bus.tryPublish(User.class, "b", null, true));
+		Assert.assertFalse(bus.tryPublish(User.class, "c", null, true));
+
+		release.countDown();
+		bus.publish(User.class, "c", null, true);
+
+		Assert.assertEquals(2, bus.getCursor());
+		Assert.assertEquals(0, subscription.getFailures());
+	}
+
+	@Test
+	public void tracker() throws Exception {
+		bus = new ChangeEventBus(16);
+
+		final List<String> changes = new ArrayList<String>();
+		final CountDownLatch published = new CountDownLatch(2);
+
+		bus.subscribe(new ChangeConsumer() {
+			@Override
+			public void onEvent(ChangeEvent event, long sequence,
+					boolean endOfBatch) {
+
+				changes.add(event.getType().getSimpleName() + " "
+						+ event.getUri() + " "
+						+ ((User) event.getValue()).getLoginName() + " "
+						+ event.isFirstSeen());
+				published.countDown();
+			}
+		}, WaitStrategy.PARK);
+
+		ChangeTracker tracker = new ChangeTracker(bus);
+
+		tracker.track(new User[]{user("thiago.moreira")});
+		tracker.track(new User[]{user("thiago.moreira")});
+		tracker.track(user("thiago.ferreira"));
+
+		Assert.assertTrue(published.await(1, TimeUnit.SECONDS));
+		Assert.assertEquals(1, bus.getCursor());
+		Assert.assertEquals(
+				"User urn:replicon-tenant:company:user:1 thiago.moreira true",
+				changes.get(0));
+		Assert.assertEquals(
+				"User urn:replicon-tenant:company:user:1 thiago.ferreira false",
+				changes.get(1));
+	}
+
+	@Test
+	public void trackerDrops() throws Exception {
+		bus = new ChangeEventBus(2);
+
+		final CountDownLatch handling = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+
+		bus.subscribe(new ChangeConsumer() {
+			@Override
+			public void onEvent(ChangeEvent event, long sequence,
+					boolean endOfBatch) throws Exception {
+
+				handling.countDown();
+				release.await();
+			}
+		}, WaitStrategy.YIELD);
+
+		ChangeTracker tracker = new ChangeTracker(bus);
+		User a = user("a", "a");
+
+		tracker.track(a);
+		Assert.assertTrue(handling.await(1, TimeUnit.SECONDS));
+		tracker.track(user("b", "b"));
+		// the ring is full, the fetch isn't held up
+		tracker.track(user("c", "c"));
+
+		Assert.assertEquals(1, tracker.getDropped());
+		Assert.assertEquals(1, bus.getCursor());
+
+		release.countDown();
+		// the dropped change is published by the next fetch
+		while (bus.getCursor() < 2) {
+			tracker.track(user("c", "c"));
+			Thread.yield();
+		}
+
+		tracker.track(a);
+		Assert.assertEquals(2, bus.getCursor());
+	}
+
+	protected User user(String loginName) {
+		return user("urn:replicon-tenant:company:user:1", loginName);
+	}
+
+	protected User user(String uri, String loginName) {
+		User user = new User();
+
+		user.setUri(uri);
+		user.setLoginName(loginName);
+
+		return user;
+	}
+}
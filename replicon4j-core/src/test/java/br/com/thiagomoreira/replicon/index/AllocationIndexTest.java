@@ -0,0 +1,157 @@
+/**
+ * Copyright (C) 2014 Thiago Moreira (tmoreira2020@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package br.com.thiagomoreira.replicon.index;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import br.com.thiagomoreira.replicon.model.DateDetails;
+import br.com.thiagomoreira.replicon.model.DateRange;
+import br.com.thiagomoreira.replicon.model.Project;
+import br.com.thiagomoreira.replicon.model.ProjectAllocation;
+import br.com.thiagomoreira.replicon.model.TaskAllocation;
+import br.com.thiagomoreira.replicon.model.TimeOffAllocation;
+import br.com.thiagomoreira.replicon.model.User;
+import br.com.thiagomoreira.replicon.util.DateUtil;
+
+public class AllocationIndexTest {
+
+	protected static final String ALICE = "urn:replicon-tenant:company:user:1";
+	protected static final String BOB = "urn:replicon-tenant:company:user:2";
+	protected static final String APOLLO = "urn:replicon-tenant:company:project:1";
+	protected static final String GEMINI = "urn:replicon-tenant:company:project:2";
+
+	// Monday 2014-03-03
+	protected static final int MONDAY = (int) DateUtil.toEpochDay(2014, 3, 3);
+
+	@Test
+	public void projectAllocations() throws Exception {
+		ProjectAllocation apollo = projectAllocation(APOLLO, MONDAY, MONDAY + 4);
+		ProjectAllocation gemini = projectAllocation(GEMINI, MONDAY + 7,
+				MONDAY + 11);
+		ProjectAllocation bobs = projectAllocation(APOLLO, MONDAY + 2,
+				MONDAY + 9);
+		ProjectAllocation undated = new ProjectAllocation();
+
+		AllocationIndex index = new AllocationIndex.Builder()
+				.addProjectAllocations(ALICE, apollo, gemini, undated)
+				.addProjectAllocations(BOB, bobs).build();
+
+		Assert.assertEquals(Arrays.asList(apollo),
+				index.getProjectAllocations(ALICE, MONDAY + 1));
+		Assert.assertEquals(Arrays.asList(gemini), index.getProjectAllocations(
+				ALICE, range(MONDAY + 5, MONDAY + 8)));
+		Assert.assertTrue(index.getProjectAllocations(ALICE, MONDAY + 5)
+				.isEmpty());
+		Assert.assertEquals(
+				new HashSet<ProjectAllocation>(Arrays.asList(apollo, bobs)),
+				new HashSet<ProjectAllocation>(index
+						.getProjectAllocationsByProject(APOLLO,
+								range(MONDAY, MONDAY + 20))));
+		Assert.assertEquals(new HashSet<String>(Arrays.asList(ALICE, BOB)),
+				index.getAllocatedResources(range(MONDAY + 3, MONDAY + 3)));
+		Assert.assertEquals(
+				Collections.singleton(BOB),
+				index.getAllocatedResources(APOLLO,
+						range(MONDAY + 8, MONDAY + 20)));
+		Assert.assertTrue(index.isAllocated(BOB, range(MONDAY + 9, MONDAY + 9)));
+		Assert.assertFalse(index.isAllocated(BOB,
+				range(MONDAY + 10, MONDAY + 20)));
+		// unknown resources have no allocations
+		Assert.assertTrue(index.getProjectAllocations("unknown", MONDAY)
+				.isEmpty());
+	}
+
+	@Test
+	public void taskAllocations() throws Exception {
+		TaskAllocation allocation = new TaskAllocation();
+
+		allocation.setAllocationDateRange(range(MONDAY, MONDAY + 2));
+
+		AllocationIndex index = new AllocationIndex.Builder()
+				.addTaskAllocations(ALICE, allocation, new TaskAllocation())
+				.build();
+
+		Assert.assertEquals(Arrays.asList(allocation),
+				index.getTaskAllocations(ALICE, range(MONDAY + 2, MONDAY + 3)));
+		Assert.assertTrue(index.getTaskAllocations(BOB,
+				range(MONDAY, MONDAY + 3)).isEmpty());
+	}
+
+	@Test
+	public void timeOff() throws Exception {
+		TimeOffAllocation alices = timeOff(ALICE, MONDAY, MONDAY + 1);
+		TimeOffAllocation bobs = timeOff(BOB, MONDAY + 1, MONDAY + 4);
+		TimeOffAllocation undated = timeOff(BOB, MONDAY, MONDAY);
+
+		undated.setEndDateDetails(null);
+
+		AllocationIndex index = new AllocationIndex.Builder().addTimeOff(
+				alices, bobs, undated, new TimeOffAllocation()).build();
+
+		// keyed by owner
+		Assert.assertEquals(Arrays.asList(alices),
+				index.getTimeOff(ALICE, MONDAY));
+		Assert.assertTrue(index.getTimeOff(BOB, MONDAY).isEmpty());
+		Assert.assertEquals(Arrays.asList(bobs),
+				index.getTimeOff(BOB, range(MONDAY + 3, MONDAY + 10)));
+		Assert.assertEquals(2, index.getTimeOff(range(MONDAY, MONDAY + 10))
+				.size());
+		Assert.assertEquals(new HashSet<String>(Arrays.asList(ALICE, BOB)),
+				index.getResourcesOnLeave(range(MONDAY + 1, MONDAY + 1)));
+		Assert.assertTrue(index.isOnLeave(BOB, range(MONDAY + 4, MONDAY + 6)));
+		Assert.assertFalse(index
+				.isOnLeave(ALICE, range(MONDAY + 2, MONDAY + 6)));
+	}
+
+	protected DateRange range(int startEpochDay, int endEpochDay) {
+		return DateUtil.toDateRange(DateUtil.interval(startEpochDay,
+				endEpochDay));
+	}
+
+	protected ProjectAllocation projectAllocation(String projectUri,
+			int startEpochDay, int endEpochDay) {
+		Project project = new Project();
+		ProjectAllocation allocation = new ProjectAllocation();
+
+		project.setUri(projectUri);
+		allocation.setProject(project);
+		allocation.setAllocationDateRange(range(startEpochDay, endEpochDay));
+
+		return allocation;
+	}
+
+	protected TimeOffAllocation timeOff(String ownerUri, int startEpochDay,
+			int endEpochDay) {
+		User owner = new User();
+		DateDetails start = new DateDetails();
+		DateDetails end = new DateDetails();
+		TimeOffAllocation allocation = new TimeOffAllocation();
+
+		owner.setUri(ownerUri);
+		start.setDate(DateUtil.fromEpochDay(startEpochDay));
+		end.setDate(DateUtil.fromEpochDay(endEpochDay));
+		allocation.setOwner(owner);
+		allocation.setStartDateDetails(start);
+		allocation.setEndDateDetails(end);
+
+		return allocation;
+	}
+}
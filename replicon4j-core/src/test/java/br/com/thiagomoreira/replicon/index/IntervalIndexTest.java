@@ -0,0 +1,82 @@
+/**
+ * Copyright (C) 2014 Thiago Moreira (tmoreira2020@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package br.com.thiagomoreira.replicon.index;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import br.com.thiagomoreira.replicon.util.DateUtil;
+
+public class IntervalIndexTest {
+
+	@Test
+	public void overlapping() throws Exception {
+		Random random = new Random(7);
+		List<Long> intervals = new ArrayList<Long>();
+		IntervalIndex.Builder<Long> builder = new IntervalIndex.Builder<Long>();
+
+		for (int i = 0; i < 2000; i++) {
+			int start = random.nextInt(1000) - 100;
+			long interval = DateUtil
+					.interval(start, start + random.nextInt(30));
+
+			intervals.add(interval);
+			builder.add(interval, interval);
+		}
+
+		IntervalIndex<Long> index = builder.build();
+
+		Assert.assertEquals(2000, index.size());
+
+		for (int i = 0; i < 500; i++) {
+			int start = random.nextInt(1200) - 200;
+			int end = start + random.nextInt(10);
+			List<Long> expected = new ArrayList<Long>();
+
+			for (Long interval : intervals) {
+				if (DateUtil.overlaps(interval, DateUtil.interval(start, end))) {
+					expected.add(interval);
+				}
+			}
+
+			List<Long> actual = index.overlapping(start, end);
+
+			Assert.assertEquals(expected.size(), actual.size());
+			Assert.assertEquals(new HashSet<Long>(expected), new HashSet<Long>(
+					actual));
+			Assert.assertEquals(!expected.isEmpty(), index.overlaps(start, end));
+		}
+	}
+
+	@Test
+	public void stab() throws Exception {
+		IntervalIndex<String> index = new IntervalIndex.Builder<String>()
+				.add(DateUtil.interval(10, 20), "a")
+				.add(DateUtil.interval(15, 15), "b")
+				.add(DateUtil.interval(21, 30), "c").build();
+
+		Assert.assertEquals(2, index.stab(15).size());
+		Assert.assertEquals("a", index.stab(20).get(0));
+		Assert.assertEquals("c", index.stab(21).get(0));
+		Assert.assertTrue(index.stab(9).isEmpty());
+		Assert.assertTrue(IntervalIndex.<String> empty().stab(15).isEmpty());
+	}
+}
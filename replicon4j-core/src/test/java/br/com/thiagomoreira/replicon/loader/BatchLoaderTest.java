@@ -0,0 +1,279 @@
+/**
+ * Copyright (C) 2014 Thiago Moreira (tmoreira2020@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package br.com.thiagomoreira.replicon.loader;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class BatchLoaderTest {
+
+	protected ExecutorService executor = Executors.newFixedThreadPool(16);
+	protected ScheduledExecutorService scheduler = Executors
+			.newSingleThreadScheduledExecutor();
+
+	@After
+	public void tearDown() {
+		executor.shutdownNow();
+		scheduler.shutdownNow();
+	}
+
+	@Test
+	public void load() throws Exception {
+		final AtomicInteger running = new AtomicInteger();
+		final AtomicInteger maxRunning = new AtomicInteger();
+		BatchLoader<Integer, String> loader = new BatchLoader<Integer, String>(
+				new Fetcher<Integer, String>() {
+					@Override
+					public String fetch(Integer key) throws IOException {
+						int current = running.incrementAndGet();
+						int max;
+
+						do {
+							max = maxRunning.get();
+						} while (current > max
+								&& !maxRunning.compareAndSet(max, current));
+
+						try {
+							Thread.sleep(5);
+						} catch (InterruptedException e) {
+							throw new IOException(e);
+						} finally {
+							running.decrementAndGet();
+						}
+
+						if (key == 13) {
+							throw new IOException("unlucky");
+						}
+
+						return "value" + key;
+					}
+				}, executor, scheduler, 20, TimeUnit.MILLISECONDS, 4);
+
+		List<CompletableFuture<String>> futures = new ArrayList<CompletableFuture<String>>();
+
+		for (int i = 0; i < 200; i++) {
+			futures.add(loader.load(i % 50));
+		}
+
+		for (int i = 0; i < futures.size(); i++) {
+			try {
+				Assert.assertEquals("value" + (i % 50), futures.get(i).join());
+			} catch (CompletionException e) {
+				Assert.assertEquals(13, i % 50);
+			}
+		}
+
+		Assert.assertEquals(50, loader.getFetchCount());
+		Assert.assertEquals(1, loader.getDispatchCount());
+		Assert.assertTrue(maxRunning.get() <= 4);
+
+		// cached values are served without fetching, failures are retried
+		Assert.assertEquals("value7", loader.load(7).join());
+		try {
+			loader.load(13).join();
+			Assert.fail();
+		} catch (CompletionException e) {
+			Assert.assertEquals(51, loader.getFetchCount());
+		}
+	}
+
+	@Test
+	public void dedup() throws Exception {
+		final CountDownLatch release = new CountDownLatch(1);
+		final AtomicInteger fetches = new AtomicInteger();
+		final BatchLoader<Integer, String> loader = new BatchLoader<Integer, String>(
+				new Fetcher<Integer, String>() {
+					@Override
+					public String fetch(Integer key) throws IOException {
+						fetches.incrementAndGet();
+
+						try {
+							release.await();
+						} catch (InterruptedException e) {
+							throw new IOException(e);
+						}
+
+						return "value" + key;
+					}
+				}, executor, scheduler, 0, TimeUnit.MILLISECONDS, 4);
+		final List<CompletableFuture<String>> futures = new CopyOnWriteArrayList<CompletableFuture<String>>();
+		List<Thread> threads = new ArrayList<Thread>();
+
+		futures.add(loader.load(1));
+
+		for (int i = 0; i < 8; i++) {
+			Thread thread = new Thread() {
+				@Override
+				public void run() {
+					futures.add(loader.load(1));
+				}
+			};
+
+			threads.add(thread);
+			thread.start();
+		}
+
+		for (Thread thread : threads) {
+			thread.join();
+		}
+
+		// requested while the first fetch is still in flight
+		release.countDown();
+
+		for (CompletableFuture<String> future : futures) {
+			Assert.assertSame(futures.get(0), future);
+			Assert.assertEquals("value1", future.join());
+		}
+		Assert.assertEquals(1, fetches.get());
+	}
+
+	@Test
+	public void rejected() throws Exception {
+		final AtomicInteger fetches = new AtomicInteger();
+		final AtomicInteger accepted = new AtomicInteger(1);
+		Executor rejecting = new Executor() {
+			@Override
+			public void execute(Runnable command) {
+				if (accepted.getAndDecrement() <= 0) {
+					throw new RejectedExecutionException();
+				}
+
+				executor.execute(command);
+			}
+		};
+		BatchLoader<Integer, String> loader = new BatchLoader<Integer, String>(
+				new Fetcher<Integer, String>() {
+					@Override
+					public String fetch(Integer key) throws IOException {
+						fetches.incrementAndGet();
+
+						return "value" + key;
+					}
+				}, rejecting, scheduler, 0, TimeUnit.MILLISECONDS, 4);
+
+		// the dispatch runs, its worker is turned down
+		try {
+			loader.load(1).join();
+			Assert.fail();
+		} catch (CompletionException e) {
+			Assert.assertTrue(e.getCause() instanceof RejectedExecutionException);
+		}
+
+		// the dispatch itself is turned down
+		try {
+			loader.load(2).join();
+			Assert.fail();
+		} catch (CompletionException e) {
+			Assert.assertTrue(e.getCause() instanceof RejectedExecutionException);
+		}
+
+		Assert.assertEquals(0, loader.activeWorkers.get());
+		Assert.assertFalse(loader.dispatchScheduled.get());
+		Assert.assertEquals(0, fetches.get());
+
+		// loads again once the executor takes work
+		accepted.set(Integer.MAX_VALUE);
+
+		Assert.assertEquals("value1", loader.load(1).get(5, TimeUnit.SECONDS));
+		Assert.assertEquals(1, fetches.get());
+	}
+
+	@Test
+	public void failure() throws Exception {
+		final AtomicInteger attempts = new AtomicInteger();
+		BatchLoader<Integer, String> loader = new BatchLoader<Integer, String>(
+				new Fetcher<Integer, String>() {
+					@Override
+					public String fetch(Integer key) throws IOException {
+						if (key == 1 && attempts.incrementAndGet() == 1) {
+							throw new IOException("unavailable");
+						}
+
+						return "value" + key;
+					}
+				}, executor, scheduler, 0, TimeUnit.MILLISECONDS, 2);
+
+		CompletableFuture<String> failed = loader.load(1);
+		CompletableFuture<String> other = loader.load(2);
+
+		try {
+			failed.join();
+			Assert.fail();
+		} catch (CompletionException e) {
+			Assert.assertEquals("unavailable", e.getCause().getMessage());
+		}
+
+		// a failure doesn't affect the other keys and isn't cached
+		Assert.assertEquals("value2", other.join());
+		Assert.assertEquals("value1", loader.load(1).join());
+		Assert.assertEquals(2, attempts.get());
+		Assert.assertEquals(2, loader.getCachedCount());
+	}
+
+	@Test
+	public void cache() throws Exception {
+		BatchLoader<Integer, String> loader = new BatchLoader<Integer, String>(
+				new Fetcher<Integer, String>() {
+					@Override
+					public String fetch(Integer key) throws IOException {
+						return "value" + key;
+					}
+				}, executor, scheduler, 0, TimeUnit.MILLISECONDS, 1);
+
+		loader.setMaxCached(3);
+		loader.prime(0, "primed");
+
+		for (int i = 1; i <= 4; i++) {
+			loader.load(i).join();
+		}
+
+		// the oldest values were evicted first
+		Assert.assertEquals(3, loader.getCachedCount());
+		Assert.assertEquals(4, loader.getFetchCount());
+		Assert.assertEquals("value4", loader.load(4).join());
+		Assert.assertEquals("value0", loader.load(0).join());
+		Assert.assertEquals(5, loader.getFetchCount());
+
+		loader.clear();
+
+		Assert.assertEquals(0, loader.getCachedCount());
+		Assert.assertEquals("value4", loader.load(4).join());
+		Assert.assertEquals(6, loader.getFetchCount());
+
+		loader.setCaching(false);
+		loader.load(5).join();
+		loader.load(5).join();
+
+		Assert.assertEquals(8, loader.getFetchCount());
+		Assert.assertEquals(1, loader.getCachedCount());
+	}
+}
@@ -0,0 +1,138 @@
+/**
+ * Copyright (C) 2014 Thiago Moreira (tmoreira2020@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package br.com.thiagomoreira.replicon.paging;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class PagedIteratorTest {
+
+	protected ExecutorService executor = Executors.newFixedThreadPool(8);
+
+	@After
+	public void tearDown() {
+		executor.shutdownNow();
+	}
+
+	@Test
+	public void ordered() throws Exception {
+		NumberFetcher fetcher = new NumberFetcher(95);
+		Stream<Integer> stream = PagedIterator
+				.stream(new PagedIterator<Integer>(fetcher, 10, 4, executor));
+		List<Integer> numbers = stream.collect(Collectors.<Integer> toList());
+
+		Assert.assertEquals(95, numbers.size());
+		for (int i = 0; i < numbers.size(); i++) {
+			Assert.assertEquals(i, numbers.get(i).intValue());
+		}
+
+		Assert.assertTrue(fetcher.maxInFlight.get() <= 4);
+		// pages 1 to 10, plus at most 3 speculative ones past the end
+		Assert.assertTrue(fetcher.fetches.get() >= 10);
+		Assert.assertTrue(fetcher.fetches.get() <= 13);
+	}
+
+	@Test
+	public void exactPages() throws Exception {
+		NumberFetcher fetcher = new NumberFetcher(20);
+		PagedIterator<Integer> iterator = new PagedIterator<Integer>(fetcher,
+				10, 1, executor);
+		int count = 0;
+
+		while (iterator.hasNext()) {
+			iterator.next();
+			count++;
+		}
+
+		Assert.assertEquals(20, count);
+		Assert.assertEquals(3, fetcher.fetches.get());
+	}
+
+	@Test
+	public void failure() throws Exception {
+		NumberFetcher fetcher = new NumberFetcher(100);
+
+		fetcher.failingPage = 3;
+
+		PagedIterator<Integer> iterator = new PagedIterator<Integer>(fetcher,
+				10, 2, executor);
+		int count = 0;
+
+		try {
+			while (iterator.hasNext()) {
+				iterator.next();
+				count++;
+			}
+			Assert.fail();
+		} catch (UncheckedIOException e) {
+			Assert.assertEquals(20, count);
+		}
+	}
+
+	protected static class NumberFetcher implements PageFetcher<Integer> {
+
+		protected final int total;
+		protected final AtomicInteger fetches = new AtomicInteger();
+		protected final AtomicInteger inFlight = new AtomicInteger();
+		protected final AtomicInteger maxInFlight = new AtomicInteger();
+		protected volatile int failingPage;
+
+		protected NumberFetcher(int total) {
+			this.total = total;
+		}
+
+		@Override
+		public List<Integer> fetch(int page, int pageSize) throws IOException {
+			fetches.incrementAndGet();
+
+			int current = inFlight.incrementAndGet();
+
+			try {
+				maxInFlight.accumulateAndGet(current, Math::max);
+				Thread.sleep(ThreadLocalRandom.current().nextInt(5));
+
+				if (page == failingPage) {
+					throw new IOException("page " + page);
+				}
+
+				List<Integer> numbers = new ArrayList<Integer>(pageSize);
+
+				for (int i = (page - 1) * pageSize; i < Math.min(total, page
+						* pageSize); i++) {
+					numbers.add(i);
+				}
+
+				return numbers;
+			} catch (InterruptedException e) {
+				throw new IOException(e);
+			} finally {
+				inFlight.decrementAndGet();
+			}
+		}
+	}
+}
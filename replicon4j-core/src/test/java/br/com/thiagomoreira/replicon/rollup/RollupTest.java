@@ -0,0 +1,195 @@
+/**
+ * Copyright (C) 2014 Thiago Moreira (tmoreira2020@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package br.com.thiagomoreira.replicon.rollup;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import br.com.thiagomoreira.replicon.model.Date;
+import br.com.thiagomoreira.replicon.model.DateDetails;
+import br.com.thiagomoreira.replicon.model.Department;
+import br.com.thiagomoreira.replicon.model.Duration;
+import br.com.thiagomoreira.replicon.model.Project;
+import br.com.thiagomoreira.replicon.model.ProjectAllocation;
+import br.com.thiagomoreira.replicon.model.Resource;
+import br.com.thiagomoreira.replicon.model.TimeOffAllocation;
+import br.com.thiagomoreira.replicon.model.User;
+
+public class RollupTest {
+
+	@Test
+	public void timeOffPerDepartmentPerMonth() throws Exception {
+		Map<String, Resource> resources = new HashMap<String, Resource>();
+
+		for (int i = 0; i < 100; i++) {
+			Department department = new Department();
+
+			department.setUri("department:" + (i % 7));
+
+			Resource resource = new Resource();
+
+			resource.setDepartment(department);
+			resource.setUri("user:" + i);
+			resources.put(resource.getUri(), resource);
+		}
+
+		List<TimeOffAllocation> timeOff = new ArrayList<TimeOffAllocation>();
+		Map<List<Object>, Long> expected = new HashMap<List<Object>, Long>();
+
+		for (int i = 0; i < 20000; i++) {
+			int owner = i % 101;
+			int month = i % 12 + 1;
+			int hours = i % 9;
+
+			timeOff.add(timeOff(owner, month, hours));
+
+			List<Object> key = Arrays.<Object> asList(owner < 100
+					? "department:" + (owner % 7)
+					: null, month < 10 ? "2014-0" + month : "2014-" + month);
+			Long sum = expected.get(key);
+
+			expected.put(key, (sum == null ? 0 : sum) + hours * 3600L);
+		}
+
+		Rollup<TimeOffAllocation> rollup = new Rollup<TimeOffAllocation>(
+				Arrays.asList(Dimensions.timeOffDepartment(resources),
+						Dimensions.timeOffMonth()), Measures.timeOffSeconds());
+
+		rollup.setThreshold(100);
+
+		Map<List<Object>, Aggregate> result = rollup.aggregate(timeOff);
+
+		Assert.assertEquals(expected.size(), result.size());
+
+		long count = 0;
+
+		for (Map.Entry<List<Object>, Long> entry : expected.entrySet()) {
+			Aggregate aggregate = result.get(entry.getKey());
+
+			Assert.assertEquals(entry.getValue().longValue(),
+					aggregate.getSum());
+			count += aggregate.getCount();
+		}
+
+		Assert.assertEquals(timeOff.size(), count);
+	}
+
+	@Test
+	public void empty() throws Exception {
+		Map<List<Object>, Aggregate> result = Rollup.groupBy(
+				new ArrayList<ProjectAllocation>(),
+				Measures.allocatedSeconds(), Dimensions.project());
+
+		Assert.assertTrue(result.isEmpty());
+	}
+
+	@Test
+	public void nullDimension() throws Exception {
+		List<ProjectAllocation> allocations = new ArrayList<ProjectAllocation>();
+
+		allocations.add(projectAllocation("project:1", 8));
+		allocations.add(projectAllocation(null, 4));
+		allocations.add(projectAllocation(null, 2));
+
+		Map<List<Object>, Aggregate> result = Rollup.groupBy(allocations,
+				Measures.allocatedSeconds(), Dimensions.project(),
+				Dimensions.allocationMonth());
+
+		Assert.assertEquals(2, result.size());
+		Assert.assertEquals(new Aggregate(6 * 3600L, 2),
+				result.get(Arrays.<Object> asList(null, null)));
+		Assert.assertEquals(new Aggregate(8 * 3600L, 1),
+				result.get(Arrays.<Object> asList("project:1", null)));
+	}
+
+	@Test
+	public void merge() throws Exception {
+		List<ProjectAllocation> allocations = new ArrayList<ProjectAllocation>();
+
+		for (int i = 0; i < 1000; i++) {
+			allocations.add(projectAllocation("project:" + (i % 3), 1));
+		}
+
+		Rollup<ProjectAllocation> rollup = new Rollup<ProjectAllocation>(
+				Arrays.asList(Dimensions.project()), Measures.count());
+
+		// every value is a leaf of its own, every group is merged many times
+		rollup.setThreshold(1);
+
+		Map<List<Object>, Aggregate> result = rollup.aggregate(allocations);
+
+		Assert.assertEquals(3, result.size());
+		Assert.assertEquals(new Aggregate(334, 334),
+				result.get(Arrays.<Object> asList("project:0")));
+		Assert.assertEquals(new Aggregate(333, 333),
+				result.get(Arrays.<Object> asList("project:1")));
+		Assert.assertEquals(new Aggregate(333, 333),
+				result.get(Arrays.<Object> asList("project:2")));
+	}
+
+	protected ProjectAllocation projectAllocation(String projectUri, int hours) {
+		ProjectAllocation allocation = new ProjectAllocation();
+
+		if (projectUri != null) {
+			Project project = new Project();
+
+			project.setUri(projectUri);
+			allocation.setProject(project);
+		}
+
+		Duration duration = new Duration();
+
+		duration.setHours(hours);
+		allocation.setTotalProjectsDuration(duration);
+
+		return allocation;
+	}
+
+	protected TimeOffAllocation timeOff(int owner, int month, int hours) {
+		User user = new User();
+
+		user.setUri("user:" + owner);
+
+		Date date = new Date();
+
+		date.setYear(2014);
+		date.setMonth(month);
+		date.setDay(1);
+
+		DateDetails dateDetails = new DateDetails();
+
+		dateDetails.setDate(date);
+
+		Duration duration = new Duration();
+
+		duration.setHours(hours);
+
+		TimeOffAllocation allocation = new TimeOffAllocation();
+
+		allocation.setOwner(user);
+		allocation.setStartDateDetails(dateDetails);
+		allocation.setEndDateDetails(dateDetails);
+		allocation.setTotalDuration(duration);
+
+		return allocation;
+	}
+}
@@ -0,0 +1,104 @@
+/**
+ * Copyright (C) 2014 Thiago Moreira (tmoreira2020@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package br.com.thiagomoreira.replicon.transport;
+
+import java.io.ByteArrayInputStream;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ByteArrayPoolTest {
+
+	@Test
+	public void read() throws Exception {
+		ByteArrayPool pool = new ByteArrayPool(16, 8);
+		byte[] bytes = new byte[100];
+
+		for (int i = 0; i < bytes.length; i++) {
+			bytes[i] = (byte) i;
+		}
+
+		PooledBody body = pool.read(new ByteArrayInputStream(bytes));
+
+		Assert.assertEquals(100, body.getLength());
+		Assert.assertEquals(100, body.getInputStream().available());
+		Assert.assertEquals(7, pool.getAllocations());
+		Assert.assertArrayEquals(bytes,
+				IOUtils.toByteArray(body.getInputStream()));
+
+		body.close();
+		body.close();
+
+		Assert.assertEquals(7, pool.getPooled());
+
+		body = pool.read(new ByteArrayInputStream(bytes, 0, 40));
+
+		Assert.assertArrayEquals(new byte[]{0, 1, 2}, new byte[]{
+				(byte) body.getInputStream().read(),
+				(byte) body.getInputStream().read(),
+				(byte) body.getInputStream().read()});
+		Assert.assertEquals(7, pool.getAllocations());
+		Assert.assertEquals(4, pool.getPooled());
+
+		body.close();
+	}
+
+	@Test
+	public void capacity() throws Exception {
+		ByteArrayPool pool = new ByteArrayPool(16, 2);
+
+		pool.read(new ByteArrayInputStream(new byte[64])).close();
+
+		Assert.assertEquals(4, pool.getAllocations());
+		Assert.assertEquals(2, pool.getPooled());
+	}
+
+	@Test
+	public void shortReads() throws Exception {
+		ByteArrayPool pool = new ByteArrayPool(16, 8);
+		byte[] bytes = new byte[40];
+
+		for (int i = 0; i < bytes.length; i++) {
+			bytes[i] = (byte) i;
+		}
+
+		// hands out at most 5 bytes a call, like a slow socket
+		PooledBody body = pool.read(new ByteArrayInputStream(bytes) {
+			@Override
+			public synchronized int read(byte[] bytes, int offset, int length) {
+				return super.read(bytes, offset, Math.min(length, 5));
+			}
+		});
+
+		Assert.assertEquals(40, body.getLength());
+		Assert.assertEquals(3, pool.getAllocations());
+		Assert.assertArrayEquals(bytes,
+				IOUtils.toByteArray(body.getInputStream()));
+
+		body.close();
+	}
+
+	@Test
+	public void empty() throws Exception {
+		ByteArrayPool pool = new ByteArrayPool(16, 2);
+		PooledBody body = pool.read(new ByteArrayInputStream(new byte[0]));
+
+		Assert.assertEquals(0, body.getLength());
+		Assert.assertEquals(-1, body.getInputStream().read());
+		Assert.assertEquals(0, pool.getAllocations());
+	}
+}
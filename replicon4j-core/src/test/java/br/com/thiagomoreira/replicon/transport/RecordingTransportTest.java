@@ -0,0 +1,135 @@
+/**
+ * Copyright (C) 2014 Thiago Moreira (tmoreira2020@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package br.com.thiagomoreira.replicon.transport;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class RecordingTransportTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	protected Map<String, String> headers = new HashMap<String, String>();
+
+	@Test
+	public void recordAndReplay() throws Exception {
+		File file = folder.newFile("replicon.rec");
+		RecordingTransport recording = new RecordingTransport(
+				new EchoTransport(), file);
+
+		Assert.assertEquals("a:1", call(recording, "http://host/a", "1"));
+		Assert.assertEquals("b:2", call(recording, "http://host/b", "2"));
+		recording.close();
+
+		recording = new RecordingTransport(new EchoTransport(), file);
+		Assert.assertEquals("a:1", call(recording, "http://host/a", "1"));
+		recording.close();
+
+		Recording loaded = Recording.load(file);
+
+		Assert.assertEquals(3, loaded.getExchanges().size());
+		Assert.assertEquals("http://host/b", loaded.getExchanges().get(1)
+				.getUrl());
+		Assert.assertTrue(loaded.getExchanges().get(1).getNanos() >= 20000000L);
+
+		ReplayTransport replay = new ReplayTransport(loaded);
+		long start = System.nanoTime();
+
+		Assert.assertEquals("b:2", call(replay, "http://host/b", "2"));
+		Assert.assertEquals("a:1", call(replay, "http://host/a", "1"));
+		Assert.assertTrue(System.nanoTime() - start < 20000000L);
+
+		try {
+			call(replay, "http://host/b", "3");
+			Assert.fail();
+		} catch (IOException e) {
+		}
+
+		replay.setSpeed(1);
+		start = System.nanoTime();
+
+		Assert.assertEquals("b:2", call(replay, "http://host/b", "2"));
+		Assert.assertTrue(System.nanoTime() - start >= 20000000L);
+	}
+
+	@Test
+	public void truncated() throws Exception {
+		File file = folder.newFile("replicon.rec");
+		RecordingTransport recording = new RecordingTransport(
+				new EchoTransport(), file);
+
+		call(recording, "http://host/a", "1");
+		call(recording, "http://host/a", "2");
+		recording.close();
+
+		RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+
+		randomAccessFile.setLength(file.length() - 3);
+		randomAccessFile.close();
+
+		Assert.assertEquals(1, Recording.load(file).getExchanges().size());
+	}
+
+	protected String call(Transport transport, String url, String body)
+			throws IOException {
+
+		TransportResponse response = transport.post(url, headers,
+				body.getBytes("UTF-8"));
+
+		try {
+			return IOUtils.toString(response.getBody(), "UTF-8");
+		} finally {
+			response.close();
+		}
+	}
+
+	/**
+	 * Answers with the last path segment and the request body, taking 20ms on
+	 * <code>/b</code>.
+	 */
+	protected static class EchoTransport implements Transport {
+
+		@Override
+		public TransportResponse post(String url, Map<String, String> headers,
+				byte[] body) throws IOException {
+
+			if (url.endsWith("/b")) {
+				try {
+					Thread.sleep(20);
+				} catch (InterruptedException e) {
+					throw new IOException(e);
+				}
+			}
+
+			String response = url.substring(url.lastIndexOf('/') + 1) + ":"
+					+ new String(body, "UTF-8");
+
+			return new TransportResponse(200, new ByteArrayInputStream(
+					response.getBytes("UTF-8")));
+		}
+	}
+}
@@ -0,0 +1,94 @@
+/**
+ * Copyright (C) 2014 Thiago Moreira (tmoreira2020@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package br.com.thiagomoreira.replicon.util;
+
+import java.time.LocalDate;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import br.com.thiagomoreira.replicon.model.Date;
+import br.com.thiagomoreira.replicon.model.DateRange;
+
+public class DateUtilTest {
+
+	@Test
+	public void epochDay() throws Exception {
+		LocalDate localDate = LocalDate.of(1600, 1, 1);
+		LocalDate last = LocalDate.of(2400, 12, 31);
+
+		while (!localDate.isAfter(last)) {
+			Date date = DateUtil.fromLocalDate(localDate);
+
+			Assert.assertEquals(localDate.toEpochDay(),
+					DateUtil.toEpochDay(date));
+			Assert.assertEquals(date,
+					DateUtil.fromEpochDay(localDate.toEpochDay()));
+
+			localDate = localDate.plusDays(1);
+		}
+	}
+
+	@Test
+	public void translateDate() throws Exception {
+		Date date = date(2014, 2, 28);
+
+		Assert.assertEquals(1393545600000L, DateUtil.translateDate(date)
+				.getTime());
+		Assert.assertEquals(1393632000000L, DateUtil.translateDate(date, true)
+				.getTime());
+		Assert.assertEquals(date,
+				DateUtil.translateDate(new java.util.Date(1393631999999L)));
+		Assert.assertEquals(date(1969, 12, 31),
+				DateUtil.translateDate(new java.util.Date(-1L)));
+	}
+
+	@Test
+	public void interval() throws Exception {
+		DateRange dateRange = new DateRange();
+
+		dateRange.setStartDate(date(2014, 12, 30));
+		dateRange.setEndDate(date(2015, 1, 2));
+
+		long interval = DateUtil.interval(dateRange);
+
+		Assert.assertEquals(4, DateUtil.intervalLength(interval));
+		Assert.assertEquals(dateRange, DateUtil.toDateRange(interval));
+
+		long other = DateUtil.interval((int) DateUtil.toEpochDay(2015, 1, 1),
+				(int) DateUtil.toEpochDay(2015, 1, 31));
+
+		Assert.assertTrue(DateUtil.overlaps(interval, other));
+		Assert.assertEquals(2, DateUtil.overlapLength(interval, other));
+		Assert.assertEquals(0,
+				DateUtil.overlapLength(interval, DateUtil.interval(0, 1)));
+
+		long beforeEpoch = DateUtil.interval(-10, -5);
+
+		Assert.assertEquals(-10, DateUtil.intervalStart(beforeEpoch));
+		Assert.assertEquals(-5, DateUtil.intervalEnd(beforeEpoch));
+	}
+
+	protected Date date(int year, int month, int day) {
+		Date date = new Date();
+
+		date.setYear(year);
+		date.setMonth(month);
+		date.setDay(day);
+
+		return date;
+	}
+}
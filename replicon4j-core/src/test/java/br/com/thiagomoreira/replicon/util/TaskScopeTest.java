@@ -0,0 +1,137 @@
+/**
+ * Copyright (C) 2014 Thiago Moreira (tmoreira2020@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package br.com.thiagomoreira.replicon.util;
+
+import java.io.IOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TaskScopeTest {
+
+	protected ExecutorService executor;
+
+	@Before
+	public void setUp() throws Exception {
+		executor = Executors.newFixedThreadPool(4);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		executor.shutdownNow();
+	}
+
+	@Test
+	public void join() throws Exception {
+		CompletableFuture<Integer> child;
+
+		try (final TaskScope scope = new TaskScope(executor)) {
+			final CompletableFuture<CompletableFuture<Integer>> forked = new CompletableFuture<CompletableFuture<Integer>>();
+
+			scope.fork(new Callable<Integer>() {
+				@Override
+				public Integer call() throws Exception {
+					forked.complete(scope.fork(new Callable<Integer>() {
+						@Override
+						public Integer call() throws Exception {
+							Thread.sleep(20);
+
+							return 2;
+						}
+					}));
+
+					return 1;
+				}
+			});
+
+			scope.join();
+			child = forked.get();
+		}
+
+		Assert.assertTrue(child.isDone());
+		Assert.assertEquals(2, child.join().intValue());
+	}
+	@Test
+	public void lateFork() throws Exception {
+		try (TaskScope scope = new TaskScope(executor)) {
+			// every call forked so far has completed
+			scope.fork(new Callable<Integer>() {
+				@Override
+				public Integer call() throws Exception {
+					return 1;
+				}
+			}).get(5, TimeUnit.SECONDS);
+
+			scope.fork(new Callable<Integer>() {
+				@Override
+				public Integer call() throws Exception {
+					throw new IOException("late");
+				}
+			});
+
+			scope.join();
+			Assert.fail();
+		} catch (IOException e) {
+			Assert.assertEquals("late", e.getMessage());
+		}
+	}
+	@Test
+	public void cancellation() throws Exception {
+		final CountDownLatch started = new CountDownLatch(1);
+		final CountDownLatch interrupted = new CountDownLatch(1);
+
+		try (TaskScope scope = new TaskScope(executor)) {
+			scope.fork(new Callable<Integer>() {
+				@Override
+				public Integer call() throws Exception {
+					started.countDown();
+
+					try {
+						Thread.sleep(10000);
+					} catch (InterruptedException e) {
+						interrupted.countDown();
+					}
+
+					return 1;
+				}
+			});
+
+			started.await();
+
+			scope.fork(new Callable<Integer>() {
+				@Override
+				public Integer call() throws Exception {
+					throw new IOException("failure");
+				}
+			});
+
+			scope.join();
+			Assert.fail();
+		} catch (IOException e) {
+			Assert.assertEquals("failure", e.getMessage());
+		}
+
+		Assert.assertTrue(interrupted.await(5, TimeUnit.SECONDS));
+	}
+}
@@ -0,0 +1,219 @@
+/**
+ * Copyright (C) 2014 Thiago Moreira (tmoreira2020@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package br.com.thiagomoreira.replicon.writer;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import br.com.thiagomoreira.replicon.Replicon;
+import br.com.thiagomoreira.replicon.RepliconException;
+import br.com.thiagomoreira.replicon.RepliconRuntime;
+import br.com.thiagomoreira.replicon.model.Target;
+import br.com.thiagomoreira.replicon.model.TimeEntry;
+import br.com.thiagomoreira.replicon.model.operations.BulkPutTimeEntryRequest;
+import br.com.thiagomoreira.replicon.transport.Transport;
+import br.com.thiagomoreira.replicon.transport.TransportResponse;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+public class TimeEntryWriterTest {
+
+	protected RepliconRuntime runtime;
+	protected Replicon replicon;
+	protected volatile CountDownLatch latch = new CountDownLatch(0);
+	protected volatile int statusCode = 200;
+
+	@Before
+	public void setUp() throws Exception {
+		final ObjectMapper objectMapper = new ObjectMapper();
+
+		runtime = new RepliconRuntime(new Transport() {
+			@Override
+			public TransportResponse post(String url,
+					Map<String, String> headers, byte[] body)
+					throws IOException {
+
+				try {
+					latch.await();
+				} catch (InterruptedException e) {
+					throw new IOException(e);
+				}
+
+				BulkPutTimeEntryRequest request = objectMapper.readValue(body,
+						BulkPutTimeEntryRequest.class);
+				List<Target> targets = new ArrayList<Target>();
+
+				for (TimeEntry timeEntry : request.getTimeEntries()) {
+					targets.add(new Target(
+							"urn:replicon-tenant:company:time-entry:"
+									+ timeEntry.getComments()));
+				}
+
+				Map<String, Object> response = new HashMap<String, Object>();
+
+				response.put("d", targets);
+
+				return new TransportResponse(statusCode,
+						new ByteArrayInputStream(
+								objectMapper.writeValueAsBytes(response)));
+			}
+		});
+		runtime.setBaseServiceUrl("company", "http://localhost/services");
+		replicon = runtime.attach("company", "username", "password");
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		runtime.close();
+	}
+
+	@Test
+	public void batches() throws Exception {
+		TimeEntryWriter writer = new TimeEntryWriter(replicon, 3, 1,
+				TimeUnit.HOURS, 10, 2);
+		List<CompletableFuture<Target>> futures = new ArrayList<CompletableFuture<Target>>();
+
+		for (int i = 0; i < 7; i++) {
+			futures.add(writer.write(timeEntry(i)));
+		}
+
+		writer.close();
+
+		for (int i = 0; i < 7; i++) {
+			Assert.assertEquals("urn:replicon-tenant:company:time-entry:" + i,
+					futures.get(i).get().getUri());
+		}
+		Assert.assertEquals(3, writer.getBatchCount());
+	}
+
+	@Test
+	public void flushesOnInterval() throws Exception {
+		TimeEntryWriter writer = new TimeEntryWriter(replicon, 100, 20,
+				TimeUnit.MILLISECONDS, 100, 1);
+
+		Target target = writer.write(timeEntry(1)).get(1, TimeUnit.SECONDS);
+
+		Assert.assertEquals("urn:replicon-tenant:company:time-entry:1",
+				target.getUri());
+
+		writer.close();
+	}
+
+	@Test
+	public void backpressure() throws Exception {
+		latch = new CountDownLatch(1);
+
+		final TimeEntryWriter writer = new TimeEntryWriter(replicon, 1, 1,
+				TimeUnit.HOURS, 1, 1);
+
+		// one entry in flight and one buffered
+		writer.write(timeEntry(1));
+		writer.write(timeEntry(2));
+
+		Thread thread = new Thread() {
+			@Override
+			public void run() {
+				try {
+					writer.write(timeEntry(3));
+				} catch (IOException e) {
+					throw new RuntimeException(e);
+				}
+			}
+		};
+
+		thread.start();
+		thread.join(100);
+
+		Assert.assertTrue(thread.isAlive());
+
+		latch.countDown();
+		thread.join(1000);
+
+		Assert.assertFalse(thread.isAlive());
+
+		writer.close();
+
+		Assert.assertEquals(3, writer.getBatchCount());
+	}
+
+	@Test
+	public void failure() throws Exception {
+		statusCode = 500;
+
+		TimeEntryWriter writer = new TimeEntryWriter(replicon);
+		CompletableFuture<Target> first = writer.write(timeEntry(1));
+		CompletableFuture<Target> second = writer.write(timeEntry(2));
+
+		writer.close();
+
+		for (CompletableFuture<Target> future : new CompletableFuture[]{first,
+				second}) {
+			try {
+				future.get();
+				Assert.fail();
+			} catch (ExecutionException e) {
+				Assert.assertEquals(500,
+						((RepliconException) e.getCause()).getStatusCode());
+			}
+		}
+		Assert.assertEquals(1, writer.getBatchCount());
+	}
+
+	@Test
+	public void rejected() throws Exception {
+		TimeEntryWriter writer = new TimeEntryWriter(replicon, 1, 1,
+				TimeUnit.HOURS, 10, 1);
+
+		runtime.getExecutor().shutdown();
+
+		try {
+			writer.write(timeEntry(1)).get();
+			Assert.fail();
+		} catch (ExecutionException e) {
+			Assert.assertTrue(e.getCause() instanceof RejectedExecutionException);
+		}
+
+		// the call permit was given back
+		Assert.assertTrue(writer.write(timeEntry(2)).isCompletedExceptionally());
+
+		writer.close();
+
+		Assert.assertEquals(0, writer.getBatchCount());
+	}
+
+	protected TimeEntry timeEntry(int i) {
+		TimeEntry timeEntry = new TimeEntry();
+
+		timeEntry.setUser(new Target("urn:replicon-tenant:company:user:1"));
+		timeEntry.setComments(String.valueOf(i));
+
+		return timeEntry;
+	}
+}
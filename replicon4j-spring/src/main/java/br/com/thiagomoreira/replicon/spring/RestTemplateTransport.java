@@ -0,0 +1,93 @@
+/**
+ * Copyright (C) 2014 Thiago Moreira (tmoreira2020@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package br.com.thiagomoreira.replicon.spring;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Map;
+
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.web.client.HttpStatusCodeException;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+
+import br.com.thiagomoreira.replicon.transport.Transport;
+import br.com.thiagomoreira.replicon.transport.TransportResponse;
+
+/**
+ * {@link Transport} going through a Spring {@link RestTemplate}, so its
+ * {@link ClientHttpRequestFactory}, interceptors and test support (e.g.
+ * <code>MockRestServiceServer</code>) keep working.
+ */
+public class RestTemplateTransport implements Transport {
+
+	protected final RestTemplate restTemplate;
+
+	public RestTemplateTransport() {
+		this(new SimpleClientHttpRequestFactory());
+	}
+
+	public RestTemplateTransport(
+			ClientHttpRequestFactory clientHttpRequestFactory) {
+		this(new RestTemplate(clientHttpRequestFactory));
+	}
+
+	public RestTemplateTransport(RestTemplate restTemplate) {
+		this.restTemplate = restTemplate;
+	}
+
+	@Override
+	public TransportResponse post(String url, Map<String, String> headers,
+			byte[] body) throws IOException {
+
+		HttpHeaders httpHeaders = new HttpHeaders();
+
+		for (Map.Entry<String, String> header : headers.entrySet()) {
+			httpHeaders.set(header.getKey(), header.getValue());
+		}
+
+		try {
+			ResponseEntity<byte[]> response = restTemplate.exchange(url,
+					HttpMethod.POST, new HttpEntity<byte[]>(body, httpHeaders),
+					byte[].class);
+
+			return toTransportResponse(response.getStatusCode().value(),
+					response.getBody());
+		} catch (HttpStatusCodeException e) {
+			return toTransportResponse(e.getStatusCode().value(),
+					e.getResponseBodyAsByteArray());
+		} catch (RestClientException e) {
+			throw new IOException("Unable to call " + url, e);
+		}
+	}
+
+	public RestTemplate getRestTemplate() {
+		return restTemplate;
+	}
+
+	protected TransportResponse toTransportResponse(int statusCode, byte[] body) {
+		if (body == null) {
+			body = new byte[0];
+		}
+
+		return new TransportResponse(statusCode, new ByteArrayInputStream(body));
+	}
+}
@@ -0,0 +1,53 @@
+/**
+ * Copyright (C) 2014 Thiago Moreira (tmoreira2020@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package br.com.thiagomoreira.replicon.spring;
+
+import org.springframework.web.client.RestTemplate;
+
+import br.com.thiagomoreira.replicon.Replicon;
+import br.com.thiagomoreira.replicon.auth.Authentication;
+import br.com.thiagomoreira.replicon.auth.BasicAuthentication;
+
+/**
+ * {@link Replicon} client calling through a Spring {@link RestTemplate}, as
+ * replicon4j did before the Spring-free core.
+ */
+public class SpringReplicon extends Replicon {
+
+	public SpringReplicon(String company, String username, String password) {
+		this(company, new BasicAuthentication(company, username, password));
+	}
+
+	public SpringReplicon(String company, Authentication authentication) {
+		this(new SpringRepliconRuntime(), company, authentication);
+	}
+
+	public SpringReplicon(RestTemplate restTemplate, String company,
+			Authentication authentication) {
+
+		this(new SpringRepliconRuntime(restTemplate), company, authentication);
+	}
+
+	protected SpringReplicon(SpringRepliconRuntime runtime, String company,
+			Authentication authentication) {
+
+		super(standaloneRuntime(runtime), company, authentication);
+	}
+
+	public RestTemplate getRestTemplate() {
+		return ((SpringRepliconRuntime) runtime).getRestTemplate();
+	}
+}
@@ -0,0 +1,49 @@
+/**
+ * Copyright (C) 2014 Thiago Moreira (tmoreira2020@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package br.com.thiagomoreira.replicon.spring;
+
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.web.client.RestTemplate;
+
+import br.com.thiagomoreira.replicon.RepliconRuntime;
+
+/**
+ * {@link RepliconRuntime} whose calls go through a Spring {@link RestTemplate}.
+ */
+public class SpringRepliconRuntime extends RepliconRuntime {
+
+	public SpringRepliconRuntime() {
+		this(new SimpleClientHttpRequestFactory());
+	}
+
+	public SpringRepliconRuntime(
+			ClientHttpRequestFactory clientHttpRequestFactory) {
+		this(new RestTemplate(clientHttpRequestFactory));
+	}
+
+	public SpringRepliconRuntime(RestTemplate restTemplate) {
+		super(new RestTemplateTransport(restTemplate));
+	}
+
+	public RestTemplate getRestTemplate() {
+		return ((RestTemplateTransport) transport).getRestTemplate();
+	}
+
+	public ClientHttpRequestFactory getClientHttpRequestFactory() {
+		return getRestTemplate().getRequestFactory();
+	}
+}
@@ -0,0 +1,89 @@
+/**
+ * Copyright (C) 2014 Thiago Moreira (tmoreira2020@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package br.com.thiagomoreira.replicon.spring;
+
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.header;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.method;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.requestTo;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.client.MockRestServiceServer;
+
+import br.com.thiagomoreira.replicon.DiscoveryBaseUrlResolver;
+import br.com.thiagomoreira.replicon.Replicon;
+import br.com.thiagomoreira.replicon.auth.Authentication;
+
+public class SpringRepliconRuntimeTest {
+
+	@Test
+	public void attach() throws Exception {
+		SpringRepliconRuntime runtime = new SpringRepliconRuntime();
+		Replicon first = runtime.attach("First", "username", "password");
+		Replicon second = runtime.attach("second", new Authentication() {
+			@Override
+			public String getAuthorizationHeader() {
+				return "Bearer token";
+			}
+		});
+
+		MockRestServiceServer mockServer = MockRestServiceServer
+				.createServer(runtime.getRestTemplate());
+
+		String response = IOUtils.toString(
+				getClass().getResourceAsStream("/getUser2Response.json"),
+				"UTF-8");
+
+		mockServer
+				.expect(requestTo(DiscoveryBaseUrlResolver.DEFAULT_DISCOVERY_URL))
+				.andExpect(method(HttpMethod.POST))
+				.andRespond(
+						withSuccess(
+								"{\"d\":{\"applicationRootUrl\":\"https://na5.replicon.com/first/\"}}",
+								MediaType.APPLICATION_JSON));
+		mockServer
+				.expect(requestTo("https://na5.replicon.com/first/services/UserService1.svc/GetUser2"))
+				.andRespond(withSuccess(response, MediaType.APPLICATION_JSON));
+		mockServer
+				.expect(requestTo("https://na5.replicon.com/first/services/UserService1.svc/GetUser2"))
+				.andRespond(withSuccess(response, MediaType.APPLICATION_JSON));
+		mockServer
+				.expect(requestTo(DiscoveryBaseUrlResolver.DEFAULT_DISCOVERY_URL))
+				.andRespond(
+						withSuccess(
+								"{\"d\":{\"applicationRootUrl\":\"https://eu1.replicon.com/second\"}}",
+								MediaType.APPLICATION_JSON));
+		mockServer
+				.expect(requestTo("https://eu1.replicon.com/second/services/UserService1.svc/GetUser2"))
+				.andExpect(header("Authorization", "Bearer token"))
+				.andRespond(withSuccess(response, MediaType.APPLICATION_JSON));
+
+		first.getUserByLoginName("thiago.ferreira");
+		first.getUserByLoginName("thiago.ferreira");
+		second.getUserByLoginName("thiago.ferreira");
+
+		mockServer.verify();
+
+		Assert.assertSame(first.getRuntime(), second.getRuntime());
+		Assert.assertEquals(3,
+				runtime.getMetrics().getOperation("/UserService1.svc/GetUser2")
+						.getCalls());
+	}
+}
@@ -13,15 +13,14 @@
  * See the License for the specific language governing permissions and
  * limitations under the License.
  */
-package br.com.thiagomoreira.replicon;
+package br.com.thiagomoreira.replicon.spring;
 
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.header;
 import static org.springframework.test.web.client.match.MockRestRequestMatchers.method;
 import static org.springframework.test.web.client.match.MockRestRequestMatchers.requestTo;
 import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
 
-import java.io.File;
-
-import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
 import org.junit.Assert;
 import org.junit.Test;
 import org.springframework.http.HttpMethod;
@@ -32,20 +31,24 @@ import br.com.thiagomoreira.replicon.model.Project;
 import br.com.thiagomoreira.replicon.model.Status;
 import br.com.thiagomoreira.replicon.model.User;
 
-public class RepliconTest {
+public class SpringRepliconTest {
+
+	protected String baseServiceUrl = "https://na2.replicon.com/company/services";
 
 	@Test
 	public void getProject() throws Exception {
 		String projectUri = "urn:replicon-tenant:company:project:001";
-		Replicon replicon = new Replicon("company", "username", "password");
+		SpringReplicon replicon = new SpringReplicon("company", "username",
+				"password");
 
 		MockRestServiceServer mockServer = MockRestServiceServer
-				.createServer(replicon.restTemplate);
+				.createServer(replicon.getRestTemplate());
 
-		String response = FileUtils.readFileToString(new File(
-				"src/test/resources/getProjectResponse.json"), "UTF-8");
+		String response = IOUtils.toString(
+				getClass().getResourceAsStream("/getProjectResponse.json"),
+				"UTF-8");
 		mockServer
-				.expect(requestTo(replicon.getBaseServiceUrl()
+				.expect(requestTo(baseServiceUrl
 						+ "/ProjectService1.svc/GetProjectDetails"))
 				.andExpect(method(HttpMethod.POST))
 				.andRespond(withSuccess(response, MediaType.APPLICATION_JSON));
@@ -64,17 +67,21 @@ public class RepliconTest {
 	@Test
 	public void getUser() throws Exception {
 		String loginName = "thiago.ferreira";
-		Replicon replicon = new Replicon("company", "username", "password");
+		SpringReplicon replicon = new SpringReplicon("company", "username",
+				"password");
 
 		MockRestServiceServer mockServer = MockRestServiceServer
-				.createServer(replicon.restTemplate);
+				.createServer(replicon.getRestTemplate());
 
-		String response = FileUtils.readFileToString(new File(
-				"src/test/resources/getUser2Response.json"), "UTF-8");
+		String response = IOUtils.toString(
+				getClass().getResourceAsStream("/getUser2Response.json"),
+				"UTF-8");
 		mockServer
-				.expect(requestTo(replicon.getBaseServiceUrl()
-						+ "/UserService1.svc/GetUser2"))
+				.expect(requestTo(baseServiceUrl + "/UserService1.svc/GetUser2"))
 				.andExpect(method(HttpMethod.POST))
+				.andExpect(
+						header("Authorization",
+								"Basic Y29tcGFueVx1c2VybmFtZTpwYXNzd29yZA=="))
 				.andRespond(withSuccess(response, MediaType.APPLICATION_JSON));
 		User user = replicon.getUserByLoginName(loginName);
 
@@ -89,16 +96,17 @@ public class RepliconTest {
 	@Test
 	public void getUsersBySupervisor() throws Exception {
 		String userUri = "urn:replicon-tenant:company:user:120";
-		Replicon replicon = new Replicon("company", "username", "password");
+		SpringReplicon replicon = new SpringReplicon("company", "username",
+				"password");
 
 		MockRestServiceServer mockServer = MockRestServiceServer
-				.createServer(replicon.restTemplate);
+				.createServer(replicon.getRestTemplate());
 
-		String response = FileUtils.readFileToString(new File(
-				"src/test/resources/getUsersBySupervisorResponse.json"),
-				"UTF-8");
+		String response = IOUtils.toString(
+				getClass().getResourceAsStream(
+						"/getUsersBySupervisorResponse.json"), "UTF-8");
 		mockServer
-				.expect(requestTo(replicon.getBaseServiceUrl()
+				.expect(requestTo(baseServiceUrl
 						+ "/UserService1.svc/GetDirectReportsForUser"))
 				.andExpect(method(HttpMethod.POST))
 				.andRespond(withSuccess(response, MediaType.APPLICATION_JSON));